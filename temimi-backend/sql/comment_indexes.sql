@@ -0,0 +1,11 @@
+-- 评论表索引
+-- 请在 shiyou 数据库中执行此SQL
+
+-- 评论树批量组装：WHERE is_deleted = 0 AND root_id IN (...)，按 root_id 分区、create_time 排序取前3条
+ALTER TABLE `comment` ADD INDEX `idx_root_deleted_time` (`root_id`, `is_deleted`, `create_time`) USING BTREE;
+
+-- 根评论游标分页（按时间）：WHERE vid = ? AND root_id = 0 AND is_deleted = 0 AND (create_time, id) < (?, ?) ORDER BY create_time DESC, id DESC
+ALTER TABLE `comment` ADD INDEX `idx_vid_root_time` (`vid`, `root_id`, `is_deleted`, `create_time`, `id`) USING BTREE;
+
+-- 根评论游标分页（按热度）：WHERE vid = ? AND root_id = 0 AND is_deleted = 0 AND (love, id) < (?, ?) ORDER BY love DESC, id DESC
+ALTER TABLE `comment` ADD INDEX `idx_vid_root_love` (`vid`, `root_id`, `is_deleted`, `love`, `id`) USING BTREE;
@@ -0,0 +1,12 @@
+-- 根评论回复数
+-- 请在 shiyou 数据库中执行此SQL
+
+-- 1. 新增 reply_count 列，由发表/删除评论在同一事务内维护
+ALTER TABLE `comment` ADD COLUMN `reply_count` int NOT NULL DEFAULT 0 COMMENT '未删除的回复数（只有根评论维护）' AFTER `is_deleted`;
+
+-- 2. 一次性回填现有根评论的回复数（之后由每日对账任务修正偏差）
+UPDATE `comment` c
+    JOIN (SELECT `root_id`, COUNT(*) AS cnt FROM `comment` WHERE `root_id` <> 0 AND `is_deleted` = 0 GROUP BY `root_id`) r
+    ON r.`root_id` = c.`id`
+SET c.`reply_count` = r.cnt
+WHERE c.`root_id` = 0;
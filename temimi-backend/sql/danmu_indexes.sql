@@ -0,0 +1,8 @@
+-- 弹幕表索引
+-- 请在 shiyou 数据库中执行此SQL
+
+-- 弹幕分段加载：WHERE vid = ? AND state = 1 AND time_point >= ? AND time_point < ? ORDER BY time_point
+ALTER TABLE `danmu` ADD INDEX `idx_vid_state_time` (`vid`, `state`, `time_point`) USING BTREE;
+
+-- 历史弹幕按天查询与每日快照：WHERE vid = ? AND create_date BETWEEN ? AND ?
+ALTER TABLE `danmu` ADD INDEX `idx_vid_create_date` (`vid`, `create_date`) USING BTREE;
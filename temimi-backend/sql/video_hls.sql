@@ -0,0 +1,5 @@
+-- 视频 HLS 播放列表
+-- 请在 shiyou 数据库中执行此SQL
+
+-- 新增 hls_url 列，HLS 打包完成后写入；已有视频由补偿任务逐批打包
+ALTER TABLE `video` ADD COLUMN `hls_url` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT 'HLS播放列表url，打包完成前为空' AFTER `video_url`;
@@ -3,11 +3,13 @@ package com.temimi;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(exclude = {
     org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration.class
 })
 @MapperScan("com.temimi.mapper")
+@EnableScheduling
 public class BackendApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,176 @@
+package com.temimi.assembler;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.temimi.cache.UserProfileCache;
+import com.temimi.mapper.CategoryMapper;
+import com.temimi.mapper.VideoMapper;
+import com.temimi.mapper.VideoStatsMapper;
+import com.temimi.model.dto.UserProfile;
+import com.temimi.model.dto.UserVideoDto;
+import com.temimi.model.dto.VideoDetailDto;
+import com.temimi.model.entity.Category;
+import com.temimi.model.entity.Video;
+import com.temimi.model.entity.VideoStats;
+import com.temimi.pipeline.VideoStatsAggregator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 视频列表 DTO 批量组装
+ *
+ * 列表页逐条查询UP主、统计、分区会产生 3N 次查询，这里按整页收集 ID 后各查一次：
+ * - UP主资料走 UserProfileCache.getAll，未命中的合并为一次 selectBatchIds
+ * - 统计信息一次 selectBatchIds，并叠加尚未写入的计数增量
+ * - 分区名称一次 sc_id IN (...)
+ *
+ * 每页查询次数与页大小无关。
+ */
+@Component
+public class VideoDtoAssembler {
+
+    private static final String UNKNOWN_UPLOADER = "未知UP主";
+
+    @Autowired
+    private VideoMapper videoMapper;
+
+    @Autowired
+    private VideoStatsMapper videoStatsMapper;
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+
+    @Autowired
+    private VideoStatsAggregator videoStatsAggregator;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    /**
+     * 组装一页 VideoDetailDto（含UP主、统计、分区名称），顺序与输入一致
+     */
+    public List<VideoDetailDto> toDetailDtos(List<Video> videos) {
+        if (videos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, UserProfile> uploaders = loadUploaders(videos);
+        Map<Integer, VideoStats> stats = loadStats(videos.stream().map(Video::getVid).toList());
+        Map<String, Category> categories = loadCategories(videos);
+
+        List<VideoDetailDto> result = new ArrayList<>(videos.size());
+        for (Video video : videos) {
+            UserProfile user = uploaders.get(video.getUid());
+            Category category = video.getScId() != null ? categories.get(video.getScId()) : null;
+            result.add(VideoDetailDto.from(video,
+                    user != null ? user.nickname() : UNKNOWN_UPLOADER,
+                    user != null ? user.avatar() : null,
+                    stats.get(video.getVid()),
+                    category != null ? category.getMcName() : null,
+                    category != null ? category.getScName() : null));
+        }
+        return result;
+    }
+
+    /**
+     * 组装一页 UserVideoDto（含UP主、统计），顺序与输入一致
+     */
+    public List<UserVideoDto> toUserVideoDtos(List<Video> videos) {
+        return toUserVideoDtos(videos, Map.of());
+    }
+
+    /**
+     * 组装一页 UserVideoDto，并附带每个视频的播放时间（历史记录）
+     *
+     * @param playTimes 视频ID -> 播放时间，没有的视频不附带
+     */
+    public List<UserVideoDto> toUserVideoDtos(List<Video> videos, Map<Integer, LocalDateTime> playTimes) {
+        if (videos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, UserProfile> uploaders = loadUploaders(videos);
+        Map<Integer, VideoStats> stats = loadStats(videos.stream().map(Video::getVid).toList());
+
+        List<UserVideoDto> result = new ArrayList<>(videos.size());
+        for (Video video : videos) {
+            UserProfile user = uploaders.get(video.getUid());
+            result.add(UserVideoDto.from(video,
+                    user != null ? user.nickname() : UNKNOWN_UPLOADER,
+                    user != null ? user.avatar() : null,
+                    stats.get(video.getVid()),
+                    playTimes.get(video.getVid())));
+        }
+        return result;
+    }
+
+    /**
+     * 按给定顺序一次查询多个视频，不存在的跳过（ID 重复时结果也重复）
+     */
+    public List<Video> loadVideosInOrder(List<Integer> vids) {
+        if (vids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Video> byId = new HashMap<>();
+        for (Video video : videoMapper.selectBatchIds(new LinkedHashSet<>(vids))) {
+            byId.put(video.getVid(), video);
+        }
+        List<Video> ordered = new ArrayList<>(vids.size());
+        for (Integer vid : vids) {
+            Video video = byId.get(vid);
+            if (video != null) {
+                ordered.add(video);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 一次查询多个视频的统计信息（已叠加尚未写入的计数增量）
+     *
+     * @return 视频ID -> 统计信息（没有统计记录的视频不返回）
+     */
+    public Map<Integer, VideoStats> loadStats(Collection<Integer> vids) {
+        Set<Integer> distinct = new LinkedHashSet<>(vids);
+        distinct.remove(null);
+        Map<Integer, VideoStats> result = new HashMap<>();
+        if (distinct.isEmpty()) {
+            return result;
+        }
+        for (VideoStats stats : videoStatsMapper.selectBatchIds(distinct)) {
+            result.put(stats.getVid(), videoStatsAggregator.applyPending(stats));
+        }
+        return result;
+    }
+
+    private Map<Integer, UserProfile> loadUploaders(List<Video> videos) {
+        return userProfileCache.getAll(videos.stream().map(Video::getUid).filter(Objects::nonNull).toList());
+    }
+
+    private Map<String, Category> loadCategories(List<Video> videos) {
+        Set<String> scIds = new LinkedHashSet<>();
+        for (Video video : videos) {
+            if (video.getScId() != null) {
+                scIds.add(video.getScId());
+            }
+        }
+        Map<String, Category> result = new HashMap<>();
+        if (scIds.isEmpty()) {
+            return result;
+        }
+        QueryWrapper<Category> queryWrapper = new QueryWrapper<>();
+        queryWrapper.in("sc_id", scIds);
+        for (Category category : categoryMapper.selectList(queryWrapper)) {
+            // 与 getCategoryByScId 一致，sc_id 在表中唯一
+            result.putIfAbsent(category.getScId(), category);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,186 @@
+package com.temimi.cache;
+
+import com.temimi.mapper.UserCommentLikeMapper;
+import com.temimi.model.entity.UserCommentLike;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 观看者在某个视频下点赞/点踩过的评论
+ *
+ * 评论区每次滚动都要判断"我是否赞过这条"，原来需要扫描用户全部点赞记录再逐条查评论所属视频：
+ * - 每个 (uid, vid) 缓存两个有序 int 数组（点赞、点踩的评论ID），判断是否包含用二分查找
+ * - 首次访问时用一条 JOIN 查询加载该视频下的记录
+ * - 点赞/点踩事务提交后原地更新（替换为新数组），不再重新加载
+ * - 按 LRU 限制缓存的 (uid, vid) 数
+ */
+@Component
+public class CommentVoteCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentVoteCache.class);
+
+    private static final int[] EMPTY = new int[0];
+
+    @Value("${comment.vote-cache.max-entries:50000}")
+    private int maxEntries;
+
+    @Autowired
+    private UserCommentLikeMapper userCommentLikeMapper;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问都在 this 锁内进行
+    private final LinkedHashMap<Long, Votes> entries = new LinkedHashMap<>(1024, 0.75f, true);
+
+    // 正在加载的 key -> 加载期间是否有修改；有修改时丢弃加载结果，下次重新加载
+    private final Map<Long, Boolean> loading = new HashMap<>();
+
+    /**
+     * 用户在视频下的点赞/点踩记录
+     *
+     * @param likes    点赞的评论ID，升序
+     * @param dislikes 点踩的评论ID，升序
+     */
+    public record Votes(int[] likes, int[] dislikes) {
+
+        public boolean isLiked(int commentId) {
+            return Arrays.binarySearch(likes, commentId) >= 0;
+        }
+
+        public boolean isDisliked(int commentId) {
+            return Arrays.binarySearch(dislikes, commentId) >= 0;
+        }
+
+        public List<Integer> likedIds() {
+            return Arrays.stream(likes).boxed().toList();
+        }
+
+        public List<Integer> dislikedIds() {
+            return Arrays.stream(dislikes).boxed().toList();
+        }
+
+        /**
+         * 修改一条评论的状态，返回新的记录（type 为 null 表示取消）
+         */
+        private Votes with(int commentId, Integer type) {
+            int[] newLikes = UserCommentLike.TYPE_LIKE.equals(type) ? insert(likes, commentId) : remove(likes, commentId);
+            int[] newDislikes = UserCommentLike.TYPE_DISLIKE.equals(type)
+                    ? insert(dislikes, commentId) : remove(dislikes, commentId);
+            return new Votes(newLikes, newDislikes);
+        }
+    }
+
+    /**
+     * 获取用户在视频下的点赞/点踩记录
+     */
+    public Votes get(Integer uid, Integer vid) {
+        long key = key(uid, vid);
+        synchronized (this) {
+            Votes votes = entries.get(key);
+            if (votes != null) {
+                return votes;
+            }
+            loading.putIfAbsent(key, Boolean.FALSE);
+        }
+
+        Votes loaded;
+        try {
+            loaded = load(uid, vid);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            Votes existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            // 同一 key 的并发加载只有第一个完成的可以写入；加载期间有修改时不写入
+            if (Boolean.FALSE.equals(loading.remove(key))) {
+                entries.put(key, loaded);
+                if (entries.size() > maxEntries) {
+                    Long eldest = entries.keySet().iterator().next();
+                    entries.remove(eldest);
+                }
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * 点赞/点踩状态变更后原地更新（未缓存的忽略，下次加载会从数据库读到）
+     *
+     * @param type 新状态：点赞、点踩，null 表示取消
+     */
+    public synchronized void update(Integer uid, Integer vid, Integer commentId, Integer type) {
+        long key = key(uid, vid);
+        Votes votes = entries.get(key);
+        if (votes != null) {
+            entries.put(key, votes.with(commentId, type));
+        } else if (loading.containsKey(key)) {
+            loading.put(key, Boolean.TRUE);
+        }
+    }
+
+    private Votes load(Integer uid, Integer vid) {
+        List<UserCommentLike> rows = userCommentLikeMapper.selectByUidAndVid(uid, vid);
+        int[] likes = new int[rows.size()];
+        int[] dislikes = new int[rows.size()];
+        int likeCount = 0;
+        int dislikeCount = 0;
+        for (UserCommentLike row : rows) {
+            if (UserCommentLike.TYPE_LIKE.equals(row.getType())) {
+                likes[likeCount++] = row.getCommentId();
+            } else if (UserCommentLike.TYPE_DISLIKE.equals(row.getType())) {
+                dislikes[dislikeCount++] = row.getCommentId();
+            }
+        }
+        likes = Arrays.copyOf(likes, likeCount);
+        dislikes = Arrays.copyOf(dislikes, dislikeCount);
+        Arrays.sort(likes);
+        Arrays.sort(dislikes);
+        logger.debug("加载评论点赞记录, uid={}, vid={}, 点赞={}, 点踩={}", uid, vid, likeCount, dislikeCount);
+        return new Votes(likes, dislikes);
+    }
+
+    private static long key(Integer uid, Integer vid) {
+        return ((long) uid << 32) | (vid & 0xFFFFFFFFL);
+    }
+
+    private static int[] insert(int[] ids, int id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        int position = -index - 1;
+        int[] result = new int[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        result[position] = id;
+        System.arraycopy(ids, position, result, position + 1, ids.length - position);
+        return result;
+    }
+
+    private static int[] remove(int[] ids, int id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return EMPTY;
+        }
+        int[] result = new int[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,228 @@
+package com.temimi.cache;
+
+import com.temimi.constant.BusinessConstants;
+import com.temimi.mapper.DanmuMapper;
+import com.temimi.mapper.VideoMapper;
+import com.temimi.model.entity.Danmu;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 弹幕密度直方图（进度条"高能"曲线）
+ *
+ * 每个视频按固定时长的时间桶统计已过审弹幕数：
+ * - 首次请求时用一条 GROUP BY 从数据库计算
+ * - 之后由发送、删除弹幕增量维护，不再重新计算
+ * - 按 LRU 限制缓存的视频数
+ * - 时间桶数不超过视频时长对应的桶数（时长未知时按 danmu.max-time-point-seconds），
+ *   超出范围的弹幕不计入，单个直方图的大小有上限
+ */
+@Component
+public class DanmuDensityCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DanmuDensityCache.class);
+
+    @Value("${danmu.density.bucket-seconds:5}")
+    private int bucketSeconds;
+
+    @Value("${danmu.density.max-videos:10000}")
+    private int maxVideos;
+
+    @Value("${danmu.max-time-point-seconds:86400}")
+    private int maxTimePointSeconds;
+
+    @Autowired
+    private DanmuMapper danmuMapper;
+
+    @Autowired
+    private VideoMapper videoMapper;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问都在 this 锁内进行
+    private final LinkedHashMap<Integer, Histogram> histograms = new LinkedHashMap<>(256, 0.75f, true);
+
+    // 正在加载中的视频 -> 加载期间提交的增量，加载完成后合并，避免丢失
+    // （恰好在查询前提交、查询后才回调的弹幕会多计一次，对热度曲线可以忽略）
+    private final Map<Integer, int[]> loading = new HashMap<>();
+
+    /**
+     * 时间桶宽度（秒）
+     */
+    public int getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    /**
+     * 获取视频的弹幕密度直方图，第 i 项为 [i * bucketSeconds, (i + 1) * bucketSeconds) 内的弹幕数
+     *
+     * @return 直方图副本
+     */
+    public int[] getHistogram(Integer vid) {
+        synchronized (this) {
+            Histogram histogram = histograms.get(vid);
+            if (histogram != null) {
+                return histogram.counts.clone();
+            }
+            loading.putIfAbsent(vid, new int[0]);
+        }
+
+        Histogram loaded;
+        try {
+            loaded = loadFromDatabase(vid);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(vid);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            Histogram existing = histograms.get(vid);
+            if (existing != null) {
+                return existing.counts.clone();
+            }
+            int[] pending = loading.remove(vid);
+            if (pending != null) {
+                for (int bucket = 0; bucket < pending.length; bucket++) {
+                    if (pending[bucket] != 0) {
+                        loaded.add(bucket, pending[bucket]);
+                    }
+                }
+            }
+            for (int bucket = 0; bucket < loaded.counts.length; bucket++) {
+                loaded.counts[bucket] = Math.max(0, loaded.counts[bucket]);
+            }
+            histograms.put(vid, loaded);
+            if (histograms.size() > maxVideos) {
+                Integer eldest = histograms.keySet().iterator().next();
+                histograms.remove(eldest);
+            }
+            return loaded.counts.clone();
+        }
+    }
+
+    /**
+     * 新弹幕入库后计入所在时间桶（未缓存的视频忽略，下次加载会从数据库读到）
+     */
+    public void append(Danmu danmu) {
+        adjust(danmu, 1);
+    }
+
+    /**
+     * 弹幕删除后从所在时间桶扣除（只有已过审的弹幕计入过直方图）
+     */
+    public void remove(Danmu danmu) {
+        if (danmu.getState() == null || danmu.getState() == BusinessConstants.DANMU_STATE_NORMAL) {
+            adjust(danmu, -1);
+        }
+    }
+
+    /**
+     * 使指定视频的直方图失效（批量审核等无法逐条定位的场景）
+     */
+    public synchronized void evictVideo(Integer vid) {
+        histograms.remove(vid);
+    }
+
+    private void adjust(Danmu danmu, int delta) {
+        if (danmu.getVid() == null || danmu.getTimePoint() == null) {
+            return;
+        }
+        int bucket = bucketOf(danmu.getTimePoint(), maxBuckets());
+        if (bucket < 0) {
+            return;
+        }
+        synchronized (this) {
+            Histogram histogram = histograms.get(danmu.getVid());
+            if (histogram != null) {
+                histogram.add(bucket, delta);
+                if (bucket < histogram.counts.length) {
+                    histogram.counts[bucket] = Math.max(0, histogram.counts[bucket]);
+                }
+                return;
+            }
+            int[] pending = loading.get(danmu.getVid());
+            if (pending != null) {
+                int[] target = bucket < pending.length ? pending : Arrays.copyOf(pending, bucket + 1);
+                target[bucket] += delta;
+                loading.put(danmu.getVid(), target);
+            }
+        }
+    }
+
+    private Histogram loadFromDatabase(Integer vid) {
+        Histogram histogram = new Histogram(maxBucketsOf(videoMapper.selectDuration(vid)));
+        List<Map<String, Object>> rows = danmuMapper.countByTimeBucket(vid, bucketSeconds);
+        for (Map<String, Object> row : rows) {
+            long bucket = ((Number) row.get("bucket")).longValue();
+            int count = ((Number) row.get("cnt")).intValue();
+            if (bucket >= 0 && bucket < histogram.maxBuckets) {
+                histogram.add((int) bucket, count);
+            }
+        }
+        logger.debug("加载弹幕密度直方图, vid={}, 时间桶数={}", vid, histogram.counts.length);
+        return histogram;
+    }
+
+    /**
+     * 时长未知时允许的最大时间桶数
+     */
+    private int maxBuckets() {
+        return maxTimePointSeconds / bucketSeconds + 1;
+    }
+
+    /**
+     * 视频时长对应的时间桶数，时长未知时使用配置的上限
+     */
+    private int maxBucketsOf(Double duration) {
+        if (duration == null || !(duration > 0)) {
+            return maxBuckets();
+        }
+        return Math.min(maxBuckets(), (int) Math.floor(duration / bucketSeconds) + 1);
+    }
+
+    /**
+     * 时间点所在的时间桶，超出范围时返回 -1
+     */
+    private int bucketOf(double timePoint, int maxBuckets) {
+        if (!(timePoint >= 0)) {
+            return -1;
+        }
+        double bucket = Math.floor(timePoint / bucketSeconds);
+        return bucket < maxBuckets ? (int) bucket : -1;
+    }
+
+    /**
+     * 单个视频的直方图，长度按需增长，但不超过 maxBuckets
+     */
+    private static final class Histogram {
+
+        private final int maxBuckets;
+        private int[] counts = new int[0];
+
+        private Histogram(int maxBuckets) {
+            this.maxBuckets = maxBuckets;
+        }
+
+        /**
+         * 在指定时间桶上累加，超出上限的时间桶忽略
+         */
+        private void add(int bucket, int delta) {
+            if (bucket >= maxBuckets) {
+                return;
+            }
+            if (bucket >= counts.length) {
+                counts = Arrays.copyOf(counts, bucket + 1);
+            }
+            counts[bucket] += delta;
+        }
+    }
+}
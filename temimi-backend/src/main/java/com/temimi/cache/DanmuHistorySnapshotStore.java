@@ -0,0 +1,155 @@
+package com.temimi.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.temimi.mapper.DanmuMapper;
+import com.temimi.mapper.VideoMapper;
+import com.temimi.model.entity.Danmu;
+import com.temimi.model.entity.Video;
+import com.temimi.model.vo.ApiResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 历史弹幕每日快照
+ *
+ * 每个视频每天一个 gzip 压缩的快照文件，内容即 /api/danmu/history 的完整 JSON 响应，
+ * 弹幕按时间点排序，可以直接从磁盘零拷贝发送：
+ * - 每天凌晨为前一天有弹幕的视频生成快照
+ * - 请求到未生成快照的历史日期时按需生成
+ * - 快照生成后不再修改；删除弹幕时删除对应快照，下次请求重新生成
+ * - 只为存在的视频、上传日期及之后、且当天有弹幕的日期生成快照，
+ *   避免任意 vid × 日期的请求在磁盘上堆积空文件
+ *
+ * 当天的弹幕仍在变化，不生成快照，始终查询数据库。
+ */
+@Component
+public class DanmuHistorySnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(DanmuHistorySnapshotStore.class);
+
+    private static final String SNAPSHOT_DIR = "danmu-history";
+
+    private static final String SNAPSHOT_SUFFIX = ".json.gz";
+
+    @Value("${file.upload.path:D:/shiyou_upload/}")
+    private String uploadBasePath;
+
+    @Autowired
+    private DanmuMapper danmuMapper;
+
+    @Autowired
+    private VideoMapper videoMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 该日期是否可以使用快照（今天及以后的弹幕仍在变化）
+     */
+    public boolean isArchivable(LocalDate date) {
+        return date.isBefore(LocalDate.now());
+    }
+
+    /**
+     * 获取快照文件，不存在时从数据库生成
+     *
+     * @return 快照文件路径（gzip 压缩的 JSON 响应）；视频不存在、日期早于上传日期或当天没有弹幕时返回 null
+     */
+    public Path getOrCreate(Integer vid, LocalDate date) throws IOException {
+        Path snapshot = snapshotPath(vid, date);
+        if (Files.exists(snapshot)) {
+            return snapshot;
+        }
+        Video video = videoMapper.selectById(vid);
+        if (video == null || video.getUploadDate() == null || date.isBefore(video.getUploadDate().toLocalDate())) {
+            return null;
+        }
+        return writeSnapshot(vid, date, snapshot) ? snapshot : null;
+    }
+
+    /**
+     * 弹幕删除后使其所在日期的快照失效
+     */
+    public void invalidate(Danmu danmu) {
+        if (danmu.getVid() == null || danmu.getCreateDate() == null) {
+            return;
+        }
+        Path snapshot = snapshotPath(danmu.getVid(), danmu.getCreateDate().toLocalDate());
+        try {
+            if (Files.deleteIfExists(snapshot)) {
+                logger.info("历史弹幕快照已失效, vid={}, date={}", danmu.getVid(), danmu.getCreateDate().toLocalDate());
+            }
+        } catch (IOException e) {
+            logger.error("删除历史弹幕快照失败, path={}, 原因: {}", snapshot, e.getMessage());
+        }
+    }
+
+    /**
+     * 每天凌晨为前一天有弹幕的视频生成快照
+     */
+    @Scheduled(cron = "${danmu.history.snapshot-cron:0 10 0 * * *}")
+    public void snapshotYesterday() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDateTime start = yesterday.atStartOfDay();
+        List<Integer> vids = danmuMapper.selectVidsCreatedBetween(start, start.plusDays(1));
+        int written = 0;
+        for (Integer vid : vids) {
+            Path snapshot = snapshotPath(vid, yesterday);
+            if (Files.exists(snapshot)) {
+                continue;
+            }
+            try {
+                if (writeSnapshot(vid, yesterday, snapshot)) {
+                    written++;
+                }
+            } catch (Exception e) {
+                logger.error("生成历史弹幕快照失败, vid={}, date={}, 原因: {}", vid, yesterday, e.getMessage());
+            }
+        }
+        logger.info("历史弹幕快照生成完成, date={}, 视频数={}, 新生成={}", yesterday, vids.size(), written);
+    }
+
+    /**
+     * @return 是否生成了快照（当天没有已过审弹幕时不生成）
+     */
+    private boolean writeSnapshot(Integer vid, LocalDate date, Path snapshot) throws IOException {
+        List<Danmu> danmuList = danmuMapper.selectByVidAndDay(vid,
+                date.atStartOfDay(), date.atTime(23, 59, 59));
+        if (danmuList.isEmpty()) {
+            return false;
+        }
+
+        Files.createDirectories(snapshot.getParent());
+        // 先写临时文件再原子替换，并发生成或读取时不会看到半个文件
+        Path temp = Files.createTempFile(snapshot.getParent(), date.toString(), ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                objectMapper.writeValue(out, ApiResult.success(danmuList));
+            }
+            Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        logger.debug("生成历史弹幕快照, vid={}, date={}, 条数={}", vid, date, danmuList.size());
+        return true;
+    }
+
+    private Path snapshotPath(Integer vid, LocalDate date) {
+        return Paths.get(uploadBasePath, SNAPSHOT_DIR, String.valueOf(vid), date + SNAPSHOT_SUFFIX);
+    }
+}
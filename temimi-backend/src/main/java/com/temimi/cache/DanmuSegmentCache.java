@@ -0,0 +1,387 @@
+package com.temimi.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.temimi.constant.BusinessConstants;
+import com.temimi.mapper.DanmuMapper;
+import com.temimi.model.entity.Danmu;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 弹幕分段索引
+ *
+ * 按固定时长（默认 6 分钟）把每个视频的弹幕切成若干分段：
+ * - 分段在首次请求时从数据库懒加载
+ * - 新发送的弹幕直接追加到已加载的分段中，不会使分段失效
+ * - 按 LRU 淘汰，总占用不超过内存预算（每个分段另计固定开销）
+ * - 空分段不缓存
+ *
+ * 锁的划分：全局锁只保护分段表、加载表和 LRU 顺序，持有期间只做 O(1) 的查找；
+ * 分段内容的追加、移除和整理在分段自己的锁内进行，热门视频的发送不会阻塞其他视频。
+ * 加锁顺序固定为先全局后分段。
+ */
+@Component
+public class DanmuSegmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DanmuSegmentCache.class);
+
+    /**
+     * 单条弹幕除内容外的估算内存占用（对象头、字段、颜色字符串、时间对象等）
+     */
+    private static final int DANMU_BASE_BYTES = 160;
+
+    /**
+     * 单个分段的固定估算内存占用（分段键、表项、分段对象、快照和尾部列表），
+     * 保证大量小分段同样计入内存预算
+     */
+    private static final int SEGMENT_BASE_BYTES = 256;
+
+    @Value("${danmu.segment.width-seconds:360}")
+    private int segmentWidthSeconds;
+
+    @Value("${danmu.segment.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Autowired
+    private DanmuMapper danmuMapper;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问都在 this 锁内进行
+    private final LinkedHashMap<SegmentKey, Segment> segments = new LinkedHashMap<>(256, 0.75f, true);
+
+    // 正在加载中的分段，在 this 锁内访问
+    private final Map<SegmentKey, LoadState> loading = new HashMap<>();
+
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * 分段时长（秒）
+     */
+    public int getSegmentWidthSeconds() {
+        return segmentWidthSeconds;
+    }
+
+    /**
+     * 计算时间点所在的分段序号
+     */
+    public int segmentOf(double timePoint) {
+        return (int) Math.floor(timePoint / segmentWidthSeconds);
+    }
+
+    /**
+     * 获取指定视频第 n 个分段的弹幕（按时间点升序，只读）
+     */
+    public List<Danmu> getSegment(Integer vid, int n) {
+        SegmentKey key = new SegmentKey(vid, n);
+        Segment cached;
+        LoadState state;
+        synchronized (this) {
+            cached = segments.get(key);
+            state = cached == null ? loading.computeIfAbsent(key, k -> new LoadState()) : null;
+        }
+        if (cached != null) {
+            return cached.snapshot();
+        }
+
+        List<Danmu> loaded;
+        try {
+            loaded = loadFromDatabase(vid, n);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key, state);
+            }
+            throw e;
+        }
+
+        Segment segment;
+        synchronized (this) {
+            Segment existing = segments.get(key);
+            if (existing != null) {
+                cached = existing;
+            } else {
+                loading.remove(key, state);
+            }
+            if (existing != null || state.stale || (loaded.isEmpty() && state.pending.isEmpty())) {
+                segment = null;
+            } else {
+                segment = new Segment(merge(loaded, state.pending));
+                segments.put(key, segment);
+                usedBytes.addAndGet(segment.bytes);
+                evictIfNeeded();
+            }
+        }
+        if (cached != null) {
+            return cached.snapshot();
+        }
+        if (segment == null) {
+            if (!state.stale) {
+                // 空分段不放入缓存，避免遍历不存在的分段序号占满分段表
+                return Collections.emptyList();
+            }
+            // 加载期间该视频被批量审核，读到的数据可能已过期：重新读取一次，不放入缓存
+            return Collections.unmodifiableList(loadFromDatabase(vid, n));
+        }
+        return segment.snapshot();
+    }
+
+    /**
+     * 追加一条新弹幕到所在分段（分段未加载时忽略，下次加载会从数据库读到）
+     */
+    public void append(Danmu danmu) {
+        if (danmu.getVid() == null || danmu.getTimePoint() == null) {
+            return;
+        }
+        SegmentKey key = new SegmentKey(danmu.getVid(), segmentOf(danmu.getTimePoint()));
+        Segment segment;
+        synchronized (this) {
+            segment = segments.get(key);
+            if (segment == null) {
+                LoadState state = loading.get(key);
+                if (state != null) {
+                    state.pending.add(danmu);
+                }
+                return;
+            }
+        }
+        if (segment.insert(danmu) && usedBytes.get() > maxBytes) {
+            synchronized (this) {
+                evictIfNeeded();
+            }
+        }
+    }
+
+    /**
+     * 从所在分段中移除一条弹幕
+     */
+    public void remove(Danmu danmu) {
+        if (danmu.getVid() == null || danmu.getTimePoint() == null) {
+            return;
+        }
+        SegmentKey key = new SegmentKey(danmu.getVid(), segmentOf(danmu.getTimePoint()));
+        Segment segment;
+        synchronized (this) {
+            segment = segments.get(key);
+            LoadState state = loading.get(key);
+            if (state != null) {
+                state.pending.removeIf(d -> danmu.getId().equals(d.getId()));
+            }
+        }
+        if (segment != null) {
+            segment.remove(danmu.getId());
+        }
+    }
+
+    /**
+     * 使指定视频的全部分段失效（批量审核等无法逐条定位的场景）
+     *
+     * 正在加载的分段同时标记为过期，加载完成后不会放入缓存
+     */
+    public synchronized void evictVideo(Integer vid) {
+        Iterator<Map.Entry<SegmentKey, Segment>> it = segments.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<SegmentKey, Segment> entry = it.next();
+            if (entry.getKey().vid.equals(vid)) {
+                entry.getValue().evict();
+                it.remove();
+            }
+        }
+        Iterator<Map.Entry<SegmentKey, LoadState>> loadingIt = loading.entrySet().iterator();
+        while (loadingIt.hasNext()) {
+            Map.Entry<SegmentKey, LoadState> entry = loadingIt.next();
+            if (entry.getKey().vid.equals(vid)) {
+                entry.getValue().stale = true;
+                loadingIt.remove();
+            }
+        }
+    }
+
+    private List<Danmu> loadFromDatabase(Integer vid, int n) {
+        double start = (double) n * segmentWidthSeconds;
+        double end = start + segmentWidthSeconds;
+        QueryWrapper<Danmu> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("vid", vid)
+                .eq("state", BusinessConstants.DANMU_STATE_NORMAL)
+                .ge("time_point", start)
+                .lt("time_point", end)
+                .orderByAsc("time_point");
+        List<Danmu> danmuList = danmuMapper.selectList(queryWrapper);
+        logger.debug("加载弹幕分段, vid={}, segment={}, 条数={}", vid, n, danmuList.size());
+        return danmuList;
+    }
+
+    private List<Danmu> merge(List<Danmu> loaded, List<Danmu> pending) {
+        if (pending.isEmpty()) {
+            return loaded;
+        }
+        Set<Integer> loadedIds = new HashSet<>();
+        for (Danmu danmu : loaded) {
+            loadedIds.add(danmu.getId());
+        }
+        List<Danmu> merged = new ArrayList<>(loaded);
+        for (Danmu danmu : pending) {
+            if (loadedIds.add(danmu.getId())) {
+                merged.add(insertionPoint(merged, danmu.getTimePoint()), danmu);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 在 this 锁内调用
+     */
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<SegmentKey, Segment>> it = segments.entrySet().iterator();
+        while (usedBytes.get() > maxBytes && segments.size() > 1 && it.hasNext()) {
+            Map.Entry<SegmentKey, Segment> eldest = it.next();
+            eldest.getValue().evict();
+            it.remove();
+            logger.debug("淘汰弹幕分段, vid={}, segment={}", eldest.getKey().vid, eldest.getKey().segment);
+        }
+    }
+
+    /**
+     * 二分查找插入位置：第一个时间点大于给定时间点的位置，保证同一时间点按到达顺序排列
+     */
+    private static int insertionPoint(List<Danmu> danmuList, double timePoint) {
+        int low = 0;
+        int high = danmuList.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (danmuList.get(mid).getTimePoint() <= timePoint) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long estimateBytes(Danmu danmu) {
+        int contentLength = danmu.getContent() == null ? 0 : danmu.getContent().length();
+        return DANMU_BASE_BYTES + contentLength * 2L;
+    }
+
+    private record SegmentKey(Integer vid, int segment) {
+    }
+
+    /**
+     * 加载中的分段：加载期间新提交的弹幕先记在这里，加载完成后合并，避免丢失
+     */
+    private static final class LoadState {
+
+        private final List<Danmu> pending = new ArrayList<>();
+
+        // 加载期间视频被批量审核，加载结果不能放入缓存
+        private boolean stale;
+    }
+
+    /**
+     * 单个分段：有序快照 + 追加尾部
+     *
+     * 新弹幕只追加到尾部（O(1)），读取时若尾部非空，才把尾部按时间点归并进新的快照，
+     * 连续多条发送只需一次归并。快照发布后不再修改，读取方拿到后无需加锁。
+     */
+    private final class Segment {
+
+        private List<Danmu> sorted;
+        private final List<Danmu> tail = new ArrayList<>();
+        private long bytes;
+        private boolean evicted;
+
+        private Segment(List<Danmu> danmuList) {
+            this.sorted = Collections.unmodifiableList(danmuList);
+            bytes = SEGMENT_BASE_BYTES;
+            for (Danmu danmu : danmuList) {
+                bytes += estimateBytes(danmu);
+            }
+        }
+
+        private synchronized List<Danmu> snapshot() {
+            if (!tail.isEmpty()) {
+                tail.sort((a, b) -> Double.compare(a.getTimePoint(), b.getTimePoint()));
+                List<Danmu> merged = new ArrayList<>(sorted.size() + tail.size());
+                int i = 0;
+                for (Danmu danmu : tail) {
+                    // 同一时间点已有的弹幕排在前面，保持到达顺序
+                    while (i < sorted.size() && sorted.get(i).getTimePoint() <= danmu.getTimePoint()) {
+                        merged.add(sorted.get(i++));
+                    }
+                    merged.add(danmu);
+                }
+                merged.addAll(sorted.subList(i, sorted.size()));
+                sorted = Collections.unmodifiableList(merged);
+                tail.clear();
+            }
+            return sorted;
+        }
+
+        /**
+         * @return 是否追加成功（分段已被淘汰时忽略）
+         */
+        private synchronized boolean insert(Danmu danmu) {
+            if (evicted) {
+                return false;
+            }
+            tail.add(danmu);
+            long added = estimateBytes(danmu);
+            bytes += added;
+            usedBytes.addAndGet(added);
+            return true;
+        }
+
+        private synchronized void remove(Integer danmuId) {
+            if (evicted) {
+                return;
+            }
+            Danmu removed = null;
+            for (Iterator<Danmu> it = tail.iterator(); it.hasNext(); ) {
+                Danmu danmu = it.next();
+                if (danmu.getId().equals(danmuId)) {
+                    it.remove();
+                    removed = danmu;
+                    break;
+                }
+            }
+            if (removed == null) {
+                List<Danmu> copy = new ArrayList<>(sorted);
+                for (Iterator<Danmu> it = copy.iterator(); it.hasNext(); ) {
+                    Danmu danmu = it.next();
+                    if (danmu.getId().equals(danmuId)) {
+                        it.remove();
+                        sorted = Collections.unmodifiableList(copy);
+                        removed = danmu;
+                        break;
+                    }
+                }
+            }
+            if (removed != null) {
+                long released = estimateBytes(removed);
+                bytes -= released;
+                usedBytes.addAndGet(-released);
+            }
+        }
+
+        /**
+         * 从分段表移除时调用，之后的追加和移除都忽略，占用只扣减一次
+         */
+        private synchronized void evict() {
+            if (!evicted) {
+                evicted = true;
+                usedBytes.addAndGet(-bytes);
+            }
+        }
+    }
+}
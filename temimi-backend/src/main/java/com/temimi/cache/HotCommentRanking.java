@@ -0,0 +1,362 @@
+package com.temimi.cache;
+
+import com.temimi.mapper.CommentMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热门评论排行（评论区"最热"标签）
+ *
+ * 每个视频缓存热度最高的 top-n 条根评论，"最热"标签直接按缓存的顺序分页：
+ * - 热度 = log10(max(点赞数 + reply-weight × 回复数, 1)) + 发布时间(秒) / decay-seconds，
+ *   早发布 decay-seconds 秒的评论需要 10 倍的互动才能排在同一位置
+ * - 热度只随点赞、回复变化，不随当前时间变化，因此排序可以增量维护
+ * - 首次访问时用一条 SQL 按同一公式选出候选，之后由发表、点赞、删除评论事件增量调整
+ * - 排名外的评论热度上升时无法感知，条目超过 TTL 后重新加载
+ * - 翻页超出缓存的排行时，以排行末位为游标按同一公式继续查询数据库
+ * - 发布时间统一由 {@link #toSeconds} 按 JVM 时区换算，加载与增量维护的热度可直接比较
+ * - 按 LRU 限制缓存的视频数
+ */
+@Component
+public class HotCommentRanking {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotCommentRanking.class);
+
+    // 同分时新评论在前
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparingDouble((Entry e) -> e.score).reversed().thenComparing(e -> -e.id);
+
+    @Value("${comment.hot.top-n:1000}")
+    private int topN;
+
+    @Value("${comment.hot.max-videos:5000}")
+    private int maxVideos;
+
+    @Value("${comment.hot.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${comment.hot.reply-weight:2}")
+    private int replyWeight;
+
+    @Value("${comment.hot.decay-seconds:45000}")
+    private long decaySeconds;
+
+    @Autowired
+    private CommentMapper commentMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问都在 this 锁内进行
+    private final LinkedHashMap<Integer, Ranking> rankings = new LinkedHashMap<>(256, 0.75f, true);
+
+    // 正在加载的视频 -> 加载期间是否有变更；有变更时丢弃加载结果，下次重新加载
+    private final Map<Integer, Boolean> loading = new HashMap<>();
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    /**
+     * 根评论的热度条目
+     */
+    private static final class Entry {
+        private final int id;
+        private final long createdSeconds;
+        private int love;
+        private int replies;
+        private double score;
+
+        private Entry(int id, int love, int replies, long createdSeconds) {
+            this.id = id;
+            this.love = love;
+            this.replies = replies;
+            this.createdSeconds = createdSeconds;
+        }
+    }
+
+    /**
+     * 一页在排行中的部分；missing 大于 0 时其余部分从游标 afterId 之后跳过 skip 条继续查询
+     */
+    private record Slice(List<Integer> ids, Integer afterId, int skip, int missing) {
+    }
+
+    /**
+     * 单个视频的排行：按热度降序的条目列表 + ID 索引
+     */
+    private static final class Ranking {
+        private final List<Entry> ordered;
+        private final Map<Integer, Entry> byId;
+        private final long loadedAt;
+        // 加载时根评论数未超过 top-n，即排行包含该视频的全部根评论
+        private boolean complete;
+
+        private Ranking(List<Entry> ordered, boolean complete, long loadedAt) {
+            this.ordered = ordered;
+            this.byId = new HashMap<>(ordered.size() * 2);
+            ordered.forEach(entry -> byId.put(entry.id, entry));
+            this.complete = complete;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        hitCounter = Counter.builder("comment.hot.ranking.requests")
+                .tag("result", "hit")
+                .description("热门评论排行缓存请求数")
+                .register(meterRegistry);
+        missCounter = Counter.builder("comment.hot.ranking.requests")
+                .tag("result", "miss")
+                .description("热门评论排行缓存请求数")
+                .register(meterRegistry);
+        Gauge.builder("comment.hot.ranking.videos", this, HotCommentRanking::size)
+                .description("当前缓存的视频排行数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 按热度顺序取一页根评论ID
+     *
+     * 超出缓存排行范围的部分，以排行末位为游标按同一热度公式从数据库继续查询
+     *
+     * @param offset 起始位置，不能为负数
+     * @return 该页的根评论ID
+     */
+    public List<Integer> page(Integer vid, int offset, int size) {
+        return fill(vid, locate(vid, offset, size));
+    }
+
+    private Slice locate(Integer vid, int offset, int size) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Ranking ranking = rankings.get(vid);
+            if (ranking != null && now - ranking.loadedAt < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+                hitCounter.increment();
+                return slice(ranking, offset, size);
+            }
+            missCounter.increment();
+            loading.putIfAbsent(vid, Boolean.FALSE);
+        }
+
+        Ranking loaded;
+        try {
+            loaded = load(vid, now);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(vid);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            Ranking existing = rankings.get(vid);
+            if (existing != null && existing.loadedAt >= now) {
+                return slice(existing, offset, size);
+            }
+            // 同一视频的并发加载只有第一个完成的可以写入；加载期间有变更时不写入
+            if (Boolean.FALSE.equals(loading.remove(vid))) {
+                rankings.put(vid, loaded);
+                if (rankings.size() > maxVideos) {
+                    Integer eldest = rankings.keySet().iterator().next();
+                    rankings.remove(eldest);
+                }
+            }
+            return slice(loaded, offset, size);
+        }
+    }
+
+    /**
+     * 发表新的根评论
+     */
+    public synchronized void onRootPosted(Integer vid, Integer commentId, LocalDateTime createTime) {
+        Ranking ranking = changing(vid);
+        if (ranking != null) {
+            Entry entry = new Entry(commentId, 0, 0, toSeconds(createTime));
+            entry.score = score(entry);
+            offer(ranking, entry);
+        }
+    }
+
+    /**
+     * 根评论的点赞数变化
+     */
+    public synchronized void onLoveChanged(Integer vid, Integer rootId, int delta) {
+        Ranking ranking = changing(vid);
+        if (ranking != null) {
+            Entry entry = ranking.byId.get(rootId);
+            if (entry != null) {
+                reposition(ranking, entry, Math.max(0, entry.love + delta), entry.replies);
+            }
+        }
+    }
+
+    /**
+     * 根评论的回复数变化
+     */
+    public synchronized void onRepliesChanged(Integer vid, Integer rootId, int delta) {
+        Ranking ranking = changing(vid);
+        if (ranking != null) {
+            Entry entry = ranking.byId.get(rootId);
+            if (entry != null) {
+                reposition(ranking, entry, entry.love, Math.max(0, entry.replies + delta));
+            }
+        }
+    }
+
+    /**
+     * 根评论被删除
+     */
+    public synchronized void onRootDeleted(Integer vid, Integer rootId) {
+        Ranking ranking = changing(vid);
+        if (ranking != null) {
+            Entry entry = ranking.byId.remove(rootId);
+            if (entry != null) {
+                ranking.ordered.remove(indexOf(ranking, entry));
+            }
+        }
+    }
+
+    /**
+     * 使指定视频的排行失效（批量删除等无法逐条定位的场景）
+     */
+    public synchronized void evictVideo(Integer vid) {
+        rankings.remove(vid);
+        if (loading.containsKey(vid)) {
+            loading.put(vid, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 当前缓存的视频排行数
+     */
+    public synchronized int size() {
+        return rankings.size();
+    }
+
+    private Ranking load(Integer vid, long now) {
+        List<Map<String, Object>> rows = commentMapper.selectHotCandidates(vid, replyWeight, decaySeconds, topN + 1);
+        List<Entry> entries = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Entry entry = new Entry(((Number) row.get("id")).intValue(), ((Number) row.get("love")).intValue(),
+                    ((Number) row.get("replies")).intValue(), toSeconds(toDateTime(row.get("created"))));
+            entry.score = score(entry);
+            entries.add(entry);
+        }
+        entries.sort(ORDER);
+        boolean complete = entries.size() <= topN;
+        if (!complete) {
+            entries = new ArrayList<>(entries.subList(0, topN));
+        }
+        logger.debug("加载热门评论排行, vid={}, 条数={}, 完整={}", vid, entries.size(), complete);
+        return new Ranking(entries, complete, now);
+    }
+
+    /**
+     * 取出待修改的排行；视频正在加载时标记加载结果作废
+     */
+    private Ranking changing(Integer vid) {
+        if (loading.containsKey(vid)) {
+            loading.put(vid, Boolean.TRUE);
+        }
+        return rankings.get(vid);
+    }
+
+    private void reposition(Ranking ranking, Entry entry, int love, int replies) {
+        ranking.ordered.remove(indexOf(ranking, entry));
+        ranking.byId.remove(entry.id);
+        entry.love = love;
+        entry.replies = replies;
+        entry.score = score(entry);
+        offer(ranking, entry);
+    }
+
+    /**
+     * 按热度插入；排行已满时与末位比较，挤出末位或直接丢弃
+     */
+    private void offer(Ranking ranking, Entry entry) {
+        int index = Collections.binarySearch(ranking.ordered, entry, ORDER);
+        int position = index >= 0 ? index : -index - 1;
+        if (ranking.ordered.size() >= topN) {
+            if (position >= topN) {
+                // 排在 top-n 之外，排行不再包含全部根评论
+                ranking.complete = false;
+                return;
+            }
+            Entry last = ranking.ordered.remove(ranking.ordered.size() - 1);
+            ranking.byId.remove(last.id);
+            ranking.complete = false;
+        }
+        ranking.ordered.add(position, entry);
+        ranking.byId.put(entry.id, entry);
+    }
+
+    private static int indexOf(Ranking ranking, Entry entry) {
+        return Collections.binarySearch(ranking.ordered, entry, ORDER);
+    }
+
+    /**
+     * 在锁内取出排行范围内的部分；排行不完整且该页超出范围时，记下数据库查询的游标
+     */
+    private static Slice slice(Ranking ranking, int offset, int size) {
+        int total = ranking.ordered.size();
+        int end = (int) Math.min((long) offset + size, total);
+        List<Integer> ids = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            ids.add(ranking.ordered.get(i).id);
+        }
+        int missing = size - ids.size();
+        if (missing <= 0 || ranking.complete) {
+            return new Slice(ids, null, 0, 0);
+        }
+        Integer afterId = total > 0 ? ranking.ordered.get(total - 1).id : null;
+        return new Slice(ids, afterId, Math.max(0, offset - total), missing);
+    }
+
+    /**
+     * 在锁外补齐排行范围之外的部分
+     */
+    private List<Integer> fill(Integer vid, Slice slice) {
+        if (slice.missing == 0) {
+            return slice.ids;
+        }
+        List<Integer> ids = new ArrayList<>(slice.ids);
+        ids.addAll(commentMapper.selectHotIdsAfter(vid, replyWeight, decaySeconds, slice.afterId, slice.skip, slice.missing));
+        return ids;
+    }
+
+    private double score(Entry entry) {
+        long interactions = entry.love + (long) replyWeight * entry.replies;
+        return Math.log10(Math.max(interactions, 1)) + (double) entry.createdSeconds / decaySeconds;
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        LocalDateTime value = time != null ? time : LocalDateTime.now();
+        return value.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
@@ -0,0 +1,158 @@
+package com.temimi.cache;
+
+import com.temimi.mapper.UserVideoMapper;
+import com.temimi.model.entity.UserVideo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 播放去重窗口：同一用户在窗口期内多次播放同一视频只计一次播放量
+ *
+ * 以 (uid, vid) -> 最近一次计数时间 的形式保存在内存中，判断不再查询 user_video：
+ * - 分为"当前代"和"上一代"两个 ConcurrentHashMap，每过一个窗口整体轮换，上一代直接丢弃，
+ *   不需要逐条扫描过期项；任一条目至少保留一个完整窗口
+ * - 判断与记录在当前代的 compute 内完成，同一 (uid, vid) 的并发请求只会有一个计数
+ * - 条目数超过 max-entries 时提前轮换，最坏情况下少数用户会在窗口内被多计一次
+ *
+ * 应用启动后的第一个窗口内内存中没有历史记录，未命中时回退查询 user_video 的 play_time。
+ */
+@Component
+public class PlayDedupWindow {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayDedupWindow.class);
+
+    @Value("${video.play-dedup.window-minutes:30}")
+    private long windowMinutes;
+
+    @Value("${video.play-dedup.max-entries:2000000}")
+    private int maxEntries;
+
+    @Autowired
+    private UserVideoMapper userVideoMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile ConcurrentHashMap<Long, Long> current = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<Long, Long> previous = new ConcurrentHashMap<>();
+
+    private long windowMillis;
+    private long startedAt;
+    private volatile long lastRotatedAt;
+
+    private Counter countedCounter;
+    private Counter dedupedCounter;
+
+    @PostConstruct
+    public void init() {
+        windowMillis = TimeUnit.MINUTES.toMillis(windowMinutes);
+        startedAt = System.currentTimeMillis();
+        lastRotatedAt = startedAt;
+
+        countedCounter = Counter.builder("video.play_dedup.result")
+                .tag("result", "counted")
+                .description("播放去重判断结果")
+                .register(meterRegistry);
+        dedupedCounter = Counter.builder("video.play_dedup.result")
+                .tag("result", "deduped")
+                .description("播放去重判断结果")
+                .register(meterRegistry);
+        Gauge.builder("video.play_dedup.entries", this, PlayDedupWindow::size)
+                .description("播放去重窗口中的条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 判断本次播放是否应计入播放量，应计入时同时记录本次播放时间
+     *
+     * @return 距离上次计数超过窗口期（或首次播放）返回 true
+     */
+    public boolean tryAcquire(Integer uid, Integer vid) {
+        long now = System.currentTimeMillis();
+        Long key = ((long) uid << 32) | (vid & 0xFFFFFFFFL);
+        ConcurrentHashMap<Long, Long> generation = current;
+
+        // 启动后第一个窗口内，内存未命中的需要参考数据库中的最近播放时间
+        Long seed = null;
+        if (now - startedAt < windowMillis && !generation.containsKey(key) && !previous.containsKey(key)) {
+            seed = lastPlayFromDatabase(uid, vid);
+        }
+        Long fallback = seed;
+
+        boolean[] counted = new boolean[1];
+        generation.compute(key, (k, last) -> {
+            if (last == null) {
+                last = previous.get(k);
+            }
+            if (last == null) {
+                last = fallback;
+            }
+            if (last != null && now - last < windowMillis) {
+                return last;
+            }
+            counted[0] = true;
+            return now;
+        });
+
+        if (counted[0]) {
+            countedCounter.increment();
+        } else {
+            dedupedCounter.increment();
+        }
+        return counted[0];
+    }
+
+    /**
+     * 每过一个窗口（或条目数超限时）轮换一代
+     */
+    @Scheduled(fixedDelayString = "${video.play-dedup.check-interval-ms:60000}")
+    public void rotate() {
+        long now = System.currentTimeMillis();
+        boolean expired = now - lastRotatedAt >= windowMillis;
+        boolean overflow = current.size() >= maxEntries;
+        if (!expired && !overflow) {
+            return;
+        }
+        previous = current;
+        current = new ConcurrentHashMap<>();
+        lastRotatedAt = now;
+        if (overflow) {
+            logger.warn("播放去重窗口条目数超过上限，提前轮换, 上限={}", maxEntries);
+        } else {
+            logger.debug("播放去重窗口轮换, 上一代条目数={}", previous.size());
+        }
+    }
+
+    /**
+     * 当前保存的条目数（两代之和）
+     */
+    public int size() {
+        return current.size() + previous.size();
+    }
+
+    private Long lastPlayFromDatabase(Integer uid, Integer vid) {
+        try {
+            UserVideo userVideo = userVideoMapper.selectByUidAndVid(uid, vid);
+            if (userVideo == null || userVideo.getPlayTime() == null) {
+                return null;
+            }
+            return userVideo.getPlayTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            // 查询失败按首次播放处理，最多多计一次
+            logger.warn("查询最近播放时间失败, uid={}, vid={}, 原因: {}", uid, vid, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.temimi.cache;
+
+import com.temimi.mapper.UserMapper;
+import com.temimi.model.dto.UserProfile;
+import com.temimi.model.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户公开资料缓存
+ *
+ * 评论、搜索、私信、动态、收藏、历史等列表逐行查询作者信息，反复命中的是同一批活跃用户：
+ * - 缓存不可变的 UserProfile 投影（uid、昵称、头像、认证、会员、经验）
+ * - 按 LRU 限制条数，条目超过 TTL 后重新查询
+ * - getAll 对未命中的 uid 合并为一次 selectBatchIds
+ * - 修改资料、头像以及管理员修改状态/角色时失效
+ *
+ * 不存在的用户不缓存。
+ */
+@Component
+public class UserProfileCache {
+
+    @Value("${user.profile-cache.max-size:20000}")
+    private int maxSize;
+
+    @Value("${user.profile-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问都在 this 锁内进行
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+
+    // 每次失效递增；加载期间发生过失效时不回填，避免把旧数据写回缓存
+    private long invalidations;
+
+    private long ttlNanos;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        hits = Counter.builder("user.profile.cache.requests")
+                .tag("result", "hit")
+                .description("用户资料缓存查询次数")
+                .register(meterRegistry);
+        misses = Counter.builder("user.profile.cache.requests")
+                .tag("result", "miss")
+                .description("用户资料缓存查询次数")
+                .register(meterRegistry);
+        Gauge.builder("user.profile.cache.size", this, UserProfileCache::size)
+                .description("当前缓存的用户资料数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取单个用户资料
+     *
+     * @return 用户资料，用户不存在时返回 null
+     */
+    public UserProfile get(Integer uid) {
+        if (uid == null) {
+            return null;
+        }
+        return getAll(List.of(uid)).get(uid);
+    }
+
+    /**
+     * 批量获取用户资料，未命中的一次查询数据库
+     *
+     * @return uid -> 用户资料，不存在的用户不包含在内
+     */
+    public Map<Integer, UserProfile> getAll(Collection<Integer> uids) {
+        Map<Integer, UserProfile> result = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+        long generation;
+        synchronized (this) {
+            long now = System.nanoTime();
+            for (Integer uid : uids) {
+                if (uid == null || result.containsKey(uid)) {
+                    continue;
+                }
+                Entry entry = entries.get(uid);
+                if (entry != null && now - entry.loadedAt < ttlNanos) {
+                    result.put(uid, entry.profile);
+                } else {
+                    missing.add(uid);
+                }
+            }
+            generation = invalidations;
+        }
+        hits.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+        misses.increment(missing.size());
+
+        List<UserProfile> loaded = new ArrayList<>(missing.size());
+        for (User user : userMapper.selectBatchIds(missing)) {
+            loaded.add(UserProfile.from(user));
+        }
+        synchronized (this) {
+            if (generation == invalidations) {
+                long now = System.nanoTime();
+                for (UserProfile profile : loaded) {
+                    entries.put(profile.uid(), new Entry(profile, now));
+                }
+                while (entries.size() > maxSize) {
+                    Integer eldest = entries.keySet().iterator().next();
+                    entries.remove(eldest);
+                }
+            }
+        }
+        for (UserProfile profile : loaded) {
+            result.put(profile.uid(), profile);
+        }
+        return result;
+    }
+
+    /**
+     * 用户资料修改后使缓存失效
+     */
+    public synchronized void invalidate(Integer uid) {
+        invalidations++;
+        entries.remove(uid);
+    }
+
+    /**
+     * 当前缓存的用户资料数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(UserProfile profile, long loadedAt) {
+    }
+}
@@ -54,6 +54,8 @@ public class JwtAuthenticationTokenFilter extends OncePerRequestFilter {
             "/api/comment/get-up-like",     // ✅ 只允许匿名访问UP主点赞的评论
             "/api/comment/root",            // ✅ 只允许匿名访问根评论
             "/api/comment/tree/**",         // ✅ 只允许匿名访问评论树
+            "/api/comment/trees",           // ✅ 允许匿名访问评论树（游标分页）
+            "/api/comment/replies",         // ✅ 允许匿名访问回复列表（游标分页）
             "/api/danmu/get",               // ✅ 只允许匿名访问获取弹幕
             "/api/favorite/user/**",        // ✅ 允许匿名访问用户收藏夹
             "/api/search/**",   // ✅ 允许匿名访问搜索功能
@@ -68,6 +70,7 @@ public class JwtAuthenticationTokenFilter extends OncePerRequestFilter {
             "/avatars/**",
             "/covers/**",
             "/videos/**",
+            "/hls/**",
             "/backgrounds/**"
     );
 
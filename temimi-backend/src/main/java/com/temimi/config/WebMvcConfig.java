@@ -2,9 +2,14 @@ package com.temimi.config;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Spring MVC 配置
  * 用于配置静态资源映射
@@ -25,12 +30,22 @@ public class WebMvcConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/covers/**")
                 .addResourceLocations("file:" + uploadBasePath + "covers/");
 
-        // 映射视频资源
-        registry.addResourceHandler("/videos/**")
-                .addResourceLocations("file:" + uploadBasePath + "videos/");
+        // 视频资源由 VideoStreamController 发送（支持 Range 和零拷贝）
+
+        // 映射 HLS 分片资源，目录打包完成后不再变化，可长期缓存
+        registry.addResourceHandler("/hls/**")
+                .addResourceLocations("file:" + uploadBasePath + "hls/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
 
         // 映射背景图资源
         registry.addResourceHandler("/backgrounds/**")
                 .addResourceLocations("file:" + uploadBasePath + "backgrounds/");
     }
+
+    @Override
+    public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
+        // HLS 播放列表和 fMP4 分片的 Content-Type
+        configurer.mediaType("m3u8", MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                .mediaType("m4s", MediaType.parseMediaType("video/iso.segment"));
+    }
 }
@@ -59,6 +59,18 @@ public class BusinessConstants {
     public static final int DANMU_STATE_NORMAL = 1;   // 默认过审
     public static final int DANMU_STATE_PENDING = 2;  // 被举报审核中
     public static final int DANMU_STATE_DELETED = 3;  // 删除
+
+    // === 弹幕增量同步单次最大返回条数 ===
+    public static final int DANMU_SYNC_MAX_LIMIT = 1000;
+
+    // === 批量审核单条 UPDATE ... IN 的最大ID数 ===
+    public static final int MODERATION_CHUNK_SIZE = 500;
+
+    // === 评论内容最大长度（与数据库 VARCHAR(2000) 保持一致）===
+    public static final int COMMENT_MAX_LENGTH = 2000;
+
+    // === 评论游标分页单次最大返回条数 ===
+    public static final int COMMENT_CURSOR_MAX_LIMIT = 50;
     
     // === 文件路径常量 ===
     public static final String DEFAULT_COVER_PATH = "/default_cover.jpg";
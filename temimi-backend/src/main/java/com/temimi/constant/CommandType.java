@@ -32,6 +32,11 @@ public enum CommandType {
      */
     DANMU_SEND(201),
 
+    /**
+     * 弹幕功能 重连补发不完整，需通过增量接口同步
+     */
+    DANMU_RESYNC(202),
+
     /**
      * 系统通知
      */
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.temimi.model.entity.Comment;
 import com.temimi.model.vo.ApiResult;
+import com.temimi.model.vo.BatchModerationVO;
 import com.temimi.service.CommentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -98,12 +99,9 @@ public class CommentAdminController {
      * POST /api/admin/comment/batch-delete
      */
     @PostMapping("/batch-delete")
-    public ApiResult<String> batchDeleteComment(@RequestBody List<Integer> ids) {
+    public ApiResult<BatchModerationVO> batchDeleteComment(@RequestBody List<Integer> ids) {
         try {
-            for (Integer id : ids) {
-                commentService.deleteComment(id);
-            }
-            return ApiResult.success("批量删除成功");
+            return ApiResult.success(commentService.batchDeleteComments(ids));
         } catch (Exception e) {
             return ApiResult.error("批量删除评论失败: " + e.getMessage());
         }
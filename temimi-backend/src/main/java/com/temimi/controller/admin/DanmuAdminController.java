@@ -2,8 +2,10 @@ package com.temimi.controller.admin;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.temimi.constant.BusinessConstants;
 import com.temimi.model.entity.Danmu;
 import com.temimi.model.vo.ApiResult;
+import com.temimi.model.vo.BatchModerationVO;
 import com.temimi.service.DanmuService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -35,6 +37,7 @@ public class DanmuAdminController {
         try {
             Page<Danmu> danmuPage = new Page<>(page, pageSize);
             QueryWrapper<Danmu> queryWrapper = new QueryWrapper<>();
+            queryWrapper.ne("state", BusinessConstants.DANMU_STATE_DELETED); // 排除已删除的弹幕
             
             if (videoId != null) {
                 queryWrapper.eq("vid", videoId);
@@ -44,7 +47,7 @@ public class DanmuAdminController {
                 queryWrapper.like("content", keyword);
             }
             
-            queryWrapper.orderByDesc("send_time");
+            queryWrapper.orderByDesc("create_date");
             
             Page<Danmu> result = danmuService.page(danmuPage, queryWrapper);
             return ApiResult.success(result);
@@ -68,7 +71,7 @@ public class DanmuAdminController {
     }
 
     /**
-     * 删除弹幕
+     * 删除弹幕（软删除，state=3）
      * DELETE /api/admin/danmu/{danmuId}
      */
     @DeleteMapping("/{danmuId}")
@@ -86,20 +89,28 @@ public class DanmuAdminController {
     }
 
     /**
-     * 批量删除弹幕
+     * 批量删除弹幕（软删除，state=3）
      * POST /api/admin/danmu/batch-delete
      */
     @PostMapping("/batch-delete")
-    public ApiResult<String> batchDeleteDanmu(@RequestBody List<Integer> ids) {
+    public ApiResult<BatchModerationVO> batchDeleteDanmu(@RequestBody List<Integer> ids) {
         try {
-            boolean success = danmuService.removeByIds(ids);
-            if (success) {
-                return ApiResult.success("批量删除成功");
-            } else {
-                return ApiResult.error("批量删除失败");
-            }
+            return ApiResult.success(danmuService.moderateDanmu(ids, BusinessConstants.DANMU_STATE_DELETED));
         } catch (Exception e) {
             return ApiResult.error("批量删除弹幕失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 批量隐藏弹幕（转为待审核，state=2）
+     * POST /api/admin/danmu/batch-hide
+     */
+    @PostMapping("/batch-hide")
+    public ApiResult<BatchModerationVO> batchHideDanmu(@RequestBody List<Integer> ids) {
+        try {
+            return ApiResult.success(danmuService.moderateDanmu(ids, BusinessConstants.DANMU_STATE_PENDING));
+        } catch (Exception e) {
+            return ApiResult.error("批量隐藏弹幕失败: " + e.getMessage());
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.temimi.controller.admin;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.temimi.cache.UserProfileCache;
 import com.temimi.model.entity.User;
 import com.temimi.model.vo.ApiResult;
 import com.temimi.service.UserService;
@@ -27,6 +28,9 @@ public class UserManageController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserProfileCache userProfileCache;
+
     /**
      * 分页获取用户列表
      */
@@ -142,6 +146,7 @@ public class UserManageController {
             UpdateWrapper<User> updateWrapper = new UpdateWrapper<>();
             updateWrapper.eq("uid", uid).set("state", state);
             userService.update(updateWrapper);
+            userProfileCache.invalidate(uid);
             
             return ApiResult.success(null);
         } catch (SecurityException e) {
@@ -181,6 +186,7 @@ public class UserManageController {
             UpdateWrapper<User> updateWrapper = new UpdateWrapper<>();
             updateWrapper.eq("uid", uid).set("role", role);
             userService.update(updateWrapper);
+            userProfileCache.invalidate(uid);
             
             return ApiResult.success(null);
         } catch (SecurityException e) {
@@ -1,13 +1,14 @@
 package com.temimi.controller.chat;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.temimi.cache.UserProfileCache;
 import com.temimi.constant.BusinessConstants;
+import com.temimi.model.dto.UserProfile;
 import com.temimi.model.entity.Chat;
 import com.temimi.model.entity.ChatDetailed;
 import com.temimi.model.vo.ApiResult;
 import com.temimi.service.ChatService;
 import com.temimi.service.ChatDetailedService;
-import com.temimi.service.UserService;
 import com.temimi.util.SecurityUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -31,7 +32,7 @@ public class ChatController {
     private ChatDetailedService chatDetailedService;
 
     @Autowired
-    private UserService userService;
+    private UserProfileCache userProfileCache;
 
     /**
      * 创建聊天会话（首次与某用户聊天时调用）
@@ -48,7 +49,8 @@ public class ChatController {
             Integer userId = SecurityUtil.getCurrentUserIdRequired();
 
             // 检查对方用户是否存在
-            if (userService.getById(anotherId) == null) {
+            UserProfile targetUser = userProfileCache.get(anotherId);
+            if (targetUser == null) {
                 return ApiResult.error(404, "用户不存在");
             }
 
@@ -66,11 +68,10 @@ public class ChatController {
             
             // 获取对方用户信息
             Map<String, Object> userInfo = new HashMap<>();
-            com.temimi.model.entity.User targetUser = userService.getById(anotherId);
-            userInfo.put("uid", targetUser.getUid());
-            userInfo.put("nickname", targetUser.getNickname());
-            userInfo.put("avatar_url", targetUser.getAvatar());
-            userInfo.put("auth", targetUser.getAuth());
+            userInfo.put("uid", targetUser.uid());
+            userInfo.put("nickname", targetUser.nickname());
+            userInfo.put("avatar_url", targetUser.avatar());
+            userInfo.put("auth", targetUser.auth());
             result.put("user", userInfo);
             
             // 初始化 detail 对象
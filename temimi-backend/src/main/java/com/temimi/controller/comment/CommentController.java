@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.temimi.model.entity.Comment;
 import com.temimi.model.entity.CommentTree;
 import com.temimi.model.vo.ApiResult;
+import com.temimi.model.vo.CursorPageVO;
 import com.temimi.service.CommentService;
 import com.temimi.util.SecurityUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,6 +61,40 @@ public class CommentController {
         }
     }
 
+    /**
+     * 游标分页获取评论树
+     * GET /api/comment/trees?vid=123&type=1&cursor=xxx&limit=20
+     * 第一页不传 cursor，之后把上次返回的 cursor 原样带回
+     */
+    @GetMapping("/trees")
+    public ApiResult<CursorPageVO<CommentTree>> getCommentTreesByCursor(
+            @RequestParam Integer vid,
+            @RequestParam(defaultValue = "1") Integer type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") Integer limit) {
+        try {
+            return ApiResult.success(commentService.getCommentTreesByCursor(vid, type, cursor, limit));
+        } catch (Exception e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 游标分页获取根评论下的回复（按时间正序）
+     * GET /api/comment/replies?rootId=123&cursor=xxx&limit=20
+     */
+    @GetMapping("/replies")
+    public ApiResult<CursorPageVO<java.util.Map<String, Object>>> getRepliesByCursor(
+            @RequestParam Integer rootId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") Integer limit) {
+        try {
+            return ApiResult.success(commentService.getRepliesByCursor(rootId, cursor, limit));
+        } catch (Exception e) {
+            return ApiResult.error(e.getMessage());
+        }
+    }
+
     /**
      * 获取UP主点赞的评论ID列表（前端兼容接口）
      * GET /api/comment/get-up-like?uid=123
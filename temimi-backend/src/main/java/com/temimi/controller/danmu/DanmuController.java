@@ -1,26 +1,59 @@
 package com.temimi.controller.danmu;
 
+import com.temimi.cache.DanmuHistorySnapshotStore;
+import com.temimi.constant.BusinessConstants;
+import com.temimi.handler.DanmuRateLimiter;
 import com.temimi.model.entity.Danmu;
 import com.temimi.model.vo.ApiResult;
+import com.temimi.model.vo.DanmuDensityVO;
+import com.temimi.model.vo.DanmuSegmentVO;
+import com.temimi.model.vo.DanmuSyncVO;
 import com.temimi.service.DanmuService;
 import com.temimi.util.SecurityUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/danmu")
 public class DanmuController {
 
+    // Tomcat sendfile 请求属性，由连接器在请求结束后直接从文件发送
+    private static final String TOMCAT_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private DanmuService danmuService;
 
     @Autowired
     private com.temimi.handler.DanmuSessionManager danmuSessionManager;
 
+    @Autowired
+    private DanmuRateLimiter danmuRateLimiter;
+
+    @Autowired
+    private DanmuHistorySnapshotStore danmuHistorySnapshotStore;
+
     /**
      * 根据视频ID获取弹幕列表
      * GET /api/danmu/5
@@ -35,15 +68,82 @@ public class DanmuController {
         }
     }
 
+    /**
+     * 按时间分段获取弹幕，播放器只拉取即将播放的窗口
+     * GET /api/danmu/5/segment/0
+     */
+    @GetMapping("/{vid}/segment/{n}")
+    public ApiResult<DanmuSegmentVO> getDanmuSegment(@PathVariable Integer vid, @PathVariable Integer n) {
+        try {
+            List<Danmu> danmuList = danmuService.getDanmuSegment(vid, n);
+            int width = danmuService.getDanmuSegmentWidthSeconds();
+            return ApiResult.success(new DanmuSegmentVO(n, (long) n * width, ((long) n + 1) * width, danmuList));
+        } catch (Exception e) {
+            return ApiResult.error("获取弹幕分段失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取弹幕密度直方图，用于绘制进度条"高能"曲线
+     * GET /api/danmu/5/density
+     */
+    @GetMapping("/{vid}/density")
+    public ApiResult<DanmuDensityVO> getDanmuDensity(@PathVariable Integer vid) {
+        try {
+            int[] counts = danmuService.getDanmuDensity(vid);
+            return ApiResult.success(new DanmuDensityVO(danmuService.getDanmuDensityBucketSeconds(), counts));
+        } catch (Exception e) {
+            return ApiResult.error("获取弹幕密度失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 增量同步弹幕：只返回ID大于游标的弹幕，用于断线重连或中途进入
+     * GET /api/danmu/5/sync?cursor=123&limit=200
+     */
+    @GetMapping("/{vid}/sync")
+    public ApiResult<DanmuSyncVO> syncDanmu(@PathVariable Integer vid,
+                                            @RequestParam(defaultValue = "0") Integer cursor,
+                                            @RequestParam(defaultValue = "200") Integer limit) {
+        try {
+            List<Danmu> danmuList = danmuService.getDanmuSince(vid, cursor, limit);
+            Integer nextCursor = danmuList.isEmpty() ? cursor : danmuList.get(danmuList.size() - 1).getId();
+            boolean hasMore = danmuList.size() >= Math.min(limit, BusinessConstants.DANMU_SYNC_MAX_LIMIT);
+            return ApiResult.success(new DanmuSyncVO(danmuList, nextCursor, hasMore));
+        } catch (Exception e) {
+            return ApiResult.error("同步弹幕失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取视频当前在线观看人数
+     * GET /api/danmu/5/online
+     */
+    @GetMapping("/{vid}/online")
+    public ApiResult<Integer> getOnlineCount(@PathVariable Integer vid) {
+        return ApiResult.success(danmuSessionManager.getPopulation(vid));
+    }
+
     /**
      * 根据视频ID和日期获取历史弹幕
      * GET /api/danmu/history?vid=123&date=2025-09-08
+     * 历史日期直接发送磁盘上的 gzip 快照（零拷贝），只有当天的弹幕查询数据库
      */
     @GetMapping("/history")
-    public ApiResult<List<Danmu>> getDanmuHistory(@RequestParam Integer vid, @RequestParam String date) {
+    public ApiResult<List<Danmu>> getDanmuHistory(@RequestParam Integer vid, @RequestParam String date,
+                                                  HttpServletRequest request, HttpServletResponse response) {
         try {
             // 验证日期格式
-            LocalDate.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            LocalDate day = LocalDate.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            if (danmuHistorySnapshotStore.isArchivable(day)) {
+                Path snapshot = danmuHistorySnapshotStore.getOrCreate(vid, day);
+                if (snapshot == null) {
+                    // 视频不存在、早于上传日期或当天没有弹幕
+                    return ApiResult.success(Collections.emptyList());
+                }
+                sendSnapshot(snapshot, request, response);
+                return null;
+            }
             List<Danmu> danmuList = danmuService.getDanmuByVidAndDate(vid, date);
             return ApiResult.success(danmuList);
         } catch (Exception e) {
@@ -51,6 +151,40 @@ public class DanmuController {
         }
     }
 
+    /**
+     * 发送 gzip 快照：客户端支持 gzip 时原样发送，优先交给 Tomcat sendfile，否则用 FileChannel.transferTo
+     */
+    private void sendSnapshot(Path snapshot, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(snapshot))) {
+                in.transferTo(response.getOutputStream());
+            }
+            return;
+        }
+
+        long size = Files.size(snapshot);
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentLengthLong(size);
+        if (Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORT))) {
+            request.setAttribute(TOMCAT_SENDFILE_FILENAME, snapshot.toAbsolutePath().toString());
+            request.setAttribute(TOMCAT_SENDFILE_START, 0L);
+            request.setAttribute(TOMCAT_SENDFILE_END, size);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
     /**
      * 发送弹幕
      * POST /api/danmu
@@ -62,6 +196,14 @@ public class DanmuController {
             // 从JWT token中获取当前用户ID
             Integer uid = SecurityUtil.getCurrentUserIdRequired();
 
+            // 频率限制：单用户单房间 + 房间总量
+            if (danmu.getVid() != null) {
+                DanmuRateLimiter.Decision decision = danmuRateLimiter.tryAcquire(uid, danmu.getVid());
+                if (decision != DanmuRateLimiter.Decision.ALLOWED) {
+                    return ApiResult.error(429, DanmuRateLimiter.rejectMessage(decision));
+                }
+            }
+
             boolean success = danmuService.sendDanmu(danmu, uid);
             if (success) {
                 return ApiResult.success("发送成功");
@@ -144,17 +286,9 @@ public class DanmuController {
      */
     private void broadcastDanmuDelete(Integer vid, Integer danmuId) {
         try {
-            List<org.springframework.web.socket.WebSocketSession> sessions = 
-                danmuSessionManager.getSessionsByVid(vid);
-            
             // 构造删除消息：{"type": "delete", "danmuId": 123}
             String deleteMessage = String.format("{\"type\":\"delete\",\"danmuId\":%d}", danmuId);
-            
-            for (org.springframework.web.socket.WebSocketSession session : sessions) {
-                if (session.isOpen()) {
-                    session.sendMessage(new org.springframework.web.socket.TextMessage(deleteMessage));
-                }
-            }
+            danmuSessionManager.broadcast(vid, new org.springframework.web.socket.TextMessage(deleteMessage));
         } catch (Exception e) {
             // 广播失败不影响删除操作
             System.err.println("广播弹幕删除事件失败: " + e.getMessage());
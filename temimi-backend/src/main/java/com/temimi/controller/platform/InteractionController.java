@@ -2,15 +2,16 @@ package com.temimi.controller.platform;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.temimi.cache.UserProfileCache;
+import com.temimi.constant.BusinessConstants;
+import com.temimi.model.dto.UserProfile;
 import com.temimi.model.entity.Comment;
 import com.temimi.model.entity.Danmu;
 import com.temimi.model.entity.Video;
-import com.temimi.model.entity.User;
 import com.temimi.model.vo.ApiResult;
 import com.temimi.service.CommentService;
 import com.temimi.service.DanmuService;
 import com.temimi.service.VideoService;
-import com.temimi.service.UserService;
 import com.temimi.util.SecurityUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -36,7 +37,7 @@ public class InteractionController {
     private VideoService videoService;
 
     @Autowired
-    private UserService userService;
+    private UserProfileCache userProfileCache;
 
     /**
      * 获取用户视频的所有评论（分页）
@@ -93,14 +94,18 @@ public class InteractionController {
                 item.put("createTime", comment.getCreateTime());
                 item.put("rootId", comment.getRootId());
                 item.put("parentId", comment.getParentId());
+                // 根评论直接返回维护好的回复数
+                if (Objects.equals(comment.getRootId(), BusinessConstants.COMMENT_ROOT_ID)) {
+                    item.put("replyCount", comment.getReplyCount());
+                }
                 
                 // 获取评论用户信息
-                User commentUser = userService.getById(comment.getUid());
+                UserProfile commentUser = userProfileCache.get(comment.getUid());
                 if (commentUser != null) {
                     Map<String, Object> userInfo = new HashMap<>();
-                    userInfo.put("uid", commentUser.getUid());
-                    userInfo.put("nickname", commentUser.getNickname());
-                    userInfo.put("avatar", commentUser.getAvatar());
+                    userInfo.put("uid", commentUser.uid());
+                    userInfo.put("nickname", commentUser.nickname());
+                    userInfo.put("avatar", commentUser.avatar());
                     item.put("user", userInfo);
                 }
                 
@@ -185,12 +190,12 @@ public class InteractionController {
                 item.put("state", danmu.getState());
                 
                 // 获取弹幕用户信息
-                User danmuUser = userService.getById(danmu.getUid());
+                UserProfile danmuUser = userProfileCache.get(danmu.getUid());
                 if (danmuUser != null) {
                     Map<String, Object> userInfo = new HashMap<>();
-                    userInfo.put("uid", danmuUser.getUid());
-                    userInfo.put("nickname", danmuUser.getNickname());
-                    userInfo.put("avatar", danmuUser.getAvatar());
+                    userInfo.put("uid", danmuUser.uid());
+                    userInfo.put("nickname", danmuUser.nickname());
+                    userInfo.put("avatar", danmuUser.avatar());
                     item.put("user", userInfo);
                 }
                 
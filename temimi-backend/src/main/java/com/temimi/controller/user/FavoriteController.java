@@ -141,7 +141,7 @@ public class FavoriteController {
     }
 
     @Autowired
-    private com.temimi.service.UserService userService;
+    private com.temimi.cache.UserProfileCache userProfileCache;
     
     @Autowired
     private com.temimi.mapper.VideoStatsMapper videoStatsMapper;
@@ -159,7 +159,9 @@ public class FavoriteController {
             Integer uid = SecurityUtil.getCurrentUserIdRequired();
             Page<Video> videoPage = favoriteService.getVideosInFavorite(fid, uid, pageNum, pageSize);
             
-            // 转换为带作者信息的DTO
+            // 转换为带作者信息的DTO（整页作者信息一次获取）
+            Map<Integer, com.temimi.model.dto.UserProfile> authors = userProfileCache.getAll(
+                    videoPage.getRecords().stream().map(Video::getUid).toList());
             java.util.List<Map<String, Object>> records = videoPage.getRecords().stream().map(video -> {
                 Map<String, Object> item = new java.util.HashMap<>();
                 item.put("vid", video.getVid());
@@ -168,9 +170,9 @@ public class FavoriteController {
                 item.put("duration", video.getDuration());
                 
                 // 获取作者信息
-                com.temimi.model.entity.User author = userService.getById(video.getUid());
-                item.put("authorName", author != null ? author.getNickname() : "未知用户");
-                item.put("authorAvatar", author != null ? author.getAvatar() : null);
+                com.temimi.model.dto.UserProfile author = authors.get(video.getUid());
+                item.put("authorName", author != null ? author.nickname() : "未知用户");
+                item.put("authorAvatar", author != null ? author.avatar() : null);
                 
                 return item;
             }).collect(java.util.stream.Collectors.toList());
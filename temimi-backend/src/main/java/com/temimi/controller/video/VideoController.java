@@ -389,21 +389,19 @@ public class VideoController {
      * 
      * ✅ 优化：添加防重复计数逻辑
      * - 同一用户在30分钟内多次观看同一视频，只计数一次
-     * - 使用UserVideo表记录最后播放时间
+     * - 去重窗口在内存中判断，观看历史异步批量写入UserVideo表
      */
     @PostMapping("/play/user")
     public ApiResult<String> recordPlay(@RequestParam Integer vid) {
         try {
             Integer uid = com.temimi.util.SecurityUtil.getCurrentUserIdRequired();
             
-            // 检查是否应该增加播放量（防止短时间内重复计数）
-            boolean shouldIncrement = userVideoService.shouldIncrementPlayCount(uid, vid);
+            // 检查是否应该增加播放量（防止短时间内重复计数），计入时同时记录观看历史
+            boolean shouldIncrement = userVideoService.tryCountPlay(uid, vid);
             
             if (shouldIncrement) {
                 // 增加播放量
                 videoService.incrementPlayCount(vid);
-                // 更新用户的播放记录时间戳
-                userVideoService.updatePlayTime(uid, vid);
                 return ApiResult.success("播放记录成功");
             } else {
                 return ApiResult.success("播放记录已存在（30分钟内）");
@@ -545,18 +543,7 @@ public class VideoController {
             }
             
             // 删除用户的播放记录（将play设为0，清除play_time）
-            for (Integer vid : vids) {
-                com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<com.temimi.model.entity.UserVideo> queryWrapper = 
-                    new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
-                queryWrapper.eq("uid", uid).eq("vid", vid);
-                
-                com.temimi.model.entity.UserVideo userVideo = userVideoService.getOne(queryWrapper);
-                if (userVideo != null) {
-                    userVideo.setPlay(0);
-                    userVideo.setPlayTime(null);
-                    userVideoService.updateById(userVideo);
-                }
-            }
+            userVideoService.deletePlayHistory(uid, vids);
             
             return ApiResult.success("删除成功");
         } catch (Exception e) {
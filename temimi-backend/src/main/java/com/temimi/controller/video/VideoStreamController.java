@@ -0,0 +1,319 @@
+package com.temimi.controller.video;
+
+import com.temimi.util.ByteRange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 视频文件流式发送，替代 /videos/** 的静态资源映射
+ *
+ * - 支持单区间、多区间（multipart/byteranges）Range 请求，播放器拖动进度条只读取需要的部分
+ * - 支持 ETag / Last-Modified 及 If-None-Match、If-Modified-Since、If-Match、If-Unmodified-Since、If-Range
+ * - 完整内容和单区间优先交给 Tomcat sendfile，由连接器直接从文件发送；
+ *   不支持时用 FileChannel.transferTo 按 chunk-size 分块发送，不经过堆内缓冲
+ * - 统计发送字节数、正在发送的流数和中途断开的流数
+ */
+@RestController
+public class VideoStreamController {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStreamController.class);
+
+    // Tomcat sendfile 请求属性，由连接器在请求结束后直接从文件发送
+    private static final String TOMCAT_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String VIDEO_DIR = "videos";
+
+    @Value("${file.upload.path:D:/shiyou_upload/}")
+    private String uploadBasePath;
+
+    @Value("${video.stream.chunk-size:1048576}")
+    private long chunkSize;
+
+    @Value("${video.stream.sendfile-enabled:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${video.stream.max-ranges:16}")
+    private int maxRanges;
+
+    @Value("${video.stream.cache-max-age:86400}")
+    private long cacheMaxAge;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    private Counter sendfileBytes;
+    private Counter transferBytes;
+    private Counter abortedCounter;
+
+    @PostConstruct
+    public void init() {
+        sendfileBytes = Counter.builder("video.stream.bytes")
+                .tag("mode", "sendfile")
+                .description("视频流发送的字节数")
+                .register(meterRegistry);
+        transferBytes = Counter.builder("video.stream.bytes")
+                .tag("mode", "transfer")
+                .description("视频流发送的字节数")
+                .register(meterRegistry);
+        abortedCounter = Counter.builder("video.stream.aborted")
+                .description("客户端中途断开的视频流数")
+                .register(meterRegistry);
+        Gauge.builder("video.stream.active", activeStreams, AtomicInteger::get)
+                .description("正在由应用线程发送的视频流数（sendfile 发送的不计入）")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 播放视频文件
+     * GET /videos/xxx.mp4
+     * HEAD /videos/xxx.mp4
+     */
+    @RequestMapping(value = "/videos/{fileName:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void stream(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path baseDir = Paths.get(uploadBasePath, VIDEO_DIR).toAbsolutePath().normalize();
+        Path file = baseDir.resolve(fileName).normalize();
+        if (!file.startsWith(baseDir) || !Files.isRegularFile(file)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long total = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(total) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + cacheMaxAge);
+
+        // 条件请求：先检查前置条件，再检查缓存是否仍然有效
+        if (!matchesIfMatch(request, etag) || isModifiedSince(request, HttpHeaders.IF_UNMODIFIED_SINCE, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+            return;
+        }
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null ? matchesAny(ifNoneMatch, etag, false)
+                : isNotModifiedSince(request, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String contentType = MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        List<ByteRange> ranges = isRangeApplicable(request, etag, lastModified)
+                ? ByteRange.parse(request.getHeader(HttpHeaders.RANGE), total, maxRanges)
+                : null;
+        boolean head = RequestMethod.HEAD.name().equals(request.getMethod());
+
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(total);
+            if (!head) {
+                send(file, new ByteRange(0, total - 1), total, request, response);
+            }
+        } else if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + total);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(total));
+            response.setContentLengthLong(range.length());
+            if (!head) {
+                send(file, range, total, request, response);
+            }
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            sendMultipart(file, ranges, total, contentType, head, response);
+        }
+    }
+
+    /**
+     * 发送单个区间：优先交给 Tomcat sendfile，否则按块 transferTo
+     */
+    private void send(Path file, ByteRange range, long total, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (total == 0) {
+            return;
+        }
+        if (sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORT))) {
+            request.setAttribute(TOMCAT_SENDFILE_FILENAME, file.toString());
+            request.setAttribute(TOMCAT_SENDFILE_START, range.start());
+            request.setAttribute(TOMCAT_SENDFILE_END, range.end() + 1);
+            sendfileBytes.increment(range.length());
+            return;
+        }
+        activeStreams.incrementAndGet();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, range, Channels.newChannel(response.getOutputStream()));
+        } catch (IOException e) {
+            handleAbort(file, e);
+        } finally {
+            activeStreams.decrementAndGet();
+        }
+    }
+
+    /**
+     * 多区间响应：multipart/byteranges，每个区间一个分段
+     */
+    private void sendMultipart(Path file, List<ByteRange> ranges, long total, String contentType, boolean head,
+                               HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(total) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        activeStreams.incrementAndGet();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders[i]);
+                transfer(channel, ranges.get(i), target);
+            }
+            out.write(closing);
+        } catch (IOException e) {
+            handleAbort(file, e);
+        } finally {
+            activeStreams.decrementAndGet();
+        }
+    }
+
+    private void transfer(FileChannel channel, ByteRange range, WritableByteChannel target) throws IOException {
+        long position = range.start();
+        long end = range.end() + 1;
+        while (position < end) {
+            long sent = channel.transferTo(position, Math.min(chunkSize, end - position), target);
+            if (sent <= 0) {
+                // 文件在发送过程中被截断
+                throw new IOException("视频文件长度发生变化");
+            }
+            position += sent;
+            transferBytes.increment(sent);
+        }
+    }
+
+    /**
+     * 播放器拖动进度条时会主动断开旧连接，属于正常情况
+     */
+    private void handleAbort(Path file, IOException e) {
+        abortedCounter.increment();
+        logger.debug("视频流发送中断, file={}, 原因: {}", file.getFileName(), e.getMessage());
+    }
+
+    private static boolean matchesIfMatch(HttpServletRequest request, String etag) {
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+        return ifMatch == null || matchesAny(ifMatch, etag, true);
+    }
+
+    /**
+     * If-Range 为实体标签时强比较，为日期时要求与 Last-Modified 完全一致，不满足则忽略 Range 返回完整内容
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = parseDate(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    private static boolean isNotModifiedSince(HttpServletRequest request, long lastModified) {
+        long since = parseDate(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    private static boolean isModifiedSince(HttpServletRequest request, String header, long lastModified) {
+        long since = parseDate(request, header);
+        return since >= 0 && lastModified / 1000 > since / 1000;
+    }
+
+    private static long parseDate(HttpServletRequest request, String header) {
+        try {
+            return request.getDateHeader(header);
+        } catch (IllegalArgumentException e) {
+            // 格式错误的日期按未携带处理
+            return -1;
+        }
+    }
+
+    /**
+     * 比较实体标签列表，strong 为 true 时弱标签不匹配
+     */
+    private static boolean matchesAny(String header, String etag, boolean strong) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                if (strong) {
+                    continue;
+                }
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
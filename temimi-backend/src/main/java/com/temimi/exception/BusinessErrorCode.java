@@ -32,6 +32,7 @@ public enum BusinessErrorCode {
     COMMENT_NOT_FOUND(4001, "评论不存在"),
     COMMENT_DELETED(4002, "评论已被删除"),
     COMMENT_PARENT_NOT_FOUND(4003, "被回复的评论不存在"),
+    COMMENT_CURSOR_INVALID(4004, "评论分页游标无效"),
     
     // === 收藏相关错误 (5xxx) ===
     FAVORITE_NOT_FOUND(5001, "收藏夹不存在"),
@@ -35,7 +35,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     private com.temimi.service.ChatService chatService;
 
     @Autowired
-    private com.temimi.service.UserService userService;
+    private com.temimi.cache.UserProfileCache userProfileCache;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -189,8 +189,8 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         com.temimi.model.entity.Chat chat = chatService.createOrGetChat(fromUid, toUid);
         
         // 获取发送者和接收者用户信息
-        com.temimi.model.entity.User fromUser = userService.getById(fromUid);
-        com.temimi.model.entity.User toUser = userService.getById(toUid);
+        com.temimi.model.dto.UserProfile fromUser = userProfileCache.get(fromUid);
+        com.temimi.model.dto.UserProfile toUser = userProfileCache.get(toUid);
         
         // 构造 detail 对象（发送者和接收者共用）
         Map<String, Object> detail = new HashMap<>();
@@ -216,10 +216,10 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         
         if (targetSession != null && targetSession.isOpen()) {
             Map<String, Object> fromUserMap = new HashMap<>();
-            fromUserMap.put("uid", fromUser.getUid());
-            fromUserMap.put("nickname", fromUser.getNickname());
-            fromUserMap.put("avatar_url", fromUser.getAvatar());
-            fromUserMap.put("auth", fromUser.getAuth());
+            fromUserMap.put("uid", fromUser.uid());
+            fromUserMap.put("nickname", fromUser.nickname());
+            fromUserMap.put("avatar_url", fromUser.avatar());
+            fromUserMap.put("auth", fromUser.auth());
             
             Map<String, Object> toWhisperData = new HashMap<>();
             toWhisperData.put("type", "接收");
@@ -243,10 +243,10 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         
         // 4. 给发送者发送确认（user 是接收者信息）
         Map<String, Object> toUserMap = new HashMap<>();
-        toUserMap.put("uid", toUser.getUid());
-        toUserMap.put("nickname", toUser.getNickname());
-        toUserMap.put("avatar_url", toUser.getAvatar());
-        toUserMap.put("auth", toUser.getAuth());
+        toUserMap.put("uid", toUser.uid());
+        toUserMap.put("nickname", toUser.nickname());
+        toUserMap.put("avatar_url", toUser.avatar());
+        toUserMap.put("auth", toUser.auth());
         
         Map<String, Object> fromWhisperData = new HashMap<>();
         fromWhisperData.put("type", "接收");
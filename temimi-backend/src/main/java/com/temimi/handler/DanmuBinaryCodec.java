@@ -0,0 +1,157 @@
+package com.temimi.handler;
+
+import com.temimi.model.entity.Danmu;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 弹幕二进制帧编解码（子协议 {@value #SUBPROTOCOL}）
+ *
+ * 帧格式（无符号 varint 为 LEB128 编码）：
+ * <pre>
+ * byte    类型，固定为 {@value #TYPE_DANMU}
+ * varint  弹幕ID（异步写入模式下尚未分配时为 0）
+ * varint  用户ID
+ * varint  时间点（毫秒）
+ * byte    模式 1滚动 2顶部 3底部
+ * byte    字体大小
+ * 3 bytes 颜色 RGB
+ * varint  内容长度（字节）
+ * bytes   内容 UTF-8
+ * </pre>
+ * 视频ID由房间隐含，state、createDate 等对观众无用的字段不再下发。
+ * 编码使用线程本地的复用缓冲区，每条弹幕只产生一次最终字节数组，由房间内所有接收者共享。
+ */
+public final class DanmuBinaryCodec {
+
+    /**
+     * WebSocket 子协议名，客户端通过 Sec-WebSocket-Protocol 协商
+     */
+    public static final String SUBPROTOCOL = "danmu.bin.v1";
+
+    public static final byte TYPE_DANMU = 1;
+
+    private static final int DEFAULT_COLOR = 0xFFFFFF;
+
+    // 固定字段最多 1 + 5 + 5 + 10 + 1 + 1 + 3 + 5 字节，内容最长 100 个字符（UTF-8 最多 4 字节/字符）
+    private static final int SCRATCH_SIZE = 1024;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private DanmuBinaryCodec() {
+    }
+
+    /**
+     * 编码为二进制帧
+     */
+    public static byte[] encode(Danmu danmu) {
+        Scratch scratch = SCRATCH.get();
+        ByteBuffer buffer = scratch.buffer;
+        buffer.clear();
+
+        buffer.put(TYPE_DANMU);
+        writeVarint(buffer, danmu.getId() == null ? 0 : danmu.getId());
+        writeVarint(buffer, danmu.getUid() == null ? 0 : danmu.getUid());
+        writeVarint(buffer, danmu.getTimePoint() == null ? 0 : Math.round(danmu.getTimePoint() * 1000));
+        buffer.put((byte) (danmu.getMode() == null ? 1 : danmu.getMode()));
+        buffer.put((byte) (danmu.getFontsize() == null ? 25 : danmu.getFontsize()));
+        int color = parseColor(danmu.getColor());
+        buffer.put((byte) (color >>> 16));
+        buffer.put((byte) (color >>> 8));
+        buffer.put((byte) color);
+
+        String content = danmu.getContent() == null ? "" : danmu.getContent();
+        // 先编码内容到第二块缓冲区以得到字节长度，再写长度前缀
+        ByteBuffer contentBuffer = scratch.content;
+        contentBuffer.clear();
+        CharsetEncoder encoder = scratch.encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(content), contentBuffer, true);
+        if (result.isOverflow()) {
+            throw new IllegalArgumentException("弹幕内容过长，无法编码");
+        }
+        encoder.flush(contentBuffer);
+        contentBuffer.flip();
+        writeVarint(buffer, contentBuffer.remaining());
+        buffer.put(contentBuffer);
+
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * 解码二进制帧（视频ID需由调用方补充）
+     */
+    public static Danmu decode(byte[] frame) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        byte type = buffer.get();
+        if (type != TYPE_DANMU) {
+            throw new IllegalArgumentException("未知的弹幕帧类型: " + type);
+        }
+        Danmu danmu = new Danmu();
+        int id = (int) readVarint(buffer);
+        danmu.setId(id == 0 ? null : id);
+        danmu.setUid((int) readVarint(buffer));
+        danmu.setTimePoint(readVarint(buffer) / 1000.0);
+        danmu.setMode((int) buffer.get());
+        danmu.setFontsize(buffer.get() & 0xFF);
+        int color = ((buffer.get() & 0xFF) << 16) | ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+        danmu.setColor(String.format("#%06X", color));
+        int length = (int) readVarint(buffer);
+        danmu.setContent(new String(frame, buffer.position(), length, StandardCharsets.UTF_8));
+        return danmu;
+    }
+
+    private static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * 解析 #RRGGBB 颜色，格式不合法时返回白色
+     */
+    private static int parseColor(String color) {
+        if (color == null || color.length() != 7 || color.charAt(0) != '#') {
+            return DEFAULT_COLOR;
+        }
+        int value = 0;
+        for (int i = 1; i < 7; i++) {
+            int digit = Character.digit(color.charAt(i), 16);
+            if (digit < 0) {
+                return DEFAULT_COLOR;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * 线程本地的复用缓冲区
+     */
+    private static final class Scratch {
+        private final ByteBuffer buffer = ByteBuffer.allocate(SCRATCH_SIZE);
+        private final ByteBuffer content = ByteBuffer.allocate(SCRATCH_SIZE - 64);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
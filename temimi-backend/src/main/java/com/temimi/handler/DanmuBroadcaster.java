@@ -0,0 +1,295 @@
+package com.temimi.handler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 弹幕广播引擎
+ *
+ * - 每个连接拥有一个有界的待发送队列，广播时只入队，不在调用线程上发送
+ * - 同一帧消息对象由所有接收者共享，只序列化一次
+ * - 独立的发送线程池负责排空队列，同一连接同一时刻只有一个线程在发送
+ * - 队列溢出时按配置丢弃最旧消息或断开慢连接，慢连接不会拖住整个房间
+ */
+@Component
+public class DanmuBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(DanmuBroadcaster.class);
+
+    /**
+     * 单次排空的最大消息数，超过后让出线程，避免单个连接长期占用发送线程
+     */
+    private static final int MAX_DRAIN_PER_RUN = 64;
+
+    /**
+     * 队列溢出策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 丢弃队列中最旧的消息
+         */
+        DROP_OLDEST,
+
+        /**
+         * 断开发送过慢的连接
+         */
+        DISCONNECT
+    }
+
+    @Value("${danmu.broadcast.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${danmu.broadcast.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${danmu.broadcast.sender-threads:4}")
+    private int senderThreads;
+
+    // sessionId -> 待发送队列
+    private final Map<String, Outbound> outbounds = new ConcurrentHashMap<>();
+
+    private ExecutorService senderPool;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        senderPool = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "danmu-sender-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("弹幕广播引擎启动，发送线程数: {}, 队列上限: {}, 溢出策略: {}",
+                senderThreads, queueCapacity, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        senderPool.shutdown();
+        if (!senderPool.awaitTermination(5, TimeUnit.SECONDS)) {
+            senderPool.shutdownNow();
+        }
+        outbounds.clear();
+    }
+
+    /**
+     * 为新连接创建待发送队列
+     */
+    public void register(WebSocketSession session) {
+        outbounds.computeIfAbsent(session.getId(), k -> new Outbound(session));
+    }
+
+    /**
+     * 连接关闭时释放待发送队列
+     */
+    public void unregister(WebSocketSession session) {
+        Outbound outbound = outbounds.remove(session.getId());
+        if (outbound != null) {
+            outbound.queue.clear();
+        }
+    }
+
+    /**
+     * 向一组连接广播同一帧消息
+     *
+     * @param sessions 接收者
+     * @param frame 已序列化好的消息帧，所有接收者共享
+     * @return 成功入队的连接数
+     */
+    public int broadcast(Collection<WebSocketSession> sessions, WebSocketMessage<?> frame) {
+        int enqueued = 0;
+        for (WebSocketSession session : sessions) {
+            if (send(session, frame)) {
+                enqueued++;
+            }
+        }
+        return enqueued;
+    }
+
+    /**
+     * 向一组连接广播弹幕，按各连接协商的子协议选择文本帧或二进制帧
+     *
+     * @return 成功入队的连接数
+     */
+    public int broadcast(Collection<WebSocketSession> sessions, DanmuFrame frame) {
+        int enqueued = 0;
+        for (WebSocketSession session : sessions) {
+            if (send(session, frame)) {
+                enqueued++;
+            }
+        }
+        return enqueued;
+    }
+
+    /**
+     * 向单个连接发送弹幕，按协商的子协议选择帧（异步入队）
+     *
+     * @return 是否成功入队
+     */
+    public boolean send(WebSocketSession session, DanmuFrame frame) {
+        Outbound outbound = outboundOf(session);
+        if (outbound == null) {
+            return false;
+        }
+        return enqueue(outbound, frame.select(outbound.binary));
+    }
+
+    /**
+     * 向单个连接发送消息（异步入队）
+     *
+     * @return 是否成功入队
+     */
+    public boolean send(WebSocketSession session, WebSocketMessage<?> frame) {
+        Outbound outbound = outboundOf(session);
+        if (outbound == null) {
+            return false;
+        }
+        return enqueue(outbound, frame);
+    }
+
+    /**
+     * 只向已注册的连接发送，未注册或已断开的连接返回 null，避免为其创建无人释放的队列
+     */
+    private Outbound outboundOf(WebSocketSession session) {
+        if (!session.isOpen()) {
+            return null;
+        }
+        return outbounds.get(session.getId());
+    }
+
+    private boolean enqueue(Outbound outbound, WebSocketMessage<?> frame) {
+        boolean offered = outbound.offer(frame);
+        // 入队成功或需要断开连接时都交给发送线程处理
+        if ((offered || outbound.closeRequested()) && outbound.scheduled.compareAndSet(false, true)) {
+            senderPool.execute(outbound::drain);
+        }
+        return offered;
+    }
+
+    /**
+     * 当前所有连接待发送消息总数
+     */
+    public int getPendingCount() {
+        int total = 0;
+        for (Outbound outbound : outbounds.values()) {
+            total += outbound.size.get();
+        }
+        return total;
+    }
+
+    /**
+     * 单个连接的待发送队列
+     */
+    private final class Outbound {
+
+        private final WebSocketSession session;
+        // 是否协商了二进制弹幕子协议
+        private final boolean binary;
+        private final Queue<WebSocketMessage<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // 溢出时请求断开的状态码，由发送线程执行关闭，避免与正在进行的发送并发写连接
+        private volatile CloseStatus pendingClose;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Outbound(WebSocketSession session) {
+            this.session = session;
+            this.binary = DanmuBinaryCodec.SUBPROTOCOL.equals(session.getAcceptedProtocol());
+        }
+
+        private boolean closeRequested() {
+            return pendingClose != null && !closed.get();
+        }
+
+        private boolean offer(WebSocketMessage<?> frame) {
+            if (pendingClose != null) {
+                return false;
+            }
+            if (size.incrementAndGet() > queueCapacity) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    size.decrementAndGet();
+                    if (pendingClose == null) {
+                        pendingClose = CloseStatus.SESSION_NOT_RELIABLE;
+                        outbounds.remove(session.getId());
+                        logger.warn("连接 {} 发送过慢，待发送队列已满，断开连接", session.getId());
+                    }
+                    return false;
+                }
+                if (queue.poll() != null) {
+                    size.decrementAndGet();
+                }
+            }
+            queue.offer(frame);
+            return true;
+        }
+
+        private void drain() {
+            try {
+                if (pendingClose != null) {
+                    closeQuietly(pendingClose);
+                    return;
+                }
+                int sent = 0;
+                WebSocketMessage<?> frame;
+                while (sent < MAX_DRAIN_PER_RUN && (frame = queue.poll()) != null) {
+                    size.decrementAndGet();
+                    if (!session.isOpen()) {
+                        outbounds.remove(session.getId());
+                        queue.clear();
+                        size.set(0);
+                        break;
+                    }
+                    try {
+                        session.sendMessage(frame);
+                    } catch (Exception e) {
+                        logger.error("弹幕推送失败, sessionId={}, 原因: {}", session.getId(), e.getMessage());
+                        closeQuietly(CloseStatus.SERVER_ERROR);
+                        break;
+                    }
+                    sent++;
+                }
+            } finally {
+                scheduled.set(false);
+                // 排空期间可能有新消息入队，需要重新调度
+                if ((!queue.isEmpty() || closeRequested()) && session.isOpen()
+                        && scheduled.compareAndSet(false, true)) {
+                    senderPool.execute(this::drain);
+                }
+            }
+        }
+
+        /**
+         * 只在发送线程上调用
+         */
+        private void closeQuietly(CloseStatus status) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            outbounds.remove(session.getId());
+            queue.clear();
+            size.set(0);
+            try {
+                session.close(status);
+            } catch (Exception e) {
+                logger.debug("关闭连接失败, sessionId={}, 原因: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+}
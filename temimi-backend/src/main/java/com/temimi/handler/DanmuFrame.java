@@ -0,0 +1,18 @@
+package com.temimi.handler;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * 同一条弹幕的两种编码帧，广播时按连接协商的子协议选择
+ *
+ * @param text JSON 文本帧
+ * @param binary 二进制帧（{@link DanmuBinaryCodec}），为 null 时所有连接都使用文本帧
+ */
+public record DanmuFrame(TextMessage text, BinaryMessage binary) {
+
+    public WebSocketMessage<?> select(boolean binaryClient) {
+        return binaryClient && binary != null ? binary : text;
+    }
+}
@@ -0,0 +1,244 @@
+package com.temimi.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 弹幕发送频率限制
+ *
+ * - 每个 (uid, vid) 一个令牌桶，限制单个用户在单个房间的发送速率
+ * - 每个房间一个令牌桶，作为整个房间的总上限
+ * - 令牌桶以 GCRA 形式实现：桶状态只是一个"理论到达时间"，通过 CAS 更新，无锁
+ * - 闲置的桶（已回满）由时间轮定期回收，不需要逐个扫描
+ *
+ * 先检查用户桶再检查房间桶，被拒绝的刷屏请求不会消耗房间额度；
+ * 房间桶拒绝时归还用户令牌，正常用户不会因房间限流而被额外扣减。
+ */
+@Component
+public class DanmuRateLimiter {
+
+    /**
+     * 限流结果
+     */
+    public enum Decision {
+        ALLOWED,
+        USER_LIMITED,
+        ROOM_LIMITED
+    }
+
+    private static final int WHEEL_SLOTS = 64;
+
+    @Value("${danmu.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${danmu.rate-limit.user-burst:5}")
+    private int userBurst;
+
+    @Value("${danmu.rate-limit.user-per-second:1.0}")
+    private double userPerSecond;
+
+    @Value("${danmu.rate-limit.room-burst:500}")
+    private int roomBurst;
+
+    @Value("${danmu.rate-limit.room-per-second:200.0}")
+    private double roomPerSecond;
+
+    @Value("${danmu.rate-limit.tick-ms:1000}")
+    private long tickMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BucketTable<Long> userBuckets;
+    private BucketTable<Integer> roomBuckets;
+
+    private Counter userRejected;
+    private Counter roomRejected;
+
+    @PostConstruct
+    public void init() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        userBuckets = new BucketTable<>(userPerSecond, userBurst, tickNanos);
+        roomBuckets = new BucketTable<>(roomPerSecond, roomBurst, tickNanos);
+
+        userRejected = Counter.builder("danmu.rate_limit.rejected")
+                .tag("scope", "user")
+                .description("因发送过快被拒绝的弹幕数")
+                .register(meterRegistry);
+        roomRejected = Counter.builder("danmu.rate_limit.rejected")
+                .tag("scope", "room")
+                .description("因发送过快被拒绝的弹幕数")
+                .register(meterRegistry);
+        Gauge.builder("danmu.rate_limit.buckets", this, DanmuRateLimiter::getTrackedBucketCount)
+                .description("当前跟踪的令牌桶数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试为一次弹幕发送获取令牌
+     */
+    public Decision tryAcquire(Integer uid, Integer vid) {
+        if (!enabled) {
+            return Decision.ALLOWED;
+        }
+        long now = System.nanoTime();
+        Long userKey = ((long) uid << 32) | (vid & 0xFFFFFFFFL);
+        Bucket userBucket = userBuckets.bucket(userKey, now);
+        if (!userBuckets.tryAcquire(userBucket, now)) {
+            userRejected.increment();
+            return Decision.USER_LIMITED;
+        }
+        Bucket roomBucket = roomBuckets.bucket(vid, now);
+        if (!roomBuckets.tryAcquire(roomBucket, now)) {
+            userBuckets.refund(userBucket);
+            roomRejected.increment();
+            return Decision.ROOM_LIMITED;
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * 被拒绝时返回给客户端的提示
+     */
+    public static String rejectMessage(Decision decision) {
+        return decision == Decision.ROOM_LIMITED ? "当前房间弹幕过多，请稍后再试" : "发送弹幕过于频繁，请稍后再试";
+    }
+
+    /**
+     * 推进时间轮，回收已回满的令牌桶
+     */
+    @Scheduled(fixedDelayString = "${danmu.rate-limit.tick-ms:1000}")
+    public void advance() {
+        long now = System.nanoTime();
+        userBuckets.advance(now);
+        roomBuckets.advance(now);
+    }
+
+    /**
+     * 当前跟踪的令牌桶数量（用户桶 + 房间桶）
+     */
+    public int getTrackedBucketCount() {
+        return userBuckets.size() + roomBuckets.size();
+    }
+
+    /**
+     * 令牌桶，值为下一个令牌的理论到达时间（纳秒）
+     */
+    private static final class Bucket extends AtomicLong {
+
+        private Bucket(long now) {
+            super(now);
+        }
+    }
+
+    /**
+     * 一组同规格的令牌桶及其回收时间轮
+     */
+    private static final class BucketTable<K> {
+
+        // 每个令牌的间隔
+        private final long intervalNanos;
+        // 允许提前消耗的时长，即 (突发容量 - 1) 个间隔
+        private final long toleranceNanos;
+        private final long tickNanos;
+
+        private final Map<K, Bucket> buckets = new ConcurrentHashMap<>();
+
+        // 时间轮：每个槽存放预计在该刻度回满的 key，到期时检查，未回满的重新入轮
+        @SuppressWarnings("unchecked")
+        private final Queue<K>[] wheel = new Queue[WHEEL_SLOTS];
+        private volatile long currentTick;
+
+        private BucketTable(double perSecond, int burst, long tickNanos) {
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+            this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+            this.tickNanos = tickNanos;
+            for (int i = 0; i < WHEEL_SLOTS; i++) {
+                wheel[i] = new ConcurrentLinkedQueue<>();
+            }
+            this.currentTick = Math.floorDiv(System.nanoTime(), tickNanos);
+        }
+
+        private Bucket bucket(K key, long now) {
+            Bucket bucket = buckets.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            Bucket created = new Bucket(now);
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket != null) {
+                return bucket;
+            }
+            schedule(key, now + toleranceNanos + intervalNanos);
+            return created;
+        }
+
+        private boolean tryAcquire(Bucket bucket, long now) {
+            while (true) {
+                long tat = bucket.get();
+                long base = Math.max(tat, now);
+                if (base - now > toleranceNanos) {
+                    return false;
+                }
+                if (bucket.compareAndSet(tat, base + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        private void refund(Bucket bucket) {
+            bucket.addAndGet(-intervalNanos);
+        }
+
+        private void schedule(K key, long expireNanos) {
+            long tick = Math.max(Math.floorDiv(expireNanos, tickNanos) + 1, currentTick + 1);
+            wheel[Math.floorMod(tick, WHEEL_SLOTS)].offer(key);
+        }
+
+        /**
+         * 处理从上次推进到当前刻度之间的所有槽（最多转一圈）
+         */
+        private void advance(long now) {
+            long targetTick = Math.floorDiv(now, tickNanos);
+            long from = Math.max(currentTick + 1, targetTick - WHEEL_SLOTS + 1);
+            currentTick = targetTick;
+            for (long tick = from; tick <= targetTick; tick++) {
+                Queue<K> slot = wheel[Math.floorMod(tick, WHEEL_SLOTS)];
+                for (int pending = slot.size(); pending > 0; pending--) {
+                    K key = slot.poll();
+                    if (key == null) {
+                        break;
+                    }
+                    Bucket bucket = buckets.get(key);
+                    if (bucket == null) {
+                        continue;
+                    }
+                    long tat = bucket.get();
+                    if (tat <= now) {
+                        // 桶已回满，移除后再次访问会得到同样的满桶，不影响限流结果
+                        buckets.remove(key, bucket);
+                    } else {
+                        schedule(key, tat);
+                    }
+                }
+            }
+        }
+
+        private int size() {
+            return buckets.size();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.temimi.handler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 弹幕重连补发缓冲区
+ *
+ * 每个房间保留最近广播的若干条弹幕帧（环形数组，存放已序列化好的文本帧与二进制帧）。
+ * 客户端断线重连时携带最后收到的弹幕ID，若缓冲区能完整覆盖则直接补发，
+ * 否则通知客户端走增量同步接口。
+ *
+ * 弹幕ID全局自增、各房间不连续，因此每个缓冲区记录一个下界 floorId：
+ * 只有 since >= floorId 时才能保证 since 之后的弹幕全部在缓冲区内。
+ */
+@Component
+public class DanmuReplayBuffer {
+
+    @Value("${danmu.replay.capacity:200}")
+    private int capacity;
+
+    @Value("${danmu.replay.idle-ttl-ms:600000}")
+    private long idleTtlMs;
+
+    // vid -> 环形缓冲区
+    private final Map<Integer, Ring> rings = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一条已广播的弹幕帧（无ID的弹幕无法作为游标，不记录）
+     */
+    public void append(Integer vid, Integer danmuId, DanmuFrame frame) {
+        if (danmuId == null) {
+            return;
+        }
+        rings.computeIfAbsent(vid, k -> new Ring(capacity, danmuId - 1)).append(danmuId, frame);
+    }
+
+    /**
+     * 获取ID大于 since 的弹幕帧
+     *
+     * @return 按广播顺序排列的帧；缓冲区无法完整覆盖时返回 null
+     */
+    public List<DanmuFrame> replaySince(Integer vid, int since) {
+        Ring ring = rings.get(vid);
+        return ring == null ? null : ring.since(since);
+    }
+
+    /**
+     * 定期清理长时间没有新弹幕的房间缓冲区
+     */
+    @Scheduled(fixedDelayString = "${danmu.replay.sweep-interval-ms:60000}")
+    public void sweepIdleRings() {
+        long expireBefore = System.currentTimeMillis() - idleTtlMs;
+        rings.values().removeIf(ring -> ring.lastAppendMillis < expireBefore);
+    }
+
+    /**
+     * 单个房间的环形缓冲区
+     */
+    private static final class Ring {
+
+        private final int[] ids;
+        private final DanmuFrame[] frames;
+        private int head;
+        private int count;
+        private int floorId;
+        private volatile long lastAppendMillis = System.currentTimeMillis();
+
+        private Ring(int capacity, int floorId) {
+            this.ids = new int[capacity];
+            this.frames = new DanmuFrame[capacity];
+            this.floorId = floorId;
+        }
+
+        private synchronized void append(int danmuId, DanmuFrame frame) {
+            int tail = (head + count) % ids.length;
+            if (count == ids.length) {
+                // 覆盖最旧的一条，下界随之抬高
+                floorId = Math.max(floorId, ids[head]);
+                head = (head + 1) % ids.length;
+            } else {
+                count++;
+            }
+            ids[tail] = danmuId;
+            frames[tail] = frame;
+            lastAppendMillis = System.currentTimeMillis();
+        }
+
+        private synchronized List<DanmuFrame> since(int since) {
+            if (since < floorId) {
+                return null;
+            }
+            List<DanmuFrame> result = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % ids.length;
+                if (ids[index] > since) {
+                    result.add(frames[index]);
+                }
+            }
+            return result;
+        }
+    }
+}
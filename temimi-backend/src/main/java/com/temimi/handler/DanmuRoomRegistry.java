@@ -0,0 +1,121 @@
+package com.temimi.handler;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 弹幕房间注册表
+ *
+ * - 每个房间使用并发 Set 存放连接，进出房间为 O(1)，不再整体复制数组
+ * - 广播时直接遍历弱一致视图，无需复制快照
+ * - 进出房间通过 ConcurrentHashMap.compute 原子完成，最后一人离开时房间随即移除，不会残留空房间
+ */
+public class DanmuRoomRegistry {
+
+    // vid -> 房间
+    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    /**
+     * 加入房间
+     * @return 是否为新加入的连接
+     */
+    public boolean join(Integer vid, WebSocketSession session) {
+        boolean[] added = new boolean[1];
+        rooms.compute(vid, (k, room) -> {
+            if (room == null) {
+                room = new Room();
+            }
+            added[0] = room.add(session);
+            return room;
+        });
+        if (added[0]) {
+            totalConnections.incrementAndGet();
+        }
+        return added[0];
+    }
+
+    /**
+     * 离开房间，房间为空时原子移除
+     * @return 连接是否确实在房间内
+     */
+    public boolean leave(Integer vid, WebSocketSession session) {
+        boolean[] removed = new boolean[1];
+        rooms.computeIfPresent(vid, (k, room) -> {
+            removed[0] = room.remove(session);
+            return room.isEmpty() ? null : room;
+        });
+        if (removed[0]) {
+            totalConnections.decrementAndGet();
+        }
+        return removed[0];
+    }
+
+    /**
+     * 房间内连接的只读视图，供广播遍历（弱一致，不复制）
+     */
+    public Collection<WebSocketSession> getSessions(Integer vid) {
+        Room room = rooms.get(vid);
+        return room == null ? List.of() : room.view;
+    }
+
+    /**
+     * 房间人数
+     */
+    public int getRoomSize(Integer vid) {
+        Room room = rooms.get(vid);
+        return room == null ? 0 : room.size.get();
+    }
+
+    /**
+     * 当前非空房间数
+     */
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    /**
+     * 所有房间的连接总数
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * 单个房间，只在 compute 回调内修改
+     */
+    private static final class Room {
+
+        private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+        private final Collection<WebSocketSession> view = Collections.unmodifiableSet(sessions);
+        private final AtomicInteger size = new AtomicInteger();
+
+        private boolean add(WebSocketSession session) {
+            if (sessions.add(session)) {
+                size.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean remove(WebSocketSession session) {
+            if (sessions.remove(session)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isEmpty() {
+            return size.get() == 0;
+        }
+    }
+}
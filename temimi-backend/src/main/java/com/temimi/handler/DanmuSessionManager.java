@@ -1,30 +1,125 @@
 package com.temimi.handler;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 @Component
 public class DanmuSessionManager {
-    // vid -> List<Session>
-    private final Map<Integer, List<WebSocketSession>> sessionMap = new ConcurrentHashMap<>();
+    // vid -> 房间内的连接
+    private final DanmuRoomRegistry roomRegistry = new DanmuRoomRegistry();
+
+    // 自上次发布后人数发生变化的房间
+    private final Set<Integer> changedRooms = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private DanmuBroadcaster danmuBroadcaster;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("danmu.rooms", roomRegistry, DanmuRoomRegistry::getRoomCount)
+                .description("当前有观众的弹幕房间数")
+                .register(meterRegistry);
+        Gauge.builder("danmu.connections", roomRegistry, DanmuRoomRegistry::getTotalConnections)
+                .description("弹幕 WebSocket 连接总数")
+                .register(meterRegistry);
+    }
 
     public void bindSession(Integer vid, WebSocketSession session) {
-        sessionMap.computeIfAbsent(vid, k -> new CopyOnWriteArrayList<>()).add(session);
+        danmuBroadcaster.register(session);
+        if (roomRegistry.join(vid, session)) {
+            changedRooms.add(vid);
+        }
     }
 
     public void unbindSession(Integer vid, WebSocketSession session) {
-        List<WebSocketSession> sessions = sessionMap.get(vid);
-        if (sessions != null) {
-            sessions.remove(session);
+        if (roomRegistry.leave(vid, session)) {
+            changedRooms.add(vid);
         }
+        danmuBroadcaster.unregister(session);
+    }
+
+    /**
+     * 房间内连接的只读视图（弱一致，不复制）
+     */
+    public Collection<WebSocketSession> getSessionsByVid(Integer vid) {
+        return roomRegistry.getSessions(vid);
+    }
+
+    /**
+     * 房间当前观看人数
+     */
+    public int getPopulation(Integer vid) {
+        return roomRegistry.getRoomSize(vid);
+    }
+
+    /**
+     * 当前有观众的房间数
+     */
+    public int getRoomCount() {
+        return roomRegistry.getRoomCount();
+    }
+
+    /**
+     * 所有房间的连接总数
+     */
+    public int getTotalConnections() {
+        return roomRegistry.getTotalConnections();
+    }
+
+    /**
+     * 取出自上次调用以来人数发生变化的房间
+     */
+    public List<Integer> drainChangedRooms() {
+        List<Integer> rooms = new ArrayList<>(changedRooms.size());
+        for (Integer vid : changedRooms) {
+            if (changedRooms.remove(vid)) {
+                rooms.add(vid);
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * 向视频房间内所有连接广播同一帧消息（异步发送）
+     * @return 成功入队的连接数
+     */
+    public int broadcast(Integer vid, WebSocketMessage<?> frame) {
+        return danmuBroadcaster.broadcast(getSessionsByVid(vid), frame);
+    }
+
+    /**
+     * 向视频房间内所有连接广播弹幕，文本/二进制帧按连接协商的子协议选择
+     * @return 成功入队的连接数
+     */
+    public int broadcast(Integer vid, DanmuFrame frame) {
+        return danmuBroadcaster.broadcast(getSessionsByVid(vid), frame);
+    }
+
+    /**
+     * 向单个连接发送弹幕，文本/二进制帧按连接协商的子协议选择
+     */
+    public boolean send(WebSocketSession session, DanmuFrame frame) {
+        return danmuBroadcaster.send(session, frame);
     }
 
-    public List<WebSocketSession> getSessionsByVid(Integer vid) {
-        return sessionMap.getOrDefault(vid, List.of());
+    /**
+     * 向单个连接发送消息（异步发送，与广播共用同一发送队列，保证消息顺序）
+     */
+    public boolean send(WebSocketSession session, WebSocketMessage<?> frame) {
+        return danmuBroadcaster.send(session, frame);
     }
-}
\ No newline at end of file
+}
@@ -9,16 +9,22 @@ import com.temimi.service.DanmuService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
-public class DanmuWebSocketHandler extends TextWebSocketHandler {
+public class DanmuWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
 
     private static final Logger logger = LoggerFactory.getLogger(DanmuWebSocketHandler.class);
 
@@ -28,12 +34,30 @@ public class DanmuWebSocketHandler extends TextWebSocketHandler {
     @Autowired
     private DanmuSessionManager danmuSessionManager;
 
+    @Autowired
+    private DanmuReplayBuffer danmuReplayBuffer;
+
+    @Autowired
+    private DanmuRateLimiter danmuRateLimiter;
+
     @Autowired
     private com.temimi.util.JwtUtil jwtUtil;
 
     private final ObjectMapper objectMapper = new ObjectMapper()
             .findAndRegisterModules(); // 自动注册所有可用模块，包括JSR310
 
+    // vid -> 上次广播的观看人数
+    private final Map<Integer, Integer> lastPublishedPopulation = new ConcurrentHashMap<>();
+
+    /**
+     * 支持的子协议：协商了 {@link DanmuBinaryCodec#SUBPROTOCOL} 的客户端接收二进制弹幕帧，
+     * 未携带子协议的客户端保持原有 JSON 文本帧；人数、错误等控制消息始终为文本帧
+     */
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(DanmuBinaryCodec.SUBPROTOCOL);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         // 从路径中提取视频ID: /ws/danmu/{vid}
@@ -49,15 +73,37 @@ public class DanmuWebSocketHandler extends TextWebSocketHandler {
             session.getAttributes().put("vid", vid);
             danmuSessionManager.bindSession(vid, session);
             logger.info("用户加入视频 {} 的弹幕池", vid);
-            
-            // 广播当前观看人数给所有观看该视频的用户
-            broadcastPopulation(vid);
+            // 观看人数由定时任务合并后广播，见 publishPopulation
+
+            // 断线重连：/ws/danmu/{vid}?since={最后收到的弹幕ID}
+            String since = UriComponentsBuilder.fromUri(session.getUri()).build()
+                    .getQueryParams().getFirst("since");
+            if (since != null && since.matches("\\d{1,9}")) {
+                resumeFrom(session, vid, Integer.parseInt(since));
+            }
         } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
             logger.error("无效的视频ID，路径: {}", path);
             session.close(CloseStatus.BAD_DATA);
         }
     }
 
+    /**
+     * 重连补发：缓冲区能完整覆盖时直接补发错过的弹幕，否则通知客户端走增量同步接口
+     */
+    private void resumeFrom(WebSocketSession session, Integer vid, int since) throws Exception {
+        List<DanmuFrame> missed = danmuReplayBuffer.replaySince(vid, since);
+        if (missed == null) {
+            Command resync = Command.success(CommandType.DANMU_RESYNC, String.valueOf(since));
+            danmuSessionManager.send(session, new TextMessage(objectMapper.writeValueAsString(resync)));
+            logger.info("视频 {} 补发缓冲区无法覆盖 since={}，通知客户端增量同步", vid, since);
+            return;
+        }
+        for (DanmuFrame frame : missed) {
+            danmuSessionManager.send(session, frame);
+        }
+        logger.info("视频 {} 重连补发 {} 条弹幕, since={}", vid, missed.size(), since);
+    }
+
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
@@ -154,6 +200,13 @@ public class DanmuWebSocketHandler extends TextWebSocketHandler {
         danmu.setFontsize(danmuDTO.getFontsize() != null ? danmuDTO.getFontsize() : 25);  // ✅ 设置字体大小
         danmu.setUid(uid);  // ✅ 使用从token中提取的用户ID
 
+        // 频率限制：单用户单房间 + 房间总量
+        DanmuRateLimiter.Decision decision = danmuRateLimiter.tryAcquire(uid, vid);
+        if (decision != DanmuRateLimiter.Decision.ALLOWED) {
+            sendErrorResponse(session, DanmuRateLimiter.rejectMessage(decision));
+            return;
+        }
+
         // 保存弹幕到数据库
         boolean saved = danmuService.sendDanmu(danmu, uid);
         if (!saved) {
@@ -165,16 +218,14 @@ public class DanmuWebSocketHandler extends TextWebSocketHandler {
         logger.info("弹幕保存成功: vid={}, uid={}, content={}", vid, uid, danmuDTO.getContent());
 
         // 广播弹幕给所有观看该视频的用户（返回完整的弹幕对象）
-        List<WebSocketSession> targetSessions = danmuSessionManager.getSessionsByVid(vid);
-        String broadcastJson = objectMapper.writeValueAsString(danmu);
+        // 只序列化一次，所有接收者共享同一帧，由发送线程池异步推送
+        DanmuFrame frame = new DanmuFrame(new TextMessage(objectMapper.writeValueAsString(danmu)),
+                new BinaryMessage(DanmuBinaryCodec.encode(danmu)));
+        // 先写入补发缓冲区再广播：并发重连的客户端宁可收到重复（按ID去重），也不会漏收
+        danmuReplayBuffer.append(vid, danmu.getId(), frame);
+        int enqueued = danmuSessionManager.broadcast(vid, frame);
 
-        for (WebSocketSession targetSession : targetSessions) {
-            if (targetSession.isOpen()) {
-                targetSession.sendMessage(new TextMessage(broadcastJson));
-            }
-        }
-        
-        logger.info("弹幕已广播给 {} 个用户", targetSessions.size());
+        logger.info("弹幕已广播给 {} 个用户", enqueued);
     }
 
     private void handleDanmuMessage(String content, WebSocketSession session) throws Exception {
@@ -196,6 +247,12 @@ public class DanmuWebSocketHandler extends TextWebSocketHandler {
         // TODO: 从JWT Token中获取用户ID
         danmu.setUid(1); // 临时设置
 
+        DanmuRateLimiter.Decision decision = danmuRateLimiter.tryAcquire(danmu.getUid(), vid);
+        if (decision != DanmuRateLimiter.Decision.ALLOWED) {
+            sendErrorResponse(session, DanmuRateLimiter.rejectMessage(decision));
+            return;
+        }
+
         // 保存弹幕到数据库
         boolean saved = danmuService.sendDanmu(danmu, danmu.getUid());
         if (!saved) {
@@ -204,30 +261,27 @@ public class DanmuWebSocketHandler extends TextWebSocketHandler {
         }
 
         // 广播弹幕给所有观看该视频的用户
-        List<WebSocketSession> targetSessions = danmuSessionManager.getSessionsByVid(vid);
         Command broadcastCommand = Command.success(CommandType.DANMU_SEND, content);
-        String broadcastJson = objectMapper.writeValueAsString(broadcastCommand);
+        DanmuFrame frame = new DanmuFrame(new TextMessage(objectMapper.writeValueAsString(broadcastCommand)),
+                new BinaryMessage(DanmuBinaryCodec.encode(danmu)));
+        // 先写入补发缓冲区再广播：并发重连的客户端宁可收到重复（按ID去重），也不会漏收
+        danmuReplayBuffer.append(vid, danmu.getId(), frame);
+        int enqueued = danmuSessionManager.broadcast(vid, frame);
 
-        for (WebSocketSession targetSession : targetSessions) {
-            if (targetSession.isOpen()) {
-                targetSession.sendMessage(new TextMessage(broadcastJson));
-            }
-        }
-        
-        logger.info("弹幕已广播给 {} 个用户", targetSessions.size());
+        logger.info("弹幕已广播给 {} 个用户", enqueued);
     }
 
     private void handleHeartbeat(WebSocketSession session) throws Exception {
         Command heartbeatResponse = Command.heartbeatResponse();
         String responseJson = objectMapper.writeValueAsString(heartbeatResponse);
-        session.sendMessage(new TextMessage(responseJson));
+        danmuSessionManager.send(session, new TextMessage(responseJson));
     }
 
     private void sendErrorResponse(WebSocketSession session, String errorMessage) {
         try {
             Command errorCommand = Command.error(errorMessage);
             String errorJson = objectMapper.writeValueAsString(errorCommand);
-            session.sendMessage(new TextMessage(errorJson));
+            danmuSessionManager.send(session, new TextMessage(errorJson));
         } catch (Exception e) {
             logger.error("发送错误响应失败: {}", e.getMessage());
         }
@@ -239,30 +293,26 @@ public class DanmuWebSocketHandler extends TextWebSocketHandler {
         if (vid != null) {
             danmuSessionManager.unbindSession(vid, session);
             logger.info("用户离开视频 {} 的弹幕池", vid);
-            
-            // 广播当前观看人数给所有观看该视频的用户
-            broadcastPopulation(vid);
         }
     }
     
     /**
-     * 广播当前观看人数
+     * 定时广播观看人数
+     * 连接建立/断开只标记房间，每个房间每个周期最多广播一次，且人数未变化时不广播，
+     * 避免大量用户同时进出时产生 O(N²) 的消息
      */
-    private void broadcastPopulation(Integer vid) {
-        List<WebSocketSession> sessions = danmuSessionManager.getSessionsByVid(vid);
-        int population = sessions.size();
-        String message = "当前观看人数: " + population;
-        
-        for (WebSocketSession session : sessions) {
-            if (session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(message));
-                } catch (Exception e) {
-                    logger.error("发送观看人数失败: {}", e.getMessage());
-                }
+    @Scheduled(fixedDelayString = "${danmu.population.interval-ms:1000}")
+    public void publishPopulation() {
+        for (Integer vid : danmuSessionManager.drainChangedRooms()) {
+            int population = danmuSessionManager.getPopulation(vid);
+            Integer previous = population > 0
+                    ? lastPublishedPopulation.put(vid, population)
+                    : lastPublishedPopulation.remove(vid);
+            if (population == 0 || Integer.valueOf(population).equals(previous)) {
+                continue;
             }
+            danmuSessionManager.broadcast(vid, new TextMessage("当前观看人数: " + population));
+            logger.info("视频 {} 当前观看人数: {}", vid, population);
         }
-        
-        logger.info("视频 {} 当前观看人数: {}", vid, population);
     }
 }
\ No newline at end of file
@@ -3,11 +3,211 @@ package com.temimi.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.temimi.model.entity.Comment;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 评论表 Mapper 接口
  */
 @Mapper
 public interface CommentMapper extends BaseMapper<Comment> {
-    // 基础CRUD已由BaseMapper提供
-}
\ No newline at end of file
+
+    /**
+     * 一次查询多个根评论下最早的若干条回复（窗口函数按 root_id 分区）
+     * @param rootIds 根评论ID
+     * @param limit 每个根评论最多返回的回复数
+     * @return 回复列表，按 root_id、创建时间排序
+     */
+    @Select("<script>" +
+            "SELECT id, vid, uid, root_id, parent_id, to_user_id, content, love, bad, create_time, is_top, is_deleted " +
+            "FROM (SELECT c.*, ROW_NUMBER() OVER (PARTITION BY root_id ORDER BY create_time ASC, id ASC) AS rn " +
+            "FROM comment c WHERE is_deleted = 0 AND root_id IN " +
+            "<foreach collection='rootIds' item='rootId' open='(' separator=',' close=')'>#{rootId}</foreach>" +
+            ") t WHERE rn &lt;= #{limit} ORDER BY root_id, rn" +
+            "</script>")
+    List<Comment> selectTopRepliesByRootIds(@Param("rootIds") Collection<Integer> rootIds, @Param("limit") int limit);
+
+    /**
+     * 按时间倒序的根评论游标分页（走 idx_vid_root_time 索引范围扫描）
+     * @param vid 视频ID
+     * @param cursorTime 上一页最后一条的创建时间，为空表示第一页
+     * @param cursorId 上一页最后一条的ID
+     * @param limit 返回条数
+     * @return 根评论列表，按 create_time、id 倒序
+     */
+    @Select("<script>" +
+            "SELECT id, vid, uid, root_id, parent_id, to_user_id, content, love, bad, create_time, is_top, is_deleted, " +
+            "reply_count FROM comment WHERE vid = #{vid} AND root_id = 0 AND is_deleted = 0" +
+            "<if test='cursorTime != null'>" +
+            " AND create_time &lt;= #{cursorTime} AND (create_time &lt; #{cursorTime} OR id &lt; #{cursorId})" +
+            "</if>" +
+            " ORDER BY create_time DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Comment> selectRootsByTimeCursor(@Param("vid") Integer vid, @Param("cursorTime") LocalDateTime cursorTime,
+                                          @Param("cursorId") Integer cursorId, @Param("limit") int limit);
+
+    /**
+     * 按点赞数倒序的根评论游标分页（走 idx_vid_root_love 索引范围扫描）
+     * @param vid 视频ID
+     * @param cursorLove 上一页最后一条的点赞数，为空表示第一页
+     * @param cursorId 上一页最后一条的ID
+     * @param limit 返回条数
+     * @return 根评论列表，按 love、id 倒序
+     */
+    @Select("<script>" +
+            "SELECT id, vid, uid, root_id, parent_id, to_user_id, content, love, bad, create_time, is_top, is_deleted, " +
+            "reply_count FROM comment WHERE vid = #{vid} AND root_id = 0 AND is_deleted = 0" +
+            "<if test='cursorLove != null'>" +
+            " AND love &lt;= #{cursorLove} AND (love &lt; #{cursorLove} OR id &lt; #{cursorId})" +
+            "</if>" +
+            " ORDER BY love DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Comment> selectRootsByLoveCursor(@Param("vid") Integer vid, @Param("cursorLove") Integer cursorLove,
+                                          @Param("cursorId") Integer cursorId, @Param("limit") int limit);
+
+    /**
+     * 按时间正序的回复游标分页（走 idx_root_deleted_time 索引范围扫描）
+     * @param rootId 根评论ID
+     * @param cursorTime 上一页最后一条的创建时间，为空表示第一页
+     * @param cursorId 上一页最后一条的ID
+     * @param limit 返回条数
+     * @return 回复列表，按 create_time、id 正序
+     */
+    @Select("<script>" +
+            "SELECT id, vid, uid, root_id, parent_id, to_user_id, content, love, bad, create_time, is_top, is_deleted " +
+            "FROM comment WHERE root_id = #{rootId} AND is_deleted = 0" +
+            "<if test='cursorTime != null'>" +
+            " AND create_time &gt;= #{cursorTime} AND (create_time &gt; #{cursorTime} OR id &gt; #{cursorId})" +
+            "</if>" +
+            " ORDER BY create_time ASC, id ASC LIMIT #{limit}" +
+            "</script>")
+    List<Comment> selectRepliesByCursor(@Param("rootId") Integer rootId, @Param("cursorTime") LocalDateTime cursorTime,
+                                        @Param("cursorId") Integer cursorId, @Param("limit") int limit);
+
+    /**
+     * 按热度选出视频的候选根评论：热度 = log10(max(点赞 + 权重 × 回复数, 1)) + 发布时间 / 衰减秒数
+     * @param vid 视频ID
+     * @param replyWeight 每条回复折算的点赞数
+     * @param decaySeconds 衰减秒数
+     * @param limit 最大返回条数
+     * @return 每行包含 id、love、replies、created（发布时间，由调用方按与增量维护相同的时区换算为秒）
+     */
+    @Select("SELECT id, love, reply_count AS replies, create_time AS created FROM comment " +
+            "WHERE vid = #{vid} AND root_id = 0 AND is_deleted = 0 " +
+            "ORDER BY LOG10(GREATEST(love + #{replyWeight} * reply_count, 1)) " +
+            "+ UNIX_TIMESTAMP(create_time) / #{decaySeconds} DESC, id DESC LIMIT #{limit}")
+    List<Map<String, Object>> selectHotCandidates(@Param("vid") Integer vid, @Param("replyWeight") int replyWeight,
+                                                  @Param("decaySeconds") long decaySeconds, @Param("limit") int limit);
+
+    /**
+     * 按与 selectHotCandidates 相同的热度排序，继续选出排在游标根评论之后的根评论ID
+     * 游标的热度由同一表达式在数据库中计算，与候选行的热度可直接比较
+     * @param vid 视频ID
+     * @param replyWeight 每条回复折算的点赞数
+     * @param decaySeconds 衰减秒数
+     * @param afterId 游标根评论ID（热门排行的末位），为空表示从头开始
+     * @param skip 游标之后跳过的条数
+     * @param limit 最大返回条数
+     * @return 根评论ID，按热度降序、ID 降序
+     */
+    @Select("<script>" +
+            "SELECT h.id FROM (SELECT id, LOG10(GREATEST(love + #{replyWeight} * reply_count, 1)) " +
+            "+ UNIX_TIMESTAMP(create_time) / #{decaySeconds} AS score FROM comment " +
+            "WHERE vid = #{vid} AND root_id = 0 AND is_deleted = 0) h" +
+            "<if test='afterId != null'>" +
+            " JOIN (SELECT LOG10(GREATEST(love + #{replyWeight} * reply_count, 1)) " +
+            "+ UNIX_TIMESTAMP(create_time) / #{decaySeconds} AS score FROM comment WHERE id = #{afterId}) cur" +
+            " ON h.score &lt; cur.score OR (h.score = cur.score AND h.id &lt; #{afterId})" +
+            "</if>" +
+            " ORDER BY h.score DESC, h.id DESC LIMIT #{skip}, #{limit}" +
+            "</script>")
+    List<Integer> selectHotIdsAfter(@Param("vid") Integer vid, @Param("replyWeight") int replyWeight,
+                                    @Param("decaySeconds") long decaySeconds, @Param("afterId") Integer afterId,
+                                    @Param("skip") int skip, @Param("limit") int limit);
+
+    /**
+     * 根评论的回复数加一（与插入回复在同一事务内）
+     */
+    @Update("UPDATE comment SET reply_count = reply_count + 1 WHERE id = #{rootId}")
+    int incrementReplyCount(@Param("rootId") Integer rootId);
+
+    /**
+     * 根评论的回复数减少，不低于 0
+     * @param rootId 根评论ID
+     * @param count 减少的数量
+     */
+    @Update("UPDATE comment SET reply_count = GREATEST(reply_count - #{count}, 0) WHERE id = #{rootId}")
+    int subtractReplyCount(@Param("rootId") Integer rootId, @Param("count") int count);
+
+    /**
+     * 当前最大评论ID，用于分段对账
+     */
+    @Select("SELECT IFNULL(MAX(id), 0) FROM comment")
+    int selectMaxId();
+
+    /**
+     * 按实际的未删除回复数修正一段ID范围内根评论的 reply_count（走 idx_root_deleted_time）
+     * @param fromId 起始ID（含）
+     * @param toId 结束ID（含）
+     * @return 被修正的根评论数
+     */
+    @Update("UPDATE comment c LEFT JOIN (SELECT root_id, COUNT(*) AS cnt FROM comment " +
+            "WHERE root_id BETWEEN #{fromId} AND #{toId} AND is_deleted = 0 GROUP BY root_id) r ON r.root_id = c.id " +
+            "SET c.reply_count = IFNULL(r.cnt, 0) " +
+            "WHERE c.id BETWEEN #{fromId} AND #{toId} AND c.root_id = 0 AND c.reply_count <> IFNULL(r.cnt, 0)")
+    int reconcileReplyCounts(@Param("fromId") int fromId, @Param("toId") int toId);
+
+    /**
+     * 点赞数加一（原子更新，不读取评论行）
+     */
+    @Update("UPDATE comment SET love = love + 1 WHERE id = #{id}")
+    int incrementLove(@Param("id") Integer id);
+
+    /**
+     * 点赞数减一，不低于 0
+     */
+    @Update("UPDATE comment SET love = GREATEST(love - 1, 0) WHERE id = #{id}")
+    int decrementLove(@Param("id") Integer id);
+
+    /**
+     * 点踩数加一
+     */
+    @Update("UPDATE comment SET bad = COALESCE(bad, 0) + 1 WHERE id = #{id}")
+    int incrementBad(@Param("id") Integer id);
+
+    /**
+     * 点踩数减一，不低于 0
+     */
+    @Update("UPDATE comment SET bad = GREATEST(COALESCE(bad, 0) - 1, 0) WHERE id = #{id}")
+    int decrementBad(@Param("id") Integer id);
+
+    /**
+     * 批量删除前锁定并读取评论的视频、删除状态（需在事务内调用）
+     * @param ids 评论ID
+     * @return 存在的评论（只含 id、vid、root_id、is_deleted）
+     */
+    @Select("<script>" +
+            "SELECT id, vid, root_id, is_deleted FROM comment WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " FOR UPDATE" +
+            "</script>")
+    List<Comment> selectForModeration(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 批量软删除评论（已删除的不修改）
+     * @param ids 评论ID
+     * @return 影响的行数
+     */
+    @Update("<script>" +
+            "UPDATE comment SET is_deleted = 1 WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND is_deleted = 0" +
+            "</script>")
+    int softDeleteByIds(@Param("ids") Collection<Integer> ids);
+}
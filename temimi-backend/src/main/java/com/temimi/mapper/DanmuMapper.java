@@ -2,12 +2,102 @@ package com.temimi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.temimi.model.entity.Danmu;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 弹幕表 Mapper 接口
  */
 @Mapper
 public interface DanmuMapper extends BaseMapper<Danmu> {
-    // 基础CRUD已由BaseMapper提供
-}
\ No newline at end of file
+
+    /**
+     * 批量插入弹幕（单条多行 INSERT），自增ID回填到每个对象
+     * @param danmuList 弹幕列表，不能为空
+     * @return 影响的行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO danmu (vid, uid, content, fontsize, mode, color, time_point, state, create_date) VALUES " +
+            "<foreach collection='list' item='d' separator=','>" +
+            "(#{d.vid}, #{d.uid}, #{d.content}, #{d.fontsize}, #{d.mode}, #{d.color}, #{d.timePoint}, #{d.state}, #{d.createDate})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertBatch(@Param("list") List<Danmu> danmuList);
+
+    /**
+     * 增量查询：获取ID大于游标的已过审弹幕（走 idx_vid 索引，二级索引隐含主键有序）
+     * @param vid 视频ID
+     * @param cursor 客户端已拿到的最大弹幕ID
+     * @param limit 最大返回条数
+     * @return 按ID升序的弹幕列表
+     */
+    @Select("SELECT * FROM danmu WHERE vid = #{vid} AND id > #{cursor} AND state = 1 ORDER BY id LIMIT #{limit}")
+    List<Danmu> selectSince(@Param("vid") Integer vid, @Param("cursor") Integer cursor, @Param("limit") int limit);
+
+    /**
+     * 弹幕密度统计：按时间桶分组计数（走 idx_vid_state_time 覆盖索引）
+     * @param vid 视频ID
+     * @param bucketSeconds 时间桶宽度（秒）
+     * @return 每行包含 bucket（桶序号）与 cnt（弹幕数）
+     */
+    @Select("SELECT FLOOR(time_point / #{bucketSeconds}) AS bucket, COUNT(*) AS cnt " +
+            "FROM danmu WHERE vid = #{vid} AND state = 1 GROUP BY bucket")
+    List<Map<String, Object>> countByTimeBucket(@Param("vid") Integer vid, @Param("bucketSeconds") int bucketSeconds);
+
+    /**
+     * 查询视频某一天发送的已过审弹幕（走 idx_vid_create_date 索引）
+     * @param vid 视频ID
+     * @param start 当天开始时间
+     * @param end 当天结束时间（包含）
+     * @return 按时间点排序的弹幕列表
+     */
+    @Select("SELECT * FROM danmu WHERE vid = #{vid} AND state = 1 " +
+            "AND create_date BETWEEN #{start} AND #{end} ORDER BY time_point")
+    List<Danmu> selectByVidAndDay(@Param("vid") Integer vid,
+                                  @Param("start") LocalDateTime start,
+                                  @Param("end") LocalDateTime end);
+
+    /**
+     * 查询某个时间范围内有弹幕发送的视频，用于生成每日快照
+     * @param start 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @return 视频ID列表
+     */
+    @Select("SELECT DISTINCT vid FROM danmu WHERE create_date >= #{start} AND create_date < #{end}")
+    List<Integer> selectVidsCreatedBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * 批量审核前锁定并读取弹幕的视频、状态等信息（需在事务内调用）
+     * @param ids 弹幕ID
+     * @return 存在的弹幕（只含 id、vid、state、time_point、create_date）
+     */
+    @Select("<script>" +
+            "SELECT id, vid, state, time_point, create_date FROM danmu WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " FOR UPDATE" +
+            "</script>")
+    List<Danmu> selectForModeration(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 批量修改弹幕状态（已处于目标状态的不修改）
+     * @param ids 弹幕ID
+     * @param state 目标状态
+     * @return 影响的行数
+     */
+    @Update("<script>" +
+            "UPDATE danmu SET state = #{state} WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND state != #{state}" +
+            "</script>")
+    int updateStateByIds(@Param("ids") Collection<Integer> ids, @Param("state") int state);
+}
@@ -2,12 +2,28 @@ package com.temimi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.temimi.model.entity.Message;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 消息表 Mapper 接口
  */
 @Mapper
 public interface MessageMapper extends BaseMapper<Message> {
-    // 基础CRUD已由BaseMapper提供
+
+    /**
+     * 批量插入消息（单条多行 INSERT），未读数仍由 message 表的行级触发器逐条维护
+     * @param messages 消息列表，不能为空
+     * @return 影响的行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO message (from_uid, to_uid, type, content, target_type, target_id, target_content, is_read, create_time) VALUES " +
+            "<foreach collection='list' item='m' separator=','>" +
+            "(#{m.fromUid}, #{m.toUid}, #{m.type}, #{m.content}, #{m.targetType}, #{m.targetId}, #{m.targetContent}, #{m.isRead}, #{m.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<Message> messages);
 }
@@ -2,11 +2,64 @@ package com.temimi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.temimi.model.entity.UserCommentLike;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 /**
  * 用户评论点赞点踩Mapper接口
  */
 @Mapper
 public interface UserCommentLikeMapper extends BaseMapper<UserCommentLike> {
+
+    /**
+     * 查询用户在某个视频下的点赞/点踩记录（走 idx_uid 与评论主键）
+     * @param uid 用户ID
+     * @param vid 视频ID
+     * @return 记录列表（只含 comment_id、type）
+     */
+    @Select("SELECT l.comment_id, l.type FROM user_comment_like l JOIN comment c ON c.id = l.comment_id " +
+            "WHERE l.uid = #{uid} AND c.vid = #{vid}")
+    List<UserCommentLike> selectByUidAndVid(@Param("uid") Integer uid, @Param("vid") Integer vid);
+
+    /**
+     * 不存在时插入点赞/点踩记录，已存在（uk_uid_comment_id 冲突）时不做修改
+     * @param uid 用户ID
+     * @param commentId 评论ID
+     * @param type 类型 1点赞 2点踩
+     * @return 1 表示新插入，0 表示已有记录
+     */
+    @Insert("INSERT IGNORE INTO user_comment_like (uid, comment_id, type, create_time) " +
+            "VALUES (#{uid}, #{commentId}, #{type}, NOW())")
+    int insertIfAbsent(@Param("uid") Integer uid, @Param("commentId") Integer commentId, @Param("type") Integer type);
+
+    /**
+     * 点踩改为点赞：同一条语句修改记录类型并调整评论的点赞、点踩数
+     * @return 大于 0 表示原来是点踩并已改为点赞，0 表示原来就是点赞
+     */
+    @Update("UPDATE user_comment_like l JOIN comment c ON c.id = l.comment_id " +
+            "SET l.type = 1, l.create_time = NOW(), c.love = c.love + 1, c.bad = GREATEST(COALESCE(c.bad, 0) - 1, 0) " +
+            "WHERE l.uid = #{uid} AND l.comment_id = #{commentId} AND l.type = 2")
+    int switchToLike(@Param("uid") Integer uid, @Param("commentId") Integer commentId);
+
+    /**
+     * 点赞改为点踩：同一条语句修改记录类型并调整评论的点赞、点踩数
+     * @return 大于 0 表示原来是点赞并已改为点踩，0 表示原来就是点踩
+     */
+    @Update("UPDATE user_comment_like l JOIN comment c ON c.id = l.comment_id " +
+            "SET l.type = 2, l.create_time = NOW(), c.bad = COALESCE(c.bad, 0) + 1, c.love = GREATEST(c.love - 1, 0) " +
+            "WHERE l.uid = #{uid} AND l.comment_id = #{commentId} AND l.type = 1")
+    int switchToDislike(@Param("uid") Integer uid, @Param("commentId") Integer commentId);
+
+    /**
+     * 删除指定类型的点赞/点踩记录
+     * @return 1 表示已删除，0 表示没有该类型的记录
+     */
+    @Delete("DELETE FROM user_comment_like WHERE uid = #{uid} AND comment_id = #{commentId} AND type = #{type}")
+    int deleteByType(@Param("uid") Integer uid, @Param("commentId") Integer commentId, @Param("type") Integer type);
 }
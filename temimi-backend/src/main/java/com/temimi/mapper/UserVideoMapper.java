@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.temimi.model.entity.UserVideo;
 import org.apache.ibatis.annotations.*;
 
+import java.util.List;
+
 /**
  * 用户视频关联表 Mapper 接口
  */
@@ -91,4 +93,20 @@ public interface UserVideoMapper extends BaseMapper<UserVideo> {
             "VALUES (#{uid}, #{vid}, #{coinCount}, NOW(), NOW(), 0, 0, 0) " +
             "ON DUPLICATE KEY UPDATE coin = coin + #{coinCount}, coin_time = NOW()")
     int coinVideoIncrement(@Param("uid") Integer uid, @Param("vid") Integer vid, @Param("coinCount") Integer coinCount);
-}
\ No newline at end of file
+
+    /**
+     * 批量写入播放记录：不存在则插入，已存在则累加播放次数并更新最近播放时间
+     *
+     * @param rows 每行的 play 为本批次累计的播放次数
+     * @return 影响的行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO user_video (uid, vid, play, play_time, love, coin, collect) VALUES " +
+            "<foreach collection='rows' item='r' separator=','>" +
+            "(#{r.uid}, #{r.vid}, #{r.play}, #{r.playTime}, 0, 0, 0)" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE play = play + VALUES(play), " +
+            "play_time = GREATEST(COALESCE(play_time, VALUES(play_time)), VALUES(play_time))" +
+            "</script>")
+    int upsertPlayBatch(@Param("rows") List<UserVideo> rows);
+}
@@ -5,6 +5,7 @@ import com.temimi.model.entity.Video;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -30,4 +31,29 @@ public interface VideoMapper extends BaseMapper<Video> {
      */
     @Select("SELECT * FROM video WHERE (title LIKE CONCAT('%', #{keyword}, '%') OR tags LIKE CONCAT('%', #{keyword}, '%')) AND status = 1")
     List<Video> searchVideos(@Param("keyword") String keyword);
+
+    /**
+     * 查询视频时长
+     * @param vid 视频ID
+     * @return 时长（秒），视频不存在或未解析出时长时为 null
+     */
+    @Select("SELECT duration FROM video WHERE vid = #{vid}")
+    Double selectDuration(@Param("vid") Integer vid);
+
+    /**
+     * 查询尚未完成 HLS 打包的视频（用于打包补偿任务），新上传的优先
+     * @param limit 最多返回条数
+     * @return 视频列表（只包含 vid 和 video_url）
+     */
+    @Select("SELECT vid, video_url FROM video WHERE hls_url IS NULL AND status != 3 ORDER BY vid DESC LIMIT #{limit}")
+    List<Video> selectWithoutHls(@Param("limit") int limit);
+
+    /**
+     * 记录 HLS 播放列表地址
+     * @param vid 视频ID
+     * @param hlsUrl 播放列表url
+     * @return 影响的行数
+     */
+    @Update("UPDATE video SET hls_url = #{hlsUrl} WHERE vid = #{vid}")
+    int updateHlsUrl(@Param("vid") Integer vid, @Param("hlsUrl") String hlsUrl);
 }
\ No newline at end of file
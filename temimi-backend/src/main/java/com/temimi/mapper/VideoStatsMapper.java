@@ -6,6 +6,8 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+
 /**
  * 视频数据统计表 Mapper 接口
  */
@@ -67,4 +69,30 @@ public interface VideoStatsMapper extends BaseMapper<VideoStats> {
      */
     @Update("UPDATE video_stats SET danmu = danmu + 1 WHERE vid = #{vid}")
     void incrementDanmu(@Param("vid") Integer vid);
-}
\ No newline at end of file
+
+    /**
+     * 批量应用多个视频的计数增量（一条 UPDATE ... JOIN，增量可为负，结果不低于 0）
+     * @param rows 每个视频一行增量，不能为空
+     * @return 影响的行数
+     */
+    @Update("<script>" +
+            "UPDATE video_stats s JOIN (" +
+            "<foreach collection='rows' item='r' separator=' UNION ALL '>" +
+            "SELECT #{r.vid} AS vid, #{r.play} AS play, #{r.good} AS good, #{r.coin} AS coin, " +
+            "#{r.collect} AS collect, #{r.share} AS share, #{r.danmu} AS danmu" +
+            "</foreach>" +
+            ") d ON s.vid = d.vid SET " +
+            "s.play = GREATEST(s.play + d.play, 0), s.good = GREATEST(s.good + d.good, 0), " +
+            "s.coin = GREATEST(s.coin + d.coin, 0), s.collect = GREATEST(s.collect + d.collect, 0), " +
+            "s.share = GREATEST(s.share + d.share, 0), s.danmu = GREATEST(s.danmu + d.danmu, 0)" +
+            "</script>")
+    int applyDeltas(@Param("rows") List<VideoStats> rows);
+
+    /**
+     * 批量减少评论数 (用于批量删除后按视频合并扣减)
+     * @param vid 视频ID
+     * @param delta 减少的数量
+     */
+    @Update("UPDATE video_stats SET comment = GREATEST(comment - #{delta}, 0) WHERE vid = #{vid}")
+    void subtractComment(@Param("vid") Integer vid, @Param("delta") int delta);
+}
@@ -0,0 +1,15 @@
+package com.temimi.model.dto;
+
+import com.temimi.model.entity.User;
+
+/**
+ * 用户公开资料（不可变投影）
+ * 评论、搜索、私信、收藏等列表只需要展示这些字段，由 UserProfileCache 缓存
+ */
+public record UserProfile(Integer uid, String nickname, String avatar, Integer auth, Integer vip, Integer exp) {
+
+    public static UserProfile from(User user) {
+        return new UserProfile(user.getUid(), user.getNickname(), user.getAvatar(),
+                user.getAuth(), user.getVip(), user.getExp());
+    }
+}
@@ -40,6 +40,11 @@ public class VideoDetailDto {
      */
     private String videoUrl;
 
+    /**
+     * HLS播放列表URL（打包完成前为空，此时使用videoUrl）
+     */
+    private String hlsUrl;
+
     /**
      * 视频时长（秒）
      */
@@ -157,6 +162,7 @@ public class VideoDetailDto {
         dto.setTitle(video.getTitle());
         dto.setCoverUrl(video.getCoverUrl());
         dto.setVideoUrl(video.getVideoUrl());
+        dto.setHlsUrl(video.getHlsUrl());
         dto.setDuration(video.getDuration());
         dto.setType(video.getType());
         dto.setAuth(video.getAuth());
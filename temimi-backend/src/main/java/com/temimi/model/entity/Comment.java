@@ -89,6 +89,12 @@ public class Comment {
     @TableField("is_deleted")
     private Boolean isDeleted;
 
+    /**
+     * 未删除的回复数（只有根评论维护）
+     */
+    @TableField("reply_count")
+    private Integer replyCount;
+
     // ==================== 以下是非数据库字段，用于前端显示 ====================
 
     /**
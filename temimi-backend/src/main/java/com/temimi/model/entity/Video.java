@@ -90,6 +90,12 @@ public class Video {
     @TableField("video_url")
     private String videoUrl;
 
+    /**
+     * HLS播放列表url，打包完成前为空
+     */
+    @TableField("hls_url")
+    private String hlsUrl;
+
     /**
      * 状态 0审核中 1已过审 2未通过 3已删除
      */
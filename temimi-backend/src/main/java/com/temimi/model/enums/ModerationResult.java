@@ -0,0 +1,26 @@
+package com.temimi.model.enums;
+
+/**
+ * 批量审核操作中单条记录的处理结果
+ */
+public enum ModerationResult {
+    /**
+     * 处理成功
+     */
+    SUCCESS,
+
+    /**
+     * 记录不存在
+     */
+    NOT_FOUND,
+
+    /**
+     * 记录已处于目标状态（或已删除），未做修改
+     */
+    UNCHANGED,
+
+    /**
+     * 所在批次执行失败，未做修改
+     */
+    FAILED
+}
@@ -0,0 +1,27 @@
+package com.temimi.model.vo;
+
+import com.temimi.model.enums.ModerationResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 批量审核（删除/隐藏）响应
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchModerationVO {
+
+    /**
+     * 实际修改的记录数
+     */
+    private Integer affected;
+
+    /**
+     * 每个ID的处理结果，按请求顺序排列
+     */
+    private Map<Integer, ModerationResult> results;
+}
@@ -0,0 +1,31 @@
+package com.temimi.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页响应
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageVO<T> {
+
+    /**
+     * 本页数据
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标，原样带回即可继续翻页（没有更多数据时为 null）
+     */
+    private String cursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private Boolean more;
+}
@@ -0,0 +1,25 @@
+package com.temimi.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 弹幕密度响应
+ * 播放器据此绘制进度条上的"高能"曲线，无需先下载全部弹幕
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DanmuDensityVO {
+
+    /**
+     * 时间桶宽度（秒）
+     */
+    private Integer bucketSeconds;
+
+    /**
+     * 每个时间桶内的弹幕数，第 i 项对应 [i * bucketSeconds, (i + 1) * bucketSeconds)
+     */
+    private int[] counts;
+}
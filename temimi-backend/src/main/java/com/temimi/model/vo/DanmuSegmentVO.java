@@ -0,0 +1,38 @@
+package com.temimi.model.vo;
+
+import com.temimi.model.entity.Danmu;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 弹幕分段响应
+ * 播放器按当前播放进度只拉取即将播放的时间窗口
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DanmuSegmentVO {
+
+    /**
+     * 分段序号，从 0 开始
+     */
+    private Integer segment;
+
+    /**
+     * 分段起始时间点（秒，包含）
+     */
+    private Long startTime;
+
+    /**
+     * 分段结束时间点（秒，不包含）
+     */
+    private Long endTime;
+
+    /**
+     * 分段内的弹幕，按时间点排序
+     */
+    private List<Danmu> danmuList;
+}
@@ -0,0 +1,32 @@
+package com.temimi.model.vo;
+
+import com.temimi.model.entity.Danmu;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 弹幕增量同步响应
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DanmuSyncVO {
+
+    /**
+     * ID大于请求游标的弹幕，按ID升序
+     */
+    private List<Danmu> danmuList;
+
+    /**
+     * 下次请求使用的游标（本次返回的最大弹幕ID，无数据时原样返回）
+     */
+    private Integer cursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private Boolean hasMore;
+}
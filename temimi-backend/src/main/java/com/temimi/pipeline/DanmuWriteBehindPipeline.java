@@ -0,0 +1,209 @@
+package com.temimi.pipeline;
+
+import com.temimi.cache.DanmuDensityCache;
+import com.temimi.cache.DanmuSegmentCache;
+import com.temimi.mapper.DanmuMapper;
+import com.temimi.model.entity.Danmu;
+import com.temimi.pipeline.VideoStatsAggregator.StatField;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 弹幕异步批量写入管道（write-behind）
+ *
+ * - 弹幕通过校验后进入有界队列，发送方无需等待数据库
+ * - 单个刷写线程每 flush-interval-ms 毫秒或攒满 batch-size 条时，用一条多行 INSERT 写入
+ * - 同一批次内每个视频的弹幕计数合并后交给 VideoStatsAggregator，事务提交后与其他计数一起批量写入
+ * - 应用关闭时排空队列后才退出，保证已接受的弹幕全部落库
+ *
+ * 通过 danmu.write-behind.enabled=true 开启；队列满时调用方回退为同步写入。
+ */
+@Component
+@ConditionalOnProperty(name = "danmu.write-behind.enabled", havingValue = "true")
+public class DanmuWriteBehindPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(DanmuWriteBehindPipeline.class);
+
+    @Value("${danmu.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${danmu.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${danmu.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Autowired
+    private DanmuMapper danmuMapper;
+
+    @Autowired
+    private VideoStatsAggregator videoStatsAggregator;
+
+    @Autowired
+    private DanmuSegmentCache danmuSegmentCache;
+
+    @Autowired
+    private DanmuDensityCache danmuDensityCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Danmu> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter flushedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        Gauge.builder("danmu.write_behind.queue.depth", queue, BlockingQueue::size)
+                .description("待写入数据库的弹幕数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("danmu.write_behind.flush.latency")
+                .description("单批次弹幕刷写耗时")
+                .register(meterRegistry);
+        flushedCounter = Counter.builder("danmu.write_behind.flushed")
+                .description("已写入数据库的弹幕数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("danmu.write_behind.failed")
+                .description("写入失败被丢弃的弹幕数")
+                .register(meterRegistry);
+
+        running = true;
+        flusher = new Thread(this::runFlushLoop, "danmu-write-behind");
+        flusher.start();
+        logger.info("弹幕异步写入管道启动，队列上限: {}, 批大小: {}, 刷写间隔: {}ms",
+                queueCapacity, batchSize, flushIntervalMs);
+    }
+
+    /**
+     * 应用关闭时停止接收并排空队列
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.join();
+        // 兜底：关闭瞬间入队的弹幕由当前线程写入
+        List<Danmu> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        logger.info("弹幕异步写入管道已关闭，队列已排空");
+    }
+
+    /**
+     * 提交一条已校验的弹幕
+     *
+     * @return 是否成功入队；队列已满或管道已关闭时返回 false，调用方应同步写入
+     */
+    public boolean offer(Danmu danmu) {
+        return running && queue.offer(danmu);
+    }
+
+    /**
+     * 当前队列深度
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runFlushLoop() {
+        List<Danmu> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Danmu first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 攒批：直到达到批大小或距首条弹幕超过刷写间隔
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Danmu next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // 关闭流程由 running 标志控制，忽略中断继续排空
+                logger.debug("弹幕刷写线程被中断");
+            } catch (Exception e) {
+                logger.error("弹幕批量刷写异常: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Danmu> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+            flushedCounter.increment(batch.size());
+            // 提交成功、自增ID已回填后再追加到分段索引与密度直方图
+            for (Danmu danmu : batch) {
+                danmuSegmentCache.append(danmu);
+                danmuDensityCache.append(danmu);
+            }
+        } catch (Exception e) {
+            logger.error("弹幕批量写入失败，改为逐条写入, 批大小={}, 原因: {}", batch.size(), e.getMessage());
+            for (Danmu danmu : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writeBatch(List.of(danmu)));
+                    flushedCounter.increment();
+                    danmuSegmentCache.append(danmu);
+                    danmuDensityCache.append(danmu);
+                } catch (Exception single) {
+                    failedCounter.increment();
+                    logger.error("弹幕写入失败已丢弃, vid={}, uid={}, content={}, 原因: {}",
+                            danmu.getVid(), danmu.getUid(), danmu.getContent(), single.getMessage());
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void writeBatch(List<Danmu> batch) {
+        danmuMapper.insertBatch(batch);
+
+        // 合并同一视频的弹幕计数，提交后由统计聚合器批量写入
+        Map<Integer, Integer> deltaByVid = new HashMap<>();
+        for (Danmu danmu : batch) {
+            deltaByVid.merge(danmu.getVid(), 1, Integer::sum);
+        }
+        deltaByVid.forEach((vid, delta) -> videoStatsAggregator.add(vid, StatField.DANMU, delta));
+    }
+}
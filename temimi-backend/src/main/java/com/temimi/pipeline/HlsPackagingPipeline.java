@@ -0,0 +1,294 @@
+package com.temimi.pipeline;
+
+import com.temimi.mapper.VideoMapper;
+import com.temimi.model.entity.Video;
+import com.temimi.util.HlsSegmenter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 视频上传后的 HLS 打包
+ *
+ * - 视频记录提交后把 MP4 打包为 HLS（见 HlsSegmenter），输出到 {上传目录}/hls/{文件名}/，
+ *   完成后写入 video.hls_url，播放器优先使用 HLS
+ * - 打包在独立的线程池中进行，队列有界，队列满时跳过，由补偿任务稍后重新提交
+ * - 补偿任务定期扫描 hls_url 为空的视频（包括应用重启前未完成的），逐批重新提交
+ * - 先输出到临时目录再整体改名，分片目录一旦出现就是完整的，可以作为不可变资源长期缓存
+ *
+ * 打包失败的视频（非 MP4、文件损坏等）在本次运行期间不再重试，继续使用原始 MP4 播放。
+ */
+@Component
+public class HlsPackagingPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(HlsPackagingPipeline.class);
+
+    public static final String HLS_DIR = "hls";
+
+    private static final String VIDEO_URL_PREFIX = "/videos/";
+
+    private static final String MP4_SUFFIX = ".mp4";
+
+    @Value("${file.upload.path:D:/shiyou_upload/}")
+    private String uploadBasePath;
+
+    @Value("${video.hls.enabled:true}")
+    private boolean enabled;
+
+    @Value("${video.hls.segment-seconds:6}")
+    private double segmentSeconds;
+
+    @Value("${video.hls.worker-threads:1}")
+    private int workerThreads;
+
+    @Value("${video.hls.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${video.hls.sweep-batch:20}")
+    private int sweepBatch;
+
+    @Autowired
+    private VideoMapper videoMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    // 已提交尚未完成的视频，避免上传回调和补偿任务重复提交
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    // 本次运行期间打包失败的视频，补偿任务跳过
+    private final Set<Integer> failed = ConcurrentHashMap.newKeySet();
+
+    private Timer packagingTimer;
+    private Counter packagedCounter;
+    private Counter failedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "hls-packaging-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("video.hls.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待打包的视频数")
+                .register(meterRegistry);
+        packagingTimer = Timer.builder("video.hls.packaging.latency")
+                .description("单个视频的 HLS 打包耗时")
+                .register(meterRegistry);
+        packagedCounter = Counter.builder("video.hls.packaging.result")
+                .tag("result", "success")
+                .description("HLS 打包结果")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("video.hls.packaging.result")
+                .tag("result", "failed")
+                .description("HLS 打包结果")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("video.hls.packaging.result")
+                .tag("result", "rejected")
+                .description("HLS 打包结果")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用关闭时中断正在进行的打包，未完成的视频下次启动后由补偿任务重新提交
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("HLS 打包线程未能在关闭前结束");
+        }
+    }
+
+    /**
+     * 提交新上传的视频，在事务内调用时提交后才开始打包
+     */
+    public void submit(Video video) {
+        if (!enabled || video.getVid() == null || video.getVideoUrl() == null) {
+            return;
+        }
+        Integer vid = video.getVid();
+        String videoUrl = video.getVideoUrl();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(vid, videoUrl);
+                }
+            });
+        } else {
+            enqueue(vid, videoUrl);
+        }
+    }
+
+    /**
+     * 补偿任务：重新提交尚未打包的视频
+     */
+    @Scheduled(fixedDelayString = "${video.hls.sweep-interval-ms:300000}",
+            initialDelayString = "${video.hls.sweep-initial-delay-ms:60000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        List<Video> videos = videoMapper.selectWithoutHls(sweepBatch + failed.size());
+        int submitted = 0;
+        for (Video video : videos) {
+            if (submitted >= sweepBatch) {
+                break;
+            }
+            if (!failed.contains(video.getVid()) && enqueue(video.getVid(), video.getVideoUrl())) {
+                submitted++;
+            }
+        }
+        if (submitted > 0) {
+            logger.info("HLS 打包补偿任务提交视频数: {}", submitted);
+        }
+    }
+
+    /**
+     * 删除视频时删除对应的 HLS 目录
+     */
+    public void deleteOutput(Video video) {
+        String name = outputName(video.getVideoUrl());
+        if (name == null) {
+            return;
+        }
+        Path target = hlsRoot().resolve(name);
+        try {
+            if (deleteRecursively(target)) {
+                logger.info("删除HLS目录: {}", target);
+            }
+        } catch (IOException e) {
+            logger.warn("删除HLS目录失败: {}, 原因: {}", target, e.getMessage());
+        }
+    }
+
+    private boolean enqueue(Integer vid, String videoUrl) {
+        if (!inFlight.add(vid)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    packageVideo(vid, videoUrl);
+                } finally {
+                    inFlight.remove(vid);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(vid);
+            rejectedCounter.increment();
+            logger.warn("HLS 打包队列已满，稍后由补偿任务重新提交, vid={}", vid);
+            return false;
+        }
+    }
+
+    private void packageVideo(Integer vid, String videoUrl) {
+        String name = outputName(videoUrl);
+        if (name == null) {
+            failed.add(vid);
+            failedCounter.increment();
+            logger.warn("视频不是本地 MP4 文件，跳过 HLS 打包, vid={}, url={}", vid, videoUrl);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Path source = Paths.get(uploadBasePath, "videos", videoUrl.substring(VIDEO_URL_PREFIX.length()));
+        Path target = hlsRoot().resolve(name);
+        Path temp = null;
+        try {
+            if (!Files.isDirectory(target)) {
+                Files.createDirectories(hlsRoot());
+                temp = Files.createTempDirectory(hlsRoot(), name + ".tmp");
+                HlsSegmenter.Result result = HlsSegmenter.segment(source, temp, segmentSeconds);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                temp = null;
+                logger.info("HLS 打包完成, vid={}, 分片数={}, 时长={}秒", vid, result.segments(),
+                        String.format(Locale.ROOT, "%.1f", result.durationSeconds()));
+            }
+            videoMapper.updateHlsUrl(vid, "/" + HLS_DIR + "/" + name + "/" + HlsSegmenter.PLAYLIST);
+            packagedCounter.increment();
+        } catch (Throwable e) {
+            // 包括 OutOfMemoryError 等错误：异常文件也要记为失败，否则补偿任务会反复提交
+            failed.add(vid);
+            failedCounter.increment();
+            logger.error("HLS 打包失败, vid={}, 原因: {}", vid, e.toString());
+        } finally {
+            packagingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (temp != null) {
+                try {
+                    deleteRecursively(temp);
+                } catch (IOException e) {
+                    logger.warn("清理HLS临时目录失败: {}, 原因: {}", temp, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * /videos/xxx.mp4 -> xxx，不是本地 MP4 时返回 null
+     */
+    private static String outputName(String videoUrl) {
+        if (videoUrl == null || !videoUrl.startsWith(VIDEO_URL_PREFIX)
+                || !videoUrl.toLowerCase(Locale.ROOT).endsWith(MP4_SUFFIX)) {
+            return null;
+        }
+        String name = videoUrl.substring(VIDEO_URL_PREFIX.length(), videoUrl.length() - MP4_SUFFIX.length());
+        if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.contains("..")) {
+            return null;
+        }
+        return name;
+    }
+
+    private Path hlsRoot() {
+        return Paths.get(uploadBasePath, HLS_DIR);
+    }
+
+    private static boolean deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return false;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,248 @@
+package com.temimi.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.temimi.mapper.MessageMapper;
+import com.temimi.model.entity.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息通知异步投递管道
+ *
+ * 评论、点赞等写操作在事务提交后把待发送的通知交给管道，不再在业务事务内逐条插入 message：
+ * - 通知进入有界队列，由 worker-threads 个投递线程消费
+ * - 每个线程攒满 batch-size 条或超过 flush-interval-ms 毫秒时，用一条多行 INSERT 写入
+ * - msg_unread 未读数由 message 表的行级触发器维护，批量插入同样逐行生效
+ * - 批量写入失败时逐条重试，最多 max-attempts 次（间隔线性退避），仍失败的写入死信日志
+ * - 应用关闭时排空队列后才退出
+ *
+ * 队列满时调用方所在线程直接同步写入，通知不会因积压而丢失。
+ */
+@Component
+public class NotificationPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPipeline.class);
+
+    // 死信日志单独使用一个 logger，可在日志配置中输出到独立文件，便于人工补发
+    private static final Logger deadLetterLogger = LoggerFactory.getLogger("notification.dead-letter");
+
+    @Value("${notification.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notification.pipeline.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${notification.pipeline.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notification.pipeline.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${notification.pipeline.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${notification.pipeline.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Autowired
+    private MessageMapper messageMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Message> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter deliveredCounter;
+    private Counter retriedCounter;
+    private Counter deadLetterCounter;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        Gauge.builder("notification.pipeline.queue.depth", queue, BlockingQueue::size)
+                .description("待投递的消息通知数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("notification.pipeline.flush.latency")
+                .description("单批次消息通知写入耗时")
+                .register(meterRegistry);
+        deliveredCounter = Counter.builder("notification.pipeline.delivered")
+                .description("已写入数据库的消息通知数")
+                .register(meterRegistry);
+        retriedCounter = Counter.builder("notification.pipeline.retried")
+                .description("写入失败后重试的次数")
+                .register(meterRegistry);
+        deadLetterCounter = Counter.builder("notification.pipeline.dead_letter")
+                .description("重试耗尽写入死信日志的消息通知数")
+                .register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < workerThreads; i++) {
+            Thread worker = new Thread(this::runWorkerLoop, "notification-pipeline-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info("消息通知投递管道启动，投递线程: {}, 队列上限: {}, 批大小: {}, 刷写间隔: {}ms",
+                workerThreads, queueCapacity, batchSize, flushIntervalMs);
+    }
+
+    /**
+     * 应用关闭时停止接收并排空队列
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // 兜底：关闭瞬间入队的通知由当前线程写入
+        List<Message> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            deliver(remaining);
+        }
+        logger.info("消息通知投递管道已关闭，队列已排空");
+    }
+
+    /**
+     * 提交待发送的消息通知（应在业务事务提交后调用）
+     * 队列已满或管道已关闭时在当前线程同步写入
+     */
+    public void publish(List<Message> messages) {
+        List<Message> overflow = new ArrayList<>();
+        for (Message message : messages) {
+            if (message.getCreateTime() == null) {
+                message.setCreateTime(LocalDateTime.now());
+            }
+            if (message.getIsRead() == null) {
+                message.setIsRead(false);
+            }
+            if (!running || !queue.offer(message)) {
+                overflow.add(message);
+            }
+        }
+        if (!overflow.isEmpty()) {
+            logger.warn("消息通知队列已满，改为同步写入, 条数={}", overflow.size());
+            deliver(overflow);
+        }
+    }
+
+    /**
+     * 当前队列深度
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runWorkerLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Message first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 攒批：直到达到批大小或距首条通知超过刷写间隔
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Message next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                deliver(batch);
+            } catch (InterruptedException e) {
+                // 关闭流程由 running 标志控制，忽略中断继续排空
+                logger.debug("消息通知投递线程被中断");
+            } catch (Exception e) {
+                logger.error("消息通知批量投递异常: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<Message> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> messageMapper.insertBatch(batch));
+            deliveredCounter.increment(batch.size());
+        } catch (Exception e) {
+            logger.error("消息通知批量写入失败，改为逐条重试, 批大小={}, 原因: {}", batch.size(), e.getMessage());
+            for (Message message : batch) {
+                deliverWithRetry(message);
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void deliverWithRetry(Message message) {
+        Exception lastError = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                messageMapper.insert(message);
+                deliveredCounter.increment();
+                return;
+            } catch (Exception e) {
+                lastError = e;
+                message.setId(null);
+                if (attempt < maxAttempts) {
+                    retriedCounter.increment();
+                    sleepQuietly(retryBackoffMs * attempt);
+                }
+            }
+        }
+        deadLetterCounter.increment();
+        deadLetter(message, lastError);
+    }
+
+    private void deadLetter(Message message, Exception error) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(message);
+        } catch (Exception e) {
+            payload = String.valueOf(message);
+        }
+        deadLetterLogger.error("{} | 原因: {}", payload, error != null ? error.getMessage() : "未知");
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.temimi.pipeline;
+
+import com.temimi.mapper.UserVideoMapper;
+import com.temimi.model.entity.UserVideo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 观看历史异步批量写入（write-behind）
+ *
+ * 计入播放量的播放不再逐条 select + insert/update user_video：
+ * - 按 (uid, vid) 合并为"播放次数 + 最近播放时间"，同一用户反复播放只占一项
+ * - 每 flush-interval-ms 毫秒取走全部待写入项，每 batch-size 条用一条
+ *   INSERT ... ON DUPLICATE KEY UPDATE 写入
+ * - 写入失败的项放回内存，下次重试
+ * - 应用关闭时写入全部剩余项
+ * - 删除观看历史时记下删除时间，已取出但尚未写入、且最近播放早于删除时间的项不再写入，
+ *   删除时间在其后一个完整的刷写周期结束后清除
+ *
+ * 观看历史列表最多滞后一个刷写周期。
+ */
+@Component
+public class PlayHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayHistoryWriter.class);
+
+    @Value("${video.play-history.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private UserVideoMapper userVideoMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // (uid << 32 | vid) -> 待写入的播放记录
+    private final ConcurrentHashMap<Long, PendingPlay> pending = new ConcurrentHashMap<>();
+
+    // (uid << 32 | vid) -> 删除观看历史的时间
+    private final ConcurrentHashMap<Long, LocalDateTime> deletedAt = new ConcurrentHashMap<>();
+
+    private Timer flushTimer;
+    private Counter flushedCounter;
+    private Counter failedCounter;
+
+    /**
+     * 待写入的播放记录
+     */
+    private record PendingPlay(int plays, LocalDateTime lastPlayTime) {
+
+        private PendingPlay merge(PendingPlay other) {
+            LocalDateTime latest = other.lastPlayTime.isAfter(lastPlayTime) ? other.lastPlayTime : lastPlayTime;
+            return new PendingPlay(plays + other.plays, latest);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("video.play_history.pending", pending, Map::size)
+                .description("待写入数据库的观看历史条数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("video.play_history.flush.latency")
+                .description("单次观看历史批量写入耗时")
+                .register(meterRegistry);
+        flushedCounter = Counter.builder("video.play_history.flushed")
+                .description("已写入数据库的观看历史条数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("video.play_history.flush.failed")
+                .description("写入失败后放回内存的观看历史条数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次播放，稍后批量写入 user_video
+     */
+    public void record(Integer uid, Integer vid) {
+        merge(key(uid, vid), new PendingPlay(1, LocalDateTime.now()));
+    }
+
+    /**
+     * 丢弃尚未写入的播放记录（删除观看历史时调用，避免删除后又被写回）
+     *
+     * 与批量写入互斥：正在写入的批次先完成，之后的批次跳过删除前的播放记录，
+     * 调用方在返回后再清除数据库中的记录
+     */
+    public synchronized void discard(Integer uid, Integer vid) {
+        long key = key(uid, vid);
+        deletedAt.put(key, LocalDateTime.now());
+        pending.remove(key);
+    }
+
+    /**
+     * 定期把累积的播放记录写入数据库
+     */
+    @Scheduled(fixedDelayString = "${video.play-history.flush-interval-ms:2000}")
+    public void flush() {
+        LocalDateTime started = LocalDateTime.now();
+        try {
+            flushPending();
+        } finally {
+            // 本周期开始前的删除，已作用于之前取出的全部记录
+            deletedAt.values().removeIf(time -> time.isBefore(started));
+        }
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // 按 (uid, vid) 排序，多行 upsert 按唯一索引顺序加锁
+        TreeMap<Long, PendingPlay> rows = new TreeMap<>();
+        for (Long key : pending.keySet()) {
+            PendingPlay play = pending.remove(key);
+            if (play != null) {
+                rows.put(key, play);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<UserVideo> batch = new ArrayList<>(Math.min(batchSize, rows.size()));
+        for (Map.Entry<Long, PendingPlay> entry : rows.entrySet()) {
+            batch.add(toRow(entry.getKey(), entry.getValue()));
+            if (batch.size() >= batchSize) {
+                writeBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 应用关闭时写入剩余播放记录
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            logger.error("应用关闭时仍有观看历史未能写入, 条数={}", pending.size());
+        } else {
+            logger.info("观看历史批量写入已关闭，记录已全部写入");
+        }
+    }
+
+    private synchronized void writeBatch(List<UserVideo> batch) {
+        batch.removeIf(this::deletedAfterPlay);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            userVideoMapper.upsertPlayBatch(batch);
+            flushedCounter.increment(batch.size());
+        } catch (Exception e) {
+            // 写入失败时放回内存，下次刷写重试
+            failedCounter.increment(batch.size());
+            logger.error("观看历史批量写入失败，已放回, 条数={}, 原因: {}", batch.size(), e.getMessage());
+            for (UserVideo row : batch) {
+                merge(key(row.getUid(), row.getVid()), new PendingPlay(row.getPlay(), row.getPlayTime()));
+            }
+        }
+    }
+
+    /**
+     * 取出后、写入前观看历史被删除，且这条记录的最近播放早于删除
+     */
+    private boolean deletedAfterPlay(UserVideo row) {
+        LocalDateTime deleted = deletedAt.get(key(row.getUid(), row.getVid()));
+        return deleted != null && !row.getPlayTime().isAfter(deleted);
+    }
+
+    private void merge(Long key, PendingPlay play) {
+        pending.merge(key, play, PendingPlay::merge);
+    }
+
+    private static long key(Integer uid, Integer vid) {
+        return ((long) uid << 32) | (vid & 0xFFFFFFFFL);
+    }
+
+    private static UserVideo toRow(long key, PendingPlay play) {
+        UserVideo row = new UserVideo();
+        row.setUid((int) (key >> 32));
+        row.setVid((int) key);
+        row.setPlay(play.plays());
+        row.setPlayTime(play.lastPlayTime());
+        return row;
+    }
+}
@@ -0,0 +1,249 @@
+package com.temimi.pipeline;
+
+import com.temimi.mapper.VideoStatsMapper;
+import com.temimi.model.entity.VideoStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 视频计数异步合并写入（write-behind）
+ *
+ * 播放、点赞、投币、收藏、分享、弹幕计数不再每次更新 video_stats，而是先累加到内存：
+ * - 待写入增量按 (vid, 计数项) 存放在 ConcurrentHashMap 中，累加只锁住所在的哈希桶，热门视频之间互不阻塞
+ * - 每 flush-interval-ms 毫秒取走全部增量（remove 与 merge 原子互斥，不会丢失），
+ *   每 batch-size 个视频合并为一条 UPDATE ... JOIN
+ * - 写入失败的增量放回内存，下次重试
+ * - 读取统计时叠加尚未写入的增量，计数看起来仍是实时的
+ * - 应用关闭时写入全部剩余增量
+ *
+ * 在事务内调用时增量在事务提交后才生效，回滚的操作不会计数。
+ */
+@Component
+public class VideoStatsAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStatsAggregator.class);
+
+    /**
+     * 合并写入的计数项
+     */
+    public enum StatField {
+        PLAY,
+        GOOD,
+        COIN,
+        COLLECT,
+        SHARE,
+        DANMU
+    }
+
+    private static final int FIELD_BITS = 3;
+
+    @Value("${video.stats.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private VideoStatsMapper videoStatsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // (vid << FIELD_BITS | 计数项) -> 待写入增量
+    private final ConcurrentHashMap<Long, Long> pending = new ConcurrentHashMap<>();
+
+    private Timer flushTimer;
+    private Counter flushedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("video.stats.pending", pending, Map::size)
+                .description("待写入数据库的视频计数项数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("video.stats.flush.latency")
+                .description("单次视频计数合并写入耗时")
+                .register(meterRegistry);
+        flushedCounter = Counter.builder("video.stats.flushed")
+                .description("已写入数据库的视频统计行数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("video.stats.flush.failed")
+                .description("写入失败后放回内存的视频统计行数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 累加一个计数项（可为负），在事务内调用时提交后才生效
+     */
+    public void add(Integer vid, StatField field, int delta) {
+        if (vid == null || delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    merge(vid, field, delta);
+                }
+            });
+        } else {
+            merge(vid, field, delta);
+        }
+    }
+
+    /**
+     * 在从数据库读取的统计上叠加尚未写入的增量（原地修改）
+     */
+    public VideoStats applyPending(VideoStats stats) {
+        if (stats == null || stats.getVid() == null || pending.isEmpty()) {
+            return stats;
+        }
+        stats.setPlay(withPending(stats.getPlay(), stats.getVid(), StatField.PLAY));
+        stats.setGood(withPending(stats.getGood(), stats.getVid(), StatField.GOOD));
+        stats.setCoin(withPending(stats.getCoin(), stats.getVid(), StatField.COIN));
+        stats.setCollect(withPending(stats.getCollect(), stats.getVid(), StatField.COLLECT));
+        stats.setShare(withPending(stats.getShare(), stats.getVid(), StatField.SHARE));
+        stats.setDanmu(withPending(stats.getDanmu(), stats.getVid(), StatField.DANMU));
+        return stats;
+    }
+
+    /**
+     * 定期把累积的增量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${video.stats.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // 按 vid 排序，多行 UPDATE 按相同顺序加锁
+        TreeMap<Integer, VideoStats> rows = new TreeMap<>();
+        for (Long key : pending.keySet()) {
+            Long delta = pending.remove(key);
+            if (delta == null || delta == 0) {
+                continue;
+            }
+            int vid = (int) (key >> FIELD_BITS);
+            StatField field = StatField.values()[(int) (key & ((1 << FIELD_BITS) - 1))];
+            VideoStats row = rows.computeIfAbsent(vid, VideoStatsAggregator::emptyRow);
+            setDelta(row, field, (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, delta)));
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<VideoStats> batch = new ArrayList<>(Math.min(batchSize, rows.size()));
+        for (VideoStats row : rows.values()) {
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                writeBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 应用关闭时写入剩余增量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            logger.error("应用关闭时仍有视频计数未能写入, 计数项数={}", pending.size());
+        } else {
+            logger.info("视频计数合并写入已关闭，增量已全部写入");
+        }
+    }
+
+    private void writeBatch(List<VideoStats> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> videoStatsMapper.applyDeltas(batch));
+            flushedCounter.increment(batch.size());
+        } catch (Exception e) {
+            // 写入失败时增量放回内存，下次刷写重试
+            failedCounter.increment(batch.size());
+            logger.error("视频计数合并写入失败，增量已放回, 视频数={}, 原因: {}", batch.size(), e.getMessage());
+            for (VideoStats row : batch) {
+                for (StatField field : StatField.values()) {
+                    int delta = getDelta(row, field);
+                    if (delta != 0) {
+                        merge(row.getVid(), field, delta);
+                    }
+                }
+            }
+        }
+    }
+
+    private void merge(Integer vid, StatField field, long delta) {
+        // 增量归零时移除，避免空闲视频常驻内存
+        pending.compute(key(vid, field), (k, current) -> {
+            long sum = (current != null ? current : 0L) + delta;
+            return sum == 0 ? null : sum;
+        });
+    }
+
+    private int withPending(Integer value, Integer vid, StatField field) {
+        Long delta = pending.get(key(vid, field));
+        long base = value != null ? value : 0;
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, base + (delta != null ? delta : 0)));
+    }
+
+    private static long key(Integer vid, StatField field) {
+        return ((long) vid << FIELD_BITS) | field.ordinal();
+    }
+
+    private static VideoStats emptyRow(Integer vid) {
+        VideoStats row = new VideoStats();
+        row.setVid(vid);
+        for (StatField field : StatField.values()) {
+            setDelta(row, field, 0);
+        }
+        return row;
+    }
+
+    private static void setDelta(VideoStats row, StatField field, int delta) {
+        switch (field) {
+            case PLAY -> row.setPlay(delta);
+            case GOOD -> row.setGood(delta);
+            case COIN -> row.setCoin(delta);
+            case COLLECT -> row.setCollect(delta);
+            case SHARE -> row.setShare(delta);
+            case DANMU -> row.setDanmu(delta);
+        }
+    }
+
+    private static int getDelta(VideoStats row, StatField field) {
+        return switch (field) {
+            case PLAY -> row.getPlay();
+            case GOOD -> row.getGood();
+            case COIN -> row.getCoin();
+            case COLLECT -> row.getCollect();
+            case SHARE -> row.getShare();
+            case DANMU -> row.getDanmu();
+        };
+    }
+}
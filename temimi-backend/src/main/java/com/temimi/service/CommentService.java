@@ -110,6 +110,25 @@ public interface CommentService extends IService<Comment> {
      */
     List<CommentTree> getCommentTreesByVid(Integer vid, Long offset, Integer type);
 
+    /**
+     * 游标分页获取评论树，深分页走索引范围扫描，翻页期间有新评论也不会错位
+     * @param vid 视频ID
+     * @param type 排序类型 1-按热度(love, id) 2-按时间(create_time, id)
+     * @param cursor 上一页返回的游标，第一页为空
+     * @param limit 每页条数
+     * @return 评论树列表与下一页游标
+     */
+    com.temimi.model.vo.CursorPageVO<CommentTree> getCommentTreesByCursor(Integer vid, Integer type, String cursor, int limit);
+
+    /**
+     * 游标分页获取根评论下的回复，按时间正序
+     * @param rootId 根评论ID
+     * @param cursor 上一页返回的游标，第一页为空
+     * @param limit 每页条数
+     * @return 回复列表与下一页游标
+     */
+    com.temimi.model.vo.CursorPageVO<java.util.Map<String, Object>> getRepliesByCursor(Integer rootId, String cursor, int limit);
+
     /**
      * 获取UP主点赞的评论ID列表
      * @param uid UP主用户ID
@@ -123,4 +142,17 @@ public interface CommentService extends IService<Comment> {
      * @return 包含用户信息的完整评论数据
      */
     java.util.Map<String, Object> buildCommentResponse(Comment comment);
-}
\ No newline at end of file
+
+    /**
+     * 批量软删除评论，按批次执行 UPDATE ... WHERE id IN (...)
+     * @param ids 评论ID列表
+     * @return 每个ID的处理结果
+     */
+    com.temimi.model.vo.BatchModerationVO batchDeleteComments(List<Integer> ids);
+
+    /**
+     * 对账：按实际的未删除回复数修正根评论的 reply_count
+     * @return 被修正的根评论数
+     */
+    int reconcileReplyCounts();
+}
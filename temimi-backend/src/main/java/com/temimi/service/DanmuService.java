@@ -2,6 +2,7 @@ package com.temimi.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.temimi.model.entity.Danmu;
+import com.temimi.model.vo.BatchModerationVO;
 
 import java.util.List;
 
@@ -17,6 +18,42 @@ public interface DanmuService extends IService<Danmu> {
      */
     List<Danmu> getDanmuByVid(Integer vid);
 
+    /**
+     * 获取视频某个时间分段内的弹幕（从分段索引读取）
+     * @param vid 视频ID
+     * @param segment 分段序号，从 0 开始，每段时长见 {@link #getDanmuSegmentWidthSeconds()}
+     * @return 按时间点排序的弹幕列表
+     */
+    List<Danmu> getDanmuSegment(Integer vid, int segment);
+
+    /**
+     * 弹幕分段时长（秒）
+     * @return 分段时长
+     */
+    int getDanmuSegmentWidthSeconds();
+
+    /**
+     * 获取视频的弹幕密度直方图（从密度缓存读取）
+     * @param vid 视频ID
+     * @return 每个时间桶内的弹幕数，桶宽见 {@link #getDanmuDensityBucketSeconds()}
+     */
+    int[] getDanmuDensity(Integer vid);
+
+    /**
+     * 弹幕密度时间桶宽度（秒）
+     * @return 桶宽
+     */
+    int getDanmuDensityBucketSeconds();
+
+    /**
+     * 增量同步：获取ID大于游标的弹幕，供断线重连或中途进入的客户端补齐
+     * @param vid 视频ID
+     * @param cursor 客户端已拿到的最大弹幕ID，首次传 0
+     * @param limit 最大返回条数（超过上限按上限处理）
+     * @return 按ID升序的弹幕列表
+     */
+    List<Danmu> getDanmuSince(Integer vid, Integer cursor, int limit);
+
     /**
      * 根据视频ID和日期查询历史弹幕
      * @param vid 视频ID
@@ -41,9 +78,18 @@ public interface DanmuService extends IService<Danmu> {
     boolean sendDanmu(Danmu danmu, Integer uid);
 
     /**
-     * 删除弹幕
+     * 删除弹幕（软删除，state=3，与批量删除一致）
      * @param danmuId 弹幕ID
      * @return 是否删除成功
      */
     boolean deleteDanmu(Integer danmuId);
-}
\ No newline at end of file
+
+    /**
+     * 批量审核弹幕（删除或隐藏），按批次执行 UPDATE ... WHERE id IN (...)
+     * @param ids 弹幕ID列表
+     * @param targetState 目标状态：{@link com.temimi.constant.BusinessConstants#DANMU_STATE_DELETED} 删除，
+     *                    {@link com.temimi.constant.BusinessConstants#DANMU_STATE_PENDING} 隐藏待审核
+     * @return 每个ID的处理结果
+     */
+    BatchModerationVO moderateDanmu(List<Integer> ids, int targetState);
+}
@@ -3,6 +3,8 @@ package com.temimi.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.temimi.model.entity.UserVideo;
 
+import java.util.List;
+
 /**
  * 用户视频行为服务接口
  */
@@ -58,19 +60,19 @@ public interface UserVideoService extends IService<UserVideo> {
     boolean uncollectVideo(Integer uid, Integer vid);
 
     /**
-     * 判断是否应该增加播放量（防止短时间内重复计数）
+     * 记录一次播放：距离上次计数超过去重窗口（默认30分钟）时计入，并异步更新观看历史
      * @param uid 用户ID
      * @param vid 视频ID
-     * @return 如果距离上次播放超过30分钟，返回true；否则返回false
+     * @return 本次播放应计入视频播放量返回true；窗口内重复播放返回false
      */
-    boolean shouldIncrementPlayCount(Integer uid, Integer vid);
+    boolean tryCountPlay(Integer uid, Integer vid);
 
     /**
-     * 更新用户的播放时间戳
+     * 删除用户的观看历史（播放次数清零、清除最近播放时间）
      * @param uid 用户ID
-     * @param vid 视频ID
+     * @param vids 视频ID列表
      */
-    void updatePlayTime(Integer uid, Integer vid);
+    void deletePlayHistory(Integer uid, List<Integer> vids);
 
     /**
      * 根据用户ID和视频ID获取用户视频关联记录
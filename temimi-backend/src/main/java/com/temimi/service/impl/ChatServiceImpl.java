@@ -97,7 +97,7 @@ public class ChatServiceImpl extends ServiceImpl<ChatMapper, Chat> implements Ch
     }
 
     @Autowired
-    private com.temimi.service.UserService userService;
+    private com.temimi.cache.UserProfileCache userProfileCache;
     
     @Autowired
     private com.temimi.mapper.ChatDetailedMapper chatDetailedMapper;
@@ -124,6 +124,8 @@ public class ChatServiceImpl extends ServiceImpl<ChatMapper, Chat> implements Ch
         
         // 构造前端需要的数据格式
         List<Map<String, Object>> resultList = new java.util.ArrayList<>();
+        Map<Integer, com.temimi.model.dto.UserProfile> anotherUsers = userProfileCache.getAll(
+                chatList.stream().map(Chat::getAnotherId).toList());
         for (Chat chat : chatList) {
             Map<String, Object> item = new HashMap<>();
             
@@ -131,13 +133,13 @@ public class ChatServiceImpl extends ServiceImpl<ChatMapper, Chat> implements Ch
             item.put("chat", chat);
             
             // 2. user 信息（对方用户）
-            com.temimi.model.entity.User anotherUser = userService.getById(chat.getAnotherId());
+            com.temimi.model.dto.UserProfile anotherUser = anotherUsers.get(chat.getAnotherId());
             if (anotherUser != null) {
                 Map<String, Object> userInfo = new HashMap<>();
-                userInfo.put("uid", anotherUser.getUid());
-                userInfo.put("nickname", anotherUser.getNickname());
-                userInfo.put("avatar_url", anotherUser.getAvatar());
-                userInfo.put("auth", anotherUser.getAuth());
+                userInfo.put("uid", anotherUser.uid());
+                userInfo.put("nickname", anotherUser.nickname());
+                userInfo.put("avatar_url", anotherUser.avatar());
+                userInfo.put("auth", anotherUser.auth());
                 item.put("user", userInfo);
                 
                 // 3. detail 信息（最后一条消息）
@@ -3,6 +3,7 @@ package com.temimi.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.temimi.mapper.*;
 import com.temimi.model.entity.*;
+import com.temimi.pipeline.VideoStatsAggregator;
 import com.temimi.service.CoinService;
 import com.temimi.service.SystemNotificationService;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +40,9 @@ public class CoinServiceImpl implements CoinService {
     @Autowired
     private VideoStatsMapper videoStatsMapper;
 
+    @Autowired
+    private VideoStatsAggregator videoStatsAggregator;
+
     @Autowired
     private UserVideoMapper userVideoMapper;
 
@@ -179,7 +183,7 @@ public class CoinServiceImpl implements CoinService {
     @Transactional
     public void checkCollectMilestone(Integer vid) {
         // 获取视频统计信息
-        VideoStats stats = videoStatsMapper.selectById(vid);
+        VideoStats stats = videoStatsAggregator.applyPending(videoStatsMapper.selectById(vid));
         if (stats == null) {
             return;
         }
@@ -3,34 +3,57 @@ package com.temimi.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.temimi.cache.CommentVoteCache;
+import com.temimi.cache.HotCommentRanking;
+import com.temimi.cache.UserProfileCache;
 import com.temimi.constant.BusinessConstants;
 import com.temimi.exception.BusinessException;
 import com.temimi.exception.BusinessErrorCode;
 import com.temimi.mapper.CommentMapper;
+import com.temimi.mapper.VideoStatsMapper;
 import com.temimi.mapper.UserCommentLikeMapper;
+import com.temimi.model.dto.UserProfile;
 import com.temimi.model.entity.Comment;
 import com.temimi.model.entity.CommentTree;
 import com.temimi.model.entity.Message;
-import com.temimi.model.entity.User;
 import com.temimi.model.entity.UserCommentLike;
+import com.temimi.model.enums.ModerationResult;
+import com.temimi.model.vo.BatchModerationVO;
+import com.temimi.model.vo.CursorPageVO;
+import com.temimi.pipeline.NotificationPipeline;
 import com.temimi.service.CommentService;
-import com.temimi.service.MessageService;
-import com.temimi.service.UserService;
 import com.temimi.service.VideoStatsService;
+import com.temimi.util.CommentCursor;
+import com.temimi.util.ContentSanitizer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @Slf4j
 @Service
 public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> implements CommentService {
 
+    @Value("${comment.reply-count.reconcile-batch:5000}")
+    private int reconcileBatch;
+
     @Autowired
     private CommentMapper commentMapper;
 
@@ -41,10 +64,22 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
     private VideoStatsService videoStatsService;
 
     @Autowired
-    private UserService userService;
+    private VideoStatsMapper videoStatsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private CommentVoteCache commentVoteCache;
 
     @Autowired
-    private MessageService messageService;
+    private HotCommentRanking hotCommentRanking;
+
+    @Autowired
+    private NotificationPipeline notificationPipeline;
 
     @Autowired
     private com.temimi.service.MsgUnreadService msgUnreadService;
@@ -88,10 +123,10 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
      */
     private void fillUserInfo(Comment comment) {
         if (comment.getUid() != null) {
-            User user = userService.getUserByIdSafe(comment.getUid());
+            UserProfile user = userProfileCache.get(comment.getUid());
             if (user != null) {
-                comment.setUsername(user.getNickname());
-                comment.setUserAvatar(user.getAvatar());
+                comment.setUsername(user.nickname());
+                comment.setUserAvatar(user.avatar());
             } else {
                 comment.setUsername("未知用户");
                 comment.setUserAvatar(BusinessConstants.DEFAULT_AVATAR_PATH);
@@ -139,12 +174,16 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
             log.info("开始发布评论 - uid: {}, vid: {}, parent_id: {}, root_id: {}",
                 uid, comment.getVid(), comment.getParentId(), comment.getRootId());
 
+            // HTML 实体编码（前端以 v-html 渲染评论），评论不套用弹幕的关键字拦截
+            comment.setContent(ContentSanitizer.escape(
+                comment.getContent(), BusinessConstants.COMMENT_MAX_LENGTH, "评论"));
             comment.setUid(uid);
             comment.setCreateTime(LocalDateTime.now());
             comment.setLove(BusinessConstants.STATS_INITIAL_VALUE);
             comment.setBad(BusinessConstants.STATS_INITIAL_VALUE);
             comment.setIsTop(Boolean.FALSE);      // ✅ 明确使用 Boolean.FALSE
             comment.setIsDeleted(Boolean.FALSE);  // ✅ 明确使用 Boolean.FALSE
+            comment.setReplyCount(BusinessConstants.STATS_INITIAL_VALUE);
 
             handleCommentHierarchy(comment);
 
@@ -155,6 +194,11 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
 
             log.info("评论插入数据库 - result: {}, comment_id: {}", result, comment.getId());
 
+            // 回复与根评论的回复数在同一事务内更新
+            if (result > 0 && !Objects.equals(comment.getRootId(), BusinessConstants.COMMENT_ROOT_ID)) {
+                commentMapper.incrementReplyCount(comment.getRootId());
+            }
+
             if (result > 0) {
                 // ✅ 确保MyBatis已填充自增ID
                 if (comment.getId() == null) {
@@ -170,6 +214,14 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
                     // ✅ 不影响评论发布，不重新抛出异常
                 }
 
+                // 提交后更新热门评论排行：根评论进入排行，回复增加所属根评论的热度
+                if (Objects.equals(comment.getRootId(), BusinessConstants.COMMENT_ROOT_ID)) {
+                    runAfterCommit(() -> hotCommentRanking.onRootPosted(
+                            comment.getVid(), comment.getId(), comment.getCreateTime()));
+                } else {
+                    runAfterCommit(() -> hotCommentRanking.onRepliesChanged(comment.getVid(), comment.getRootId(), 1));
+                }
+
                 // ✅ 处理未读消息通知
                 try {
                     handleUnreadNotification(comment, uid);
@@ -190,9 +242,12 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
      * 处理评论的未读消息通知
      * - 如果是回复评论，创建"回复"类型消息
      * - 如果评论内容包含@用户，创建"@"类型消息
+     * 消息在事务提交后异步批量写入
      */
     private void handleUnreadNotification(Comment comment, Integer uid) {
         try {
+            List<Message> notifications = new ArrayList<>();
+
             // 1. 处理回复通知
             if (comment.getToUserId() != null && comment.getToUserId() != 0 && !comment.getToUserId().equals(uid)) {
                 // 回复了其他用户的评论，创建回复消息
@@ -200,14 +255,14 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
                 replyMessage.setFromUid(uid);
                 replyMessage.setToUid(comment.getToUserId());
                 replyMessage.setType("reply");
-                replyMessage.setContent(truncateContent(comment.getContent(), 100)); // 截取前100字符
+                replyMessage.setContent(excerpt(comment.getContent(), 100)); // 截取前100字符
                 replyMessage.setTargetType("comment");
                 replyMessage.setTargetId(comment.getId());
-                replyMessage.setTargetContent(truncateContent(comment.getContent(), 50));
+                replyMessage.setTargetContent(excerpt(comment.getContent(), 50));
                 replyMessage.setIsRead(false);
                 replyMessage.setCreateTime(LocalDateTime.now());
 
-                messageService.createMessage(replyMessage);
+                notifications.add(replyMessage);
             }
 
             // 2. 处理@通知 - 解析评论内容中的@用户
@@ -221,23 +276,38 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
                         atMessage.setFromUid(uid);
                         atMessage.setToUid(mentionedUid);
                         atMessage.setType("at");
-                        atMessage.setContent(truncateContent(comment.getContent(), 100));
+                        atMessage.setContent(excerpt(comment.getContent(), 100));
                         atMessage.setTargetType("comment");
                         atMessage.setTargetId(comment.getId());
-                        atMessage.setTargetContent(truncateContent(comment.getContent(), 50));
+                        atMessage.setTargetContent(excerpt(comment.getContent(), 50));
                         atMessage.setIsRead(false);
                         atMessage.setCreateTime(LocalDateTime.now());
 
-                        messageService.createMessage(atMessage);
+                        notifications.add(atMessage);
                     }
                 }
             }
+
+            // 事务提交后交给通知管道批量写入，被@用户多时也不会拖长评论事务
+            if (!notifications.isEmpty()) {
+                runAfterCommit(() -> notificationPipeline.publish(notifications));
+            }
         } catch (Exception e) {
             // 未读消息通知失败不影响评论发布
             log.error("处理评论未读通知失败: {}", e.getMessage());
         }
     }
 
+    /**
+     * 截取已编码的评论内容作为消息摘要：先还原再截取，最后重新编码，避免把 &amp; 等实体截断
+     */
+    private String excerpt(String encodedContent, int maxLength) {
+        if (encodedContent == null || encodedContent.isEmpty()) {
+            return "";
+        }
+        return ContentSanitizer.encode(truncateContent(ContentSanitizer.decode(encodedContent), maxLength));
+    }
+
     /**
      * 截取字符串，避免消息内容过长
      * ✅ 改进：处理null、空字符串、负数等边界情况
@@ -297,44 +367,25 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
     @Transactional
     public boolean likeComment(Integer commentId, Integer uid) {
         // 检查评论是否存在
-        Comment comment = commentMapper.selectById(commentId);
-        if (comment == null || Boolean.TRUE.equals(comment.getIsDeleted())) {
-            throw new BusinessException(BusinessErrorCode.COMMENT_NOT_FOUND, "评论不存在或已被删除");
-        }
-
-        // 检查是否已经点赞
-        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid)
-                .eq("comment_id", commentId);
-        UserCommentLike existing = userCommentLikeMapper.selectOne(queryWrapper);
+        Comment comment = requireComment(commentId);
 
-        if (existing != null) {
-            if (UserCommentLike.TYPE_LIKE.equals(existing.getType())) {
-                // 已经点赞，不做任何操作
-                return true;
-            } else {
-                // 之前是点踩，先取消点踩，然后点赞
-                comment.setBad(Math.max(0, comment.getBad() - 1));
-                existing.setType(UserCommentLike.TYPE_LIKE);
-                existing.setCreateTime(LocalDateTime.now());
-                userCommentLikeMapper.updateById(existing);
-            }
+        // 点赞记录与计数都用条件 SQL 原子更新：新点赞 = 插入记录 + 点赞数加一；
+        // 已有记录时一条语句把点踩改为点赞并调整两个计数，已是点赞则不做修改
+        boolean changed;
+        if (userCommentLikeMapper.insertIfAbsent(uid, commentId, UserCommentLike.TYPE_LIKE) > 0) {
+            changed = commentMapper.incrementLove(commentId) > 0;
         } else {
-            // 新增点赞记录
-            UserCommentLike like = new UserCommentLike();
-            like.setUid(uid);
-            like.setCommentId(commentId);
-            like.setType(UserCommentLike.TYPE_LIKE);
-            like.setCreateTime(LocalDateTime.now());
-            userCommentLikeMapper.insert(like);
+            changed = userCommentLikeMapper.switchToLike(uid, commentId) > 0;
+        }
+        if (changed) {
+            runAfterCommit(() -> {
+                commentVoteCache.update(uid, comment.getVid(), commentId, UserCommentLike.TYPE_LIKE);
+                onRootLoveChanged(comment, 1);
+            });
         }
 
-        // 更新评论的点赞数
-        comment.setLove(comment.getLove() + 1);
-        int result = commentMapper.updateById(comment);
-
-        // 创建点赞消息（不给自己发消息）
-        if (result > 0 && !uid.equals(comment.getUid())) {
+        // 创建点赞消息（不给自己发消息，重复点赞不发消息）
+        if (changed && !uid.equals(comment.getUid())) {
             try {
                 Message likeMessage = new Message();
                 likeMessage.setFromUid(uid);
@@ -343,169 +394,138 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
                 likeMessage.setContent("赞了你的评论");
                 likeMessage.setTargetType("comment");
                 likeMessage.setTargetId(commentId);
-                likeMessage.setTargetContent(truncateContent(comment.getContent(), 50));
+                likeMessage.setTargetContent(excerpt(comment.getContent(), 50));
                 likeMessage.setIsRead(false);
                 likeMessage.setCreateTime(LocalDateTime.now());
 
-                messageService.createMessage(likeMessage);
+                runAfterCommit(() -> notificationPipeline.publish(List.of(likeMessage)));
             } catch (Exception e) {
                 log.error("创建点赞消息失败（不影响点赞操作）: {}", e.getMessage());
                 // 忽略异常，不影响点赞功能
             }
         }
 
-        return result > 0;
+        return true;
     }
 
     @Override
     @Transactional
     public boolean unlikeComment(Integer commentId, Integer uid) {
         // 检查评论是否存在
-        Comment comment = commentMapper.selectById(commentId);
-        if (comment == null || Boolean.TRUE.equals(comment.getIsDeleted())) {
-            throw new BusinessException(BusinessErrorCode.COMMENT_NOT_FOUND, "评论不存在或已被删除");
+        Comment comment = requireComment(commentId);
+
+        // 只有确实删除了点赞记录才减少点赞数
+        if (userCommentLikeMapper.deleteByType(uid, commentId, UserCommentLike.TYPE_LIKE) > 0) {
+            commentMapper.decrementLove(commentId);
+            runAfterCommit(() -> {
+                commentVoteCache.update(uid, comment.getVid(), commentId, null);
+                onRootLoveChanged(comment, -1);
+            });
         }
-
-        // 检查是否已经点赞
-        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid)
-                .eq("comment_id", commentId)
-                .eq("type", UserCommentLike.TYPE_LIKE);
-        UserCommentLike existing = userCommentLikeMapper.selectOne(queryWrapper);
-
-        if (existing == null) {
-            // 没有点赞记录，不做任何操作
-            return true;
-        }
-
-        // 删除点赞记录
-        userCommentLikeMapper.deleteById(existing.getId());
-
-        // 更新评论的点赞数
-        int newLoveCount = Math.max(BusinessConstants.STATS_INITIAL_VALUE, comment.getLove() - 1);
-        comment.setLove(newLoveCount);
-        int result = commentMapper.updateById(comment);
-        return result > 0;
+        return true;
     }
 
     @Override
     @Transactional
     public boolean dislikeComment(Integer commentId, Integer uid) {
         // 检查评论是否存在
-        Comment comment = commentMapper.selectById(commentId);
-        if (comment == null || Boolean.TRUE.equals(comment.getIsDeleted())) {
-            throw new BusinessException(BusinessErrorCode.COMMENT_NOT_FOUND, "评论不存在或已被删除");
-        }
+        Comment comment = requireComment(commentId);
 
-        // 检查是否已经有点赞/点踩记录
-        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid)
-                .eq("comment_id", commentId);
-        UserCommentLike existing = userCommentLikeMapper.selectOne(queryWrapper);
-
-        if (existing != null) {
-            if (UserCommentLike.TYPE_DISLIKE.equals(existing.getType())) {
-                // 已经点踩，不做任何操作
-                return true;
-            } else {
-                // 之前是点赞，先取消点赞，然后点踩
-                comment.setLove(Math.max(0, comment.getLove() - 1));
-                existing.setType(UserCommentLike.TYPE_DISLIKE);
-                existing.setCreateTime(LocalDateTime.now());
-                userCommentLikeMapper.updateById(existing);
-            }
+        boolean changed;
+        boolean wasLiked = false;
+        if (userCommentLikeMapper.insertIfAbsent(uid, commentId, UserCommentLike.TYPE_DISLIKE) > 0) {
+            changed = commentMapper.incrementBad(commentId) > 0;
         } else {
-            // 新增点踩记录
-            UserCommentLike dislike = new UserCommentLike();
-            dislike.setUid(uid);
-            dislike.setCommentId(commentId);
-            dislike.setType(UserCommentLike.TYPE_DISLIKE);
-            dislike.setCreateTime(LocalDateTime.now());
-            userCommentLikeMapper.insert(dislike);
+            // 已有记录且修改成功，说明原来是点赞，点赞数同时减一
+            changed = userCommentLikeMapper.switchToDislike(uid, commentId) > 0;
+            wasLiked = changed;
         }
-
-        // 更新评论的点踩数
-        if (comment.getBad() == null) {
-            comment.setBad(0);
+        if (changed) {
+            int loveDelta = wasLiked ? -1 : 0;
+            runAfterCommit(() -> {
+                commentVoteCache.update(uid, comment.getVid(), commentId, UserCommentLike.TYPE_DISLIKE);
+                if (loveDelta != 0) {
+                    onRootLoveChanged(comment, loveDelta);
+                }
+            });
         }
-        comment.setBad(comment.getBad() + 1);
-        int result = commentMapper.updateById(comment);
-        return result > 0;
+        return true;
     }
 
     @Override
     @Transactional
     public boolean undislikeComment(Integer commentId, Integer uid) {
         // 检查评论是否存在
+        Comment comment = requireComment(commentId);
+
+        // 只有确实删除了点踩记录才减少点踩数
+        if (userCommentLikeMapper.deleteByType(uid, commentId, UserCommentLike.TYPE_DISLIKE) > 0) {
+            commentMapper.decrementBad(commentId);
+            runAfterCommit(() -> commentVoteCache.update(uid, comment.getVid(), commentId, null));
+        }
+        return true;
+    }
+
+    /**
+     * 根评论点赞数变化时调整热门评论排行（回复的点赞不计入热度）
+     */
+    private void onRootLoveChanged(Comment comment, int delta) {
+        if (Objects.equals(comment.getRootId(), BusinessConstants.COMMENT_ROOT_ID)) {
+            hotCommentRanking.onLoveChanged(comment.getVid(), comment.getId(), delta);
+        }
+    }
+
+    /**
+     * 查询未删除的评论，不存在时抛出异常
+     */
+    private Comment requireComment(Integer commentId) {
         Comment comment = commentMapper.selectById(commentId);
         if (comment == null || Boolean.TRUE.equals(comment.getIsDeleted())) {
             throw new BusinessException(BusinessErrorCode.COMMENT_NOT_FOUND, "评论不存在或已被删除");
         }
+        return comment;
+    }
 
-        // 检查是否已经点踩
-        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid)
-                .eq("comment_id", commentId)
-                .eq("type", UserCommentLike.TYPE_DISLIKE);
-        UserCommentLike existing = userCommentLikeMapper.selectOne(queryWrapper);
-
-        if (existing == null) {
-            // 没有点踩记录，不做任何操作
-            return true;
+    /**
+     * 在当前事务提交后执行（无事务时立即执行），避免回滚的点赞状态进入缓存
+     */
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
-
-        // 删除点踩记录
-        userCommentLikeMapper.deleteById(existing.getId());
-
-        // 更新评论的点踩数
-        int newBadCount = Math.max(0, (comment.getBad() != null ? comment.getBad() : 0) - 1);
-        comment.setBad(newBadCount);
-        int result = commentMapper.updateById(comment);
-        return result > 0;
     }
 
     @Override
     public List<Integer> getUserLikedComments(Integer uid, Integer vid) {
-        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid)
-                .eq("type", UserCommentLike.TYPE_LIKE);
-
-        // 如果提供了视频ID，则只查询该视频下的评论
+        // 指定视频时从缓存的 (uid, vid) 点赞集合读取
         if (vid != null) {
-            // 需要关联comment表查询
-            List<UserCommentLike> likes = userCommentLikeMapper.selectList(queryWrapper);
-            return likes.stream()
-                    .map(UserCommentLike::getCommentId)
-                    .filter(commentId -> {
-                        Comment comment = commentMapper.selectById(commentId);
-                        return comment != null && vid.equals(comment.getVid());
-                    })
-                    .toList();
+            return commentVoteCache.get(uid, vid).likedIds();
         }
 
+        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("uid", uid)
+                .eq("type", UserCommentLike.TYPE_LIKE);
         List<UserCommentLike> likes = userCommentLikeMapper.selectList(queryWrapper);
         return likes.stream().map(UserCommentLike::getCommentId).toList();
     }
 
     @Override
     public List<Integer> getUserDislikedComments(Integer uid, Integer vid) {
-        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid)
-                .eq("type", UserCommentLike.TYPE_DISLIKE);
-
-        // 如果提供了视频ID，则只查询该视频下的评论
+        // 指定视频时从缓存的 (uid, vid) 点踩集合读取
         if (vid != null) {
-            // 需要关联comment表查询
-            List<UserCommentLike> dislikes = userCommentLikeMapper.selectList(queryWrapper);
-            return dislikes.stream()
-                    .map(UserCommentLike::getCommentId)
-                    .filter(commentId -> {
-                        Comment comment = commentMapper.selectById(commentId);
-                        return comment != null && vid.equals(comment.getVid());
-                    })
-                    .toList();
+            return commentVoteCache.get(uid, vid).dislikedIds();
         }
 
+        QueryWrapper<UserCommentLike> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("uid", uid)
+                .eq("type", UserCommentLike.TYPE_DISLIKE);
         List<UserCommentLike> dislikes = userCommentLikeMapper.selectList(queryWrapper);
         return dislikes.stream().map(UserCommentLike::getCommentId).toList();
     }
@@ -523,29 +543,234 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
 
         if (result > 0) {
             videoStatsService.decrementComment(comment.getVid());
+            if (Objects.equals(comment.getRootId(), BusinessConstants.COMMENT_ROOT_ID)) {
+                runAfterCommit(() -> hotCommentRanking.onRootDeleted(comment.getVid(), comment.getId()));
+            } else {
+                commentMapper.subtractReplyCount(comment.getRootId(), 1);
+                runAfterCommit(() -> hotCommentRanking.onRepliesChanged(comment.getVid(), comment.getRootId(), -1));
+            }
         }
 
         return result > 0;
     }
 
+    @Override
+    public BatchModerationVO batchDeleteComments(List<Integer> ids) {
+        List<Integer> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Integer, ModerationResult> results = new LinkedHashMap<>();
+        distinctIds.forEach(id -> results.put(id, ModerationResult.NOT_FOUND));
+
+        // 每批一个事务：锁定读取 -> 一条 UPDATE ... IN -> 按视频合并扣减评论数
+        int affected = 0;
+        for (int from = 0; from < distinctIds.size(); from += BusinessConstants.MODERATION_CHUNK_SIZE) {
+            List<Integer> chunk = distinctIds.subList(from,
+                    Math.min(from + BusinessConstants.MODERATION_CHUNK_SIZE, distinctIds.size()));
+            try {
+                Map<Integer, ModerationResult> chunkResults = new HashMap<>();
+                Integer chunkAffected = transactionTemplate.execute(
+                        status -> deleteCommentChunk(chunk, chunkResults));
+                results.putAll(chunkResults);
+                affected += chunkAffected;
+            } catch (Exception e) {
+                log.error("批量删除评论失败, 批大小={}, 原因: {}", chunk.size(), e.getMessage(), e);
+                chunk.forEach(id -> results.put(id, ModerationResult.FAILED));
+            }
+        }
+
+        log.info("批量删除评论完成, 请求数={}, 删除数={}", distinctIds.size(), affected);
+        return new BatchModerationVO(affected, results);
+    }
+
+    @Override
+    @Scheduled(cron = "${comment.reply-count.reconcile-cron:0 30 3 * * *}")
+    public int reconcileReplyCounts() {
+        // 按ID分段，每段一条 UPDATE ... JOIN，避免长时间锁住整张表
+        // 与新回复并发时可能覆盖掉一次加一，偏差由下一次对账修正
+        int maxId = commentMapper.selectMaxId();
+        int fixed = 0;
+        for (int from = 1; from <= maxId; from += reconcileBatch) {
+            fixed += commentMapper.reconcileReplyCounts(from, Math.min(from + reconcileBatch - 1, maxId));
+        }
+        if (fixed > 0) {
+            log.warn("评论回复数对账完成, 最大ID={}, 修正根评论数={}", maxId, fixed);
+        } else {
+            log.info("评论回复数对账完成, 最大ID={}, 无偏差", maxId);
+        }
+        return fixed;
+    }
+
+    /**
+     * 处理一批评论（在事务内执行）
+     *
+     * @return 实际删除的评论数
+     */
+    private int deleteCommentChunk(List<Integer> chunk, Map<Integer, ModerationResult> results) {
+        List<Integer> deleteIds = new ArrayList<>();
+        Map<Integer, Integer> deltaByVid = new HashMap<>();
+        Map<Integer, Integer> repliesByRoot = new HashMap<>();
+        for (Comment comment : commentMapper.selectForModeration(chunk)) {
+            if (Boolean.TRUE.equals(comment.getIsDeleted())) {
+                results.put(comment.getId(), ModerationResult.UNCHANGED);
+            } else {
+                results.put(comment.getId(), ModerationResult.SUCCESS);
+                deleteIds.add(comment.getId());
+                deltaByVid.merge(comment.getVid(), 1, Integer::sum);
+                if (!Objects.equals(comment.getRootId(), BusinessConstants.COMMENT_ROOT_ID)) {
+                    repliesByRoot.merge(comment.getRootId(), 1, Integer::sum);
+                }
+            }
+        }
+        if (deleteIds.isEmpty()) {
+            return 0;
+        }
+        commentMapper.softDeleteByIds(deleteIds);
+        // 每个视频、每个根评论一条 UPDATE
+        deltaByVid.forEach(videoStatsMapper::subtractComment);
+        repliesByRoot.forEach(commentMapper::subtractReplyCount);
+        runAfterCommit(() -> deltaByVid.keySet().forEach(hotCommentRanking::evictVideo));
+        return deleteIds.size();
+    }
+
     @Override
     public List<CommentTree> getCommentTreesByVid(Integer vid, Long offset, Integer type) {
-        // 简化实现：返回根评论列表，每个根评论包含其子评论
-        Page<Comment> page = new Page<>(offset / 20 + 1, 20);
+        int start = (int) Math.min(Math.max(offset == null ? 0 : offset, 0), Integer.MAX_VALUE);
+
+        // type: 1-按热度排序，从缓存的热门排行分页，超出排行范围的部分由排行按同一热度公式查询数据库
+        if (type == 1) {
+            return assembleCommentTrees(selectRootsInOrder(hotCommentRanking.page(vid, start, 20)));
+        }
+
+        // type: 2-按时间排序。简化实现：返回根评论列表，每个根评论包含其子评论
+        Page<Comment> page = new Page<>(start / 20 + 1, 20);
         QueryWrapper<Comment> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("vid", vid)
                 .eq("root_id", BusinessConstants.COMMENT_ROOT_ID)
-                .eq("is_deleted", Boolean.FALSE);
-        
-        // type: 1-按热度排序, 2-按时间排序
-        if (type == 1) {
-            queryWrapper.orderByDesc("love");
+                .eq("is_deleted", Boolean.FALSE)
+                .orderByDesc("create_time");
+
+        List<Comment> rootComments = commentMapper.selectPage(page, queryWrapper).getRecords();
+        return assembleCommentTrees(rootComments);
+    }
+
+    /**
+     * 按给定顺序查询根评论，跳过已删除的
+     */
+    private List<Comment> selectRootsInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Comment> byId = new HashMap<>();
+        for (Comment comment : commentMapper.selectBatchIds(ids)) {
+            byId.put(comment.getId(), comment);
+        }
+        List<Comment> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Comment comment = byId.get(id);
+            if (comment != null && !Boolean.TRUE.equals(comment.getIsDeleted())) {
+                ordered.add(comment);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public CursorPageVO<CommentTree> getCommentTreesByCursor(Integer vid, Integer type, String cursor, int limit) {
+        int sort = type != null && type == CommentCursor.SORT_HOT ? CommentCursor.SORT_HOT : CommentCursor.SORT_TIME;
+        CommentCursor after = CommentCursor.decode(cursor, sort);
+        int safeLimit = Math.max(1, Math.min(limit, BusinessConstants.COMMENT_CURSOR_MAX_LIMIT));
+
+        // 多取一条判断是否还有下一页
+        List<Comment> rootComments;
+        if (sort == CommentCursor.SORT_HOT) {
+            rootComments = commentMapper.selectRootsByLoveCursor(vid,
+                    after != null ? (int) after.key() : null, after != null ? after.id() : null, safeLimit + 1);
         } else {
-            queryWrapper.orderByDesc("create_time");
+            rootComments = commentMapper.selectRootsByTimeCursor(vid,
+                    after != null ? toCursorTime(after.key()) : null, after != null ? after.id() : null, safeLimit + 1);
+        }
+        boolean more = rootComments.size() > safeLimit;
+        if (more) {
+            rootComments = rootComments.subList(0, safeLimit);
         }
 
-        List<Comment> rootComments = commentMapper.selectPage(page, queryWrapper).getRecords();
-        
+        String nextCursor = null;
+        if (more) {
+            Comment last = rootComments.get(rootComments.size() - 1);
+            long key = sort == CommentCursor.SORT_HOT ? last.getLove() : toCursorKey(last.getCreateTime());
+            nextCursor = new CommentCursor(sort, key, last.getId()).encode();
+        }
+        return new CursorPageVO<>(assembleCommentTrees(rootComments), nextCursor, more);
+    }
+
+    @Override
+    public CursorPageVO<java.util.Map<String, Object>> getRepliesByCursor(Integer rootId, String cursor, int limit) {
+        CommentCursor after = CommentCursor.decode(cursor, CommentCursor.SORT_TIME);
+        int safeLimit = Math.max(1, Math.min(limit, BusinessConstants.COMMENT_CURSOR_MAX_LIMIT));
+
+        List<Comment> replies = commentMapper.selectRepliesByCursor(rootId,
+                after != null ? toCursorTime(after.key()) : null, after != null ? after.id() : null, safeLimit + 1);
+        boolean more = replies.size() > safeLimit;
+        if (more) {
+            replies = replies.subList(0, safeLimit);
+        }
+
+        Set<Integer> uids = new HashSet<>();
+        for (Comment reply : replies) {
+            uids.add(reply.getUid());
+            if (reply.getToUserId() != null && reply.getToUserId() != 0) {
+                uids.add(reply.getToUserId());
+            }
+        }
+        uids.remove(null);
+        Map<Integer, UserProfile> users = userProfileCache.getAll(uids);
+
+        String nextCursor = null;
+        if (more) {
+            Comment last = replies.get(replies.size() - 1);
+            nextCursor = new CommentCursor(CommentCursor.SORT_TIME, toCursorKey(last.getCreateTime()), last.getId()).encode();
+        }
+        List<java.util.Map<String, Object>> records = replies.stream().map(reply -> buildReply(reply, users)).toList();
+        return new CursorPageVO<>(records, nextCursor, more);
+    }
+
+    /**
+     * create_time 为秒级 DATETIME，游标中以秒级时间戳表示（仅用于编码，与时区无关）
+     */
+    private static long toCursorKey(LocalDateTime createTime) {
+        return createTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toCursorTime(long key) {
+        return LocalDateTime.ofEpochSecond(key, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * 批量组装评论树：整页根评论的前3条子评论、涉及的所有用户各一次查询
+     */
+    private List<CommentTree> assembleCommentTrees(List<Comment> rootComments) {
+        if (rootComments.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> rootIds = rootComments.stream().map(Comment::getId).toList();
+
+        // 每个根评论最早的3条子评论（一次窗口查询）
+        Map<Integer, List<Comment>> childrenByRoot = new HashMap<>();
+        for (Comment child : commentMapper.selectTopRepliesByRootIds(rootIds, 3)) {
+            childrenByRoot.computeIfAbsent(child.getRootId(), k -> new ArrayList<>()).add(child);
+        }
+
+        // 根评论作者、子评论作者、被回复用户（一次批量查询）
+        Set<Integer> uids = new HashSet<>();
+        rootComments.forEach(root -> uids.add(root.getUid()));
+        childrenByRoot.values().forEach(children -> children.forEach(child -> {
+            uids.add(child.getUid());
+            if (child.getToUserId() != null && child.getToUserId() != 0) {
+                uids.add(child.getToUserId());
+            }
+        }));
+        uids.remove(null);
+        Map<Integer, UserProfile> users = userProfileCache.getAll(uids);
+
         // 转换为 CommentTree 并填充完整的用户信息和子评论
         return rootComments.stream().map(root -> {
             CommentTree tree = new CommentTree();
@@ -558,105 +783,72 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
             tree.setContent(root.getContent());
             tree.setLove(root.getLove());
             tree.setBad(root.getBad() != null ? root.getBad() : 0);
-            
-            // 填充完整的用户信息对象
-            User user = userService.getUserByIdSafe(root.getUid());
-            java.util.Map<String, Object> userInfo = new java.util.HashMap<>();
-            if (user != null) {
-                userInfo.put("uid", user.getUid());
-                userInfo.put("nickname", user.getNickname());
-                userInfo.put("avatar_url", user.getAvatar());
-                userInfo.put("auth", user.getAuth() != null ? user.getAuth() : 0);
-                userInfo.put("vip", user.getVip() != null ? user.getVip() : 0);
-                userInfo.put("exp", user.getExp() != null ? user.getExp() : 0);
-            } else {
-                userInfo.put("uid", root.getUid());
-                userInfo.put("nickname", "未知用户");
-                userInfo.put("avatar_url", BusinessConstants.DEFAULT_AVATAR_PATH);
-                userInfo.put("auth", 0);
-                userInfo.put("vip", 0);
-                userInfo.put("exp", 0);
-            }
-            tree.setUser(userInfo);
-            
+            tree.setUser(buildUserInfo(users.get(root.getUid()), root.getUid()));
             tree.setCreateTime(root.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
             tree.setIsTop(Boolean.TRUE.equals(root.getIsTop()));
-            
-            // 查询子评论数量
-            QueryWrapper<Comment> childQuery = new QueryWrapper<>();
-            childQuery.eq("root_id", root.getId())
-                    .eq("is_deleted", Boolean.FALSE);
-            long childCount = commentMapper.selectCount(childQuery);
-            tree.setCount((int) childCount);
-            
-            // 加载部分子评论（最多3条）
-            if (childCount > 0) {
-                childQuery.orderByAsc("create_time").last("LIMIT 3");
-                List<Comment> childComments = commentMapper.selectList(childQuery);
-                List<java.util.Map<String, Object>> replies = childComments.stream().map(child -> {
-                    java.util.Map<String, Object> reply = new java.util.HashMap<>();
-                    reply.put("id", child.getId());
-                    reply.put("rootId", child.getRootId());
-                    reply.put("parentId", child.getParentId());
-                    reply.put("toUserId", child.getToUserId());
-                    reply.put("content", child.getContent());
-                    reply.put("love", child.getLove());
-                    reply.put("bad", child.getBad() != null ? child.getBad() : 0);
-                    reply.put("createTime", child.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                    
-                    // 子评论的用户信息
-                    User childUser = userService.getUserByIdSafe(child.getUid());
-                    java.util.Map<String, Object> childUserInfo = new java.util.HashMap<>();
-                    if (childUser != null) {
-                        childUserInfo.put("uid", childUser.getUid());
-                        childUserInfo.put("nickname", childUser.getNickname());
-                        childUserInfo.put("avatar_url", childUser.getAvatar());
-                        childUserInfo.put("auth", childUser.getAuth() != null ? childUser.getAuth() : 0);
-                        childUserInfo.put("vip", childUser.getVip() != null ? childUser.getVip() : 0);
-                        childUserInfo.put("exp", childUser.getExp() != null ? childUser.getExp() : 0);
-                    } else {
-                        childUserInfo.put("uid", child.getUid());
-                        childUserInfo.put("nickname", "未知用户");
-                        childUserInfo.put("avatar_url", BusinessConstants.DEFAULT_AVATAR_PATH);
-                        childUserInfo.put("auth", 0);
-                        childUserInfo.put("vip", 0);
-                        childUserInfo.put("exp", 0);
-                    }
-                    reply.put("user", childUserInfo);
-                    
-                    // 被回复用户的信息（toUser）
-                    if (child.getToUserId() != null && child.getToUserId() != 0) {
-                        User toUser = userService.getUserByIdSafe(child.getToUserId());
-                        java.util.Map<String, Object> toUserInfo = new java.util.HashMap<>();
-                        if (toUser != null) {
-                            toUserInfo.put("uid", toUser.getUid());
-                            toUserInfo.put("nickname", toUser.getNickname());
-                            toUserInfo.put("avatar_url", toUser.getAvatar());
-                            toUserInfo.put("auth", toUser.getAuth() != null ? toUser.getAuth() : 0);
-                            toUserInfo.put("vip", toUser.getVip() != null ? toUser.getVip() : 0);
-                            toUserInfo.put("exp", toUser.getExp() != null ? toUser.getExp() : 0);
-                        } else {
-                            toUserInfo.put("uid", child.getToUserId());
-                            toUserInfo.put("nickname", "未知用户");
-                            toUserInfo.put("avatar_url", BusinessConstants.DEFAULT_AVATAR_PATH);
-                            toUserInfo.put("auth", 0);
-                            toUserInfo.put("vip", 0);
-                            toUserInfo.put("exp", 0);
-                        }
-                        reply.put("toUser", toUserInfo);
-                    }
-                    
-                    return reply;
-                }).toList();
+
+            // 子评论数量直接读取根评论上维护的 reply_count
+            tree.setCount(root.getReplyCount() != null ? root.getReplyCount() : 0);
+
+            List<Comment> childComments = childrenByRoot.get(root.getId());
+            if (childComments != null) {
+                List<java.util.Map<String, Object>> replies = childComments.stream()
+                        .map(child -> buildReply(child, users))
+                        .toList();
                 tree.setReplies(replies);
             } else {
                 tree.setReplies(new java.util.ArrayList<>());
             }
-            
+
             return tree;
         }).toList();
     }
 
+    /**
+     * 子评论的响应数据（含评论者与被回复用户信息）
+     */
+    private java.util.Map<String, Object> buildReply(Comment child, Map<Integer, UserProfile> users) {
+        java.util.Map<String, Object> reply = new java.util.HashMap<>();
+        reply.put("id", child.getId());
+        reply.put("rootId", child.getRootId());
+        reply.put("parentId", child.getParentId());
+        reply.put("toUserId", child.getToUserId());
+        reply.put("content", child.getContent());
+        reply.put("love", child.getLove());
+        reply.put("bad", child.getBad() != null ? child.getBad() : 0);
+        reply.put("createTime", child.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        reply.put("user", buildUserInfo(users.get(child.getUid()), child.getUid()));
+
+        // 被回复用户的信息（toUser）
+        if (child.getToUserId() != null && child.getToUserId() != 0) {
+            reply.put("toUser", buildUserInfo(users.get(child.getToUserId()), child.getToUserId()));
+        }
+        return reply;
+    }
+
+    /**
+     * 评论中的用户信息对象，用户不存在时返回"未知用户"
+     */
+    private java.util.Map<String, Object> buildUserInfo(UserProfile user, Integer uid) {
+        java.util.Map<String, Object> userInfo = new java.util.HashMap<>();
+        if (user != null) {
+            userInfo.put("uid", user.uid());
+            userInfo.put("nickname", user.nickname());
+            userInfo.put("avatar_url", user.avatar());
+            userInfo.put("auth", user.auth() != null ? user.auth() : 0);
+            userInfo.put("vip", user.vip() != null ? user.vip() : 0);
+            userInfo.put("exp", user.exp() != null ? user.exp() : 0);
+        } else {
+            userInfo.put("uid", uid);
+            userInfo.put("nickname", "未知用户");
+            userInfo.put("avatar_url", BusinessConstants.DEFAULT_AVATAR_PATH);
+            userInfo.put("auth", 0);
+            userInfo.put("vip", 0);
+            userInfo.put("exp", 0);
+        }
+        return userInfo;
+    }
+
     @Override
     public List<Integer> getUpLikedComments(Integer uid) {
         // 简化实现：返回空列表
@@ -683,45 +875,11 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
         result.put("replies", new java.util.ArrayList<>()); // 空的回复列表
         
         // 获取用户信息
-        User user = userService.getUserByIdSafe(comment.getUid());
-        java.util.Map<String, Object> userInfo = new java.util.HashMap<>();
-        if (user != null) {
-            userInfo.put("uid", user.getUid());
-            userInfo.put("nickname", user.getNickname());
-            userInfo.put("avatar_url", user.getAvatar());
-            userInfo.put("auth", user.getAuth() != null ? user.getAuth() : 0);
-            userInfo.put("vip", user.getVip() != null ? user.getVip() : 0);
-            userInfo.put("exp", user.getExp() != null ? user.getExp() : 0);
-        } else {
-            userInfo.put("uid", comment.getUid());
-            userInfo.put("nickname", "未知用户");
-            userInfo.put("avatar_url", BusinessConstants.DEFAULT_AVATAR_PATH);
-            userInfo.put("auth", 0);
-            userInfo.put("vip", 0);
-            userInfo.put("exp", 0);
-        }
-        result.put("user", userInfo);
-        
+        result.put("user", buildUserInfo(userProfileCache.get(comment.getUid()), comment.getUid()));
+
         // 如果是回复评论，添加被回复用户信息
         if (comment.getToUserId() != null && comment.getToUserId() != 0) {
-            User toUser = userService.getUserByIdSafe(comment.getToUserId());
-            java.util.Map<String, Object> toUserInfo = new java.util.HashMap<>();
-            if (toUser != null) {
-                toUserInfo.put("uid", toUser.getUid());
-                toUserInfo.put("nickname", toUser.getNickname());
-                toUserInfo.put("avatar_url", toUser.getAvatar());
-                toUserInfo.put("auth", toUser.getAuth() != null ? toUser.getAuth() : 0);
-                toUserInfo.put("vip", toUser.getVip() != null ? toUser.getVip() : 0);
-                toUserInfo.put("exp", toUser.getExp() != null ? toUser.getExp() : 0);
-            } else {
-                toUserInfo.put("uid", comment.getToUserId());
-                toUserInfo.put("nickname", "未知用户");
-                toUserInfo.put("avatar_url", BusinessConstants.DEFAULT_AVATAR_PATH);
-                toUserInfo.put("auth", 0);
-                toUserInfo.put("vip", 0);
-                toUserInfo.put("exp", 0);
-            }
-            result.put("toUser", toUserInfo);
+            result.put("toUser", buildUserInfo(userProfileCache.get(comment.getToUserId()), comment.getToUserId()));
         }
         
         return result;
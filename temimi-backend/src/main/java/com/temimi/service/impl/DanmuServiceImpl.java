@@ -2,22 +2,41 @@ package com.temimi.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.temimi.cache.DanmuDensityCache;
+import com.temimi.cache.DanmuHistorySnapshotStore;
+import com.temimi.cache.DanmuSegmentCache;
+import com.temimi.constant.BusinessConstants;
 import com.temimi.exception.BusinessException;
 import com.temimi.exception.BusinessErrorCode;
 import com.temimi.mapper.DanmuMapper;
-import com.temimi.mapper.VideoStatsMapper;
 import com.temimi.model.entity.Danmu;
+import com.temimi.model.enums.ModerationResult;
+import com.temimi.model.vo.BatchModerationVO;
+import com.temimi.pipeline.DanmuWriteBehindPipeline;
+import com.temimi.pipeline.VideoStatsAggregator;
 import com.temimi.service.DanmuService;
+import com.temimi.util.ContentSanitizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * 弹幕服务实现类
@@ -36,29 +55,38 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
     private DanmuMapper danmuMapper;
 
     @Autowired
-    private VideoStatsMapper videoStatsMapper;
+    private VideoStatsAggregator videoStatsAggregator;
 
-    // ==================== 安全配置常量 ====================
+    @Autowired
+    private DanmuSegmentCache danmuSegmentCache;
+
+    @Autowired
+    private DanmuDensityCache danmuDensityCache;
+
+    @Autowired
+    private DanmuHistorySnapshotStore danmuHistorySnapshotStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     /**
-     * 弹幕内容最大长度（与数据库 VARCHAR(100) 保持一致）
+     * 异步批量写入管道，仅在 danmu.write-behind.enabled=true 时存在
      */
-    private static final int MAX_DANMU_LENGTH = 100;
+    @Autowired(required = false)
+    private DanmuWriteBehindPipeline danmuWriteBehindPipeline;
+
+    // ==================== 安全配置常量 ====================
 
     /**
-     * HTML 标签匹配正则（用于 XSS 防护）
-     * 匹配所有 <xxx> 形式的标签
+     * 弹幕内容最大长度（与数据库 VARCHAR(100) 保持一致）
      */
-    private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]+>");
+    private static final int MAX_DANMU_LENGTH = 100;
 
     /**
-     * 危险字符正则（script、iframe、onclick 等）
-     * 匹配常见的 XSS 攻击向量
+     * 弹幕时间点上限（秒），同时限制密度直方图等按时间点分桶的结构
      */
-    private static final Pattern DANGEROUS_PATTERN = Pattern.compile(
-        "(?i)(script|iframe|object|embed|applet|meta|link|style|" +
-        "javascript:|vbscript:|onclick|onerror|onload|onmouseover|eval|expression)"
-    );
+    @Value("${danmu.max-time-point-seconds:86400}")
+    private int maxTimePointSeconds;
 
     // ==================== 业务方法 ====================
 
@@ -73,19 +101,49 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
     }
 
     @Override
-    public List<Danmu> getDanmuByVidAndDate(Integer vid, String date) {
-        // 将日期字符串转换为 LocalDateTime 范围
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        LocalDateTime startOfDay = LocalDateTime.parse(date + "T00:00:00", DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        LocalDateTime endOfDay = LocalDateTime.parse(date + "T23:59:59", DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    public List<Danmu> getDanmuSegment(Integer vid, int segment) {
+        if (vid == null || vid <= 0) {
+            throw new BusinessException(BusinessErrorCode.VIDEO_NOT_FOUND, "视频ID无效");
+        }
+        if (segment < 0 || segment > maxTimePointSeconds / danmuSegmentCache.getSegmentWidthSeconds()) {
+            throw new BusinessException(BusinessErrorCode.SYSTEM_ERROR, "弹幕分段序号无效");
+        }
+        return danmuSegmentCache.getSegment(vid, segment);
+    }
 
-        QueryWrapper<Danmu> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("vid", vid)
-                .eq("state", 1) // 只查询已过审的弹幕
-                .between("create_date", startOfDay, endOfDay) // 在指定日期范围内
-                .orderByAsc("time_point"); // 按视频时间点排序
+    @Override
+    public int getDanmuSegmentWidthSeconds() {
+        return danmuSegmentCache.getSegmentWidthSeconds();
+    }
 
-        return danmuMapper.selectList(queryWrapper);
+    @Override
+    public int[] getDanmuDensity(Integer vid) {
+        if (vid == null || vid <= 0) {
+            throw new BusinessException(BusinessErrorCode.VIDEO_NOT_FOUND, "视频ID无效");
+        }
+        return danmuDensityCache.getHistogram(vid);
+    }
+
+    @Override
+    public int getDanmuDensityBucketSeconds() {
+        return danmuDensityCache.getBucketSeconds();
+    }
+
+    @Override
+    public List<Danmu> getDanmuSince(Integer vid, Integer cursor, int limit) {
+        if (vid == null || vid <= 0) {
+            throw new BusinessException(BusinessErrorCode.VIDEO_NOT_FOUND, "视频ID无效");
+        }
+        int safeCursor = cursor == null || cursor < 0 ? 0 : cursor;
+        int safeLimit = Math.max(1, Math.min(limit, BusinessConstants.DANMU_SYNC_MAX_LIMIT));
+        return danmuMapper.selectSince(vid, safeCursor, safeLimit);
+    }
+
+    @Override
+    public List<Danmu> getDanmuByVidAndDate(Integer vid, String date) {
+        LocalDate day = LocalDate.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        // 只查询已过审的弹幕，按视频时间点排序
+        return danmuMapper.selectByVidAndDay(vid, day.atStartOfDay(), day.atTime(23, 59, 59));
     }
 
     @Override
@@ -96,7 +154,7 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
             validateDanmuParams(danmu, uid);
 
             // ========== 2. XSS 过滤与内容清洗 ==========
-            String sanitizedContent = sanitizeDanmuContent(danmu.getContent());
+            String sanitizedContent = ContentSanitizer.sanitize(danmu.getContent(), MAX_DANMU_LENGTH, "弹幕");
             danmu.setContent(sanitizedContent);
 
             // ========== 3. 设置弹幕属性 ==========
@@ -116,6 +174,12 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
             }
 
             // ========== 4. 插入数据库 ==========
+            // 开启异步批量写入时交给管道，由管道合并 INSERT 与弹幕计数；队列满时回退为同步写入
+            if (danmuWriteBehindPipeline != null && danmuWriteBehindPipeline.offer(danmu)) {
+                logger.debug("弹幕已进入异步写入队列, vid={}, uid={}", danmu.getVid(), uid);
+                return true;
+            }
+
             int result = danmuMapper.insert(danmu);
 
             if (result <= 0) {
@@ -125,12 +189,18 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
 
             // ========== 5. 更新视频弹幕统计数 ==========
             try {
-                videoStatsMapper.incrementDanmu(danmu.getVid());
+                videoStatsAggregator.add(danmu.getVid(), VideoStatsAggregator.StatField.DANMU, 1);
             } catch (Exception e) {
                 logger.warn("更新视频弹幕统计数失败, vid={}, 原因: {}", danmu.getVid(), e.getMessage());
                 // 不影响主流程，仅记录日志
             }
 
+            // ========== 6. 事务提交后追加到弹幕分段索引与密度直方图 ==========
+            runAfterCommit(() -> {
+                danmuSegmentCache.append(danmu);
+                danmuDensityCache.append(danmu);
+            });
+
             logger.info("弹幕发送成功, id={}, vid={}, uid={}, content={}",
                 danmu.getId(), danmu.getVid(), uid, sanitizedContent);
 
@@ -173,7 +243,23 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
                 throw new BusinessException(BusinessErrorCode.SYSTEM_ERROR, "弹幕ID无效");
             }
 
-            int result = danmuMapper.deleteById(danmuId);
+            Danmu danmu = danmuMapper.selectById(danmuId);
+            if (danmu == null || danmu.getState() == BusinessConstants.DANMU_STATE_DELETED) {
+                return false;
+            }
+
+            // 与批量删除一致：软删除（state=3），只有已过审的弹幕计入过视频弹幕数
+            int result = danmuMapper.updateStateByIds(List.of(danmuId), BusinessConstants.DANMU_STATE_DELETED);
+            if (result > 0) {
+                if (danmu.getState() == BusinessConstants.DANMU_STATE_NORMAL) {
+                    videoStatsAggregator.add(danmu.getVid(), VideoStatsAggregator.StatField.DANMU, -1);
+                }
+                runAfterCommit(() -> {
+                    danmuSegmentCache.remove(danmu);
+                    danmuDensityCache.remove(danmu);
+                    danmuHistorySnapshotStore.invalidate(danmu);
+                });
+            }
             return result > 0;
         } catch (BusinessException e) {
             throw e;
@@ -183,8 +269,108 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
         }
     }
 
+    @Override
+    public BatchModerationVO moderateDanmu(List<Integer> ids, int targetState) {
+        if (targetState != BusinessConstants.DANMU_STATE_DELETED
+                && targetState != BusinessConstants.DANMU_STATE_PENDING) {
+            throw new BusinessException(BusinessErrorCode.SYSTEM_ERROR, "不支持的弹幕审核状态: " + targetState);
+        }
+        List<Integer> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Integer, ModerationResult> results = new LinkedHashMap<>();
+        distinctIds.forEach(id -> results.put(id, ModerationResult.NOT_FOUND));
+
+        // 每批一个事务：锁定读取 -> 一条 UPDATE ... IN -> 按视频合并扣减弹幕数（经统计聚合器批量写入）
+        List<Danmu> changed = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += BusinessConstants.MODERATION_CHUNK_SIZE) {
+            List<Integer> chunk = distinctIds.subList(from,
+                    Math.min(from + BusinessConstants.MODERATION_CHUNK_SIZE, distinctIds.size()));
+            try {
+                Map<Integer, ModerationResult> chunkResults = new HashMap<>();
+                List<Danmu> chunkChanged = transactionTemplate.execute(
+                        status -> moderateDanmuChunk(chunk, targetState, chunkResults));
+                results.putAll(chunkResults);
+                changed.addAll(chunkChanged);
+            } catch (Exception e) {
+                logger.error("批量审核弹幕失败, 批大小={}, 原因: {}", chunk.size(), e.getMessage(), e);
+                chunk.forEach(id -> results.put(id, ModerationResult.FAILED));
+            }
+        }
+
+        // 已提交的修改同步到内存索引与历史快照；批量修改无法逐条定位分段，直接按视频失效
+        Set<Integer> vids = new HashSet<>();
+        Set<String> snapshotDays = new HashSet<>();
+        for (Danmu danmu : changed) {
+            vids.add(danmu.getVid());
+            if (danmu.getCreateDate() != null
+                    && snapshotDays.add(danmu.getVid() + "/" + danmu.getCreateDate().toLocalDate())) {
+                danmuHistorySnapshotStore.invalidate(danmu);
+            }
+        }
+        vids.forEach(vid -> {
+            danmuSegmentCache.evictVideo(vid);
+            danmuDensityCache.evictVideo(vid);
+        });
+
+        logger.info("批量审核弹幕完成, 目标状态={}, 请求数={}, 修改数={}", targetState, distinctIds.size(), changed.size());
+        return new BatchModerationVO(changed.size(), results);
+    }
+
+    /**
+     * 处理一批弹幕（在事务内执行）
+     *
+     * @return 实际被修改的弹幕（保留修改前的状态）
+     */
+    private List<Danmu> moderateDanmuChunk(List<Integer> chunk, int targetState,
+                                           Map<Integer, ModerationResult> results) {
+        List<Integer> updateIds = new ArrayList<>();
+        List<Danmu> changed = new ArrayList<>();
+        for (Danmu danmu : danmuMapper.selectForModeration(chunk)) {
+            // 已是目标状态，或隐藏时已被删除的弹幕不做修改
+            boolean unchanged = danmu.getState() == targetState
+                    || danmu.getState() == BusinessConstants.DANMU_STATE_DELETED;
+            if (unchanged) {
+                results.put(danmu.getId(), ModerationResult.UNCHANGED);
+            } else {
+                results.put(danmu.getId(), ModerationResult.SUCCESS);
+                updateIds.add(danmu.getId());
+                changed.add(danmu);
+            }
+        }
+        if (updateIds.isEmpty()) {
+            return changed;
+        }
+        danmuMapper.updateStateByIds(updateIds, targetState);
+
+        // 只有已过审的弹幕计入过视频弹幕数，按视频合并后交给统计聚合器（本批提交后生效）
+        Map<Integer, Integer> deltaByVid = new HashMap<>();
+        for (Danmu danmu : changed) {
+            if (danmu.getState() == BusinessConstants.DANMU_STATE_NORMAL) {
+                deltaByVid.merge(danmu.getVid(), 1, Integer::sum);
+            }
+        }
+        deltaByVid.forEach((vid, count) ->
+                videoStatsAggregator.add(vid, VideoStatsAggregator.StatField.DANMU, -count));
+        return changed;
+    }
+
     // ==================== 私有辅助方法 ====================
 
+    /**
+     * 在当前事务提交后执行（无事务时立即执行），避免回滚的数据进入内存索引
+     */
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
     /**
      * 校验弹幕参数的合法性
      *
@@ -209,116 +395,9 @@ public class DanmuServiceImpl extends ServiceImpl<DanmuMapper, Danmu> implements
         }
 
         // 校验时间点
-        if (danmu.getTimePoint() == null || danmu.getTimePoint() < 0) {
+        // 取反判断同时拒绝 NaN
+        if (danmu.getTimePoint() == null || !(danmu.getTimePoint() >= 0 && danmu.getTimePoint() <= maxTimePointSeconds)) {
             throw new BusinessException(BusinessErrorCode.SYSTEM_ERROR, "弹幕时间点无效");
         }
     }
-
-    /**
-     * XSS 过滤 - 清洗弹幕内容
-     *
-     * 防护措施：
-     * 1. 移除所有 HTML 标签（<script>、<img>、<iframe> 等）
-     * 2. 移除危险关键字（javascript:、onclick 等）
-     * 3. 限制长度为 100 字符
-     * 4. 移除前后空白字符
-     *
-     * @param rawContent 原始弹幕内容
-     * @return 清洗后的安全内容
-     * @throws BusinessException 内容不合法时抛出
-     */
-    private String sanitizeDanmuContent(String rawContent) {
-        String content = rawContent.trim();
-
-        // 1. 长度校验（清洗前先检查，避免处理超长内容）
-        if (content.length() > MAX_DANMU_LENGTH * 2) {
-            throw new BusinessException(
-                BusinessErrorCode.SYSTEM_ERROR,
-                "弹幕内容过长，最多允许 " + MAX_DANMU_LENGTH + " 字符"
-            );
-        }
-
-        // 2. 移除 HTML 标签
-        // 例如：<script>alert('XSS')</script> -> alert('XSS')
-        content = HTML_TAG_PATTERN.matcher(content).replaceAll("");
-
-        // 3. 检测并拒绝危险字符
-        // 例如：javascript:alert(1)、onclick=xxx
-        if (DANGEROUS_PATTERN.matcher(content).find()) {
-            logger.warn("检测到疑似 XSS 攻击的弹幕内容: {}", rawContent);
-            throw new BusinessException(
-                BusinessErrorCode.SYSTEM_ERROR,
-                "弹幕内容包含非法字符，请修改后重试"
-            );
-        }
-
-        // 4. HTML 实体编码（额外防护层）
-        // 将特殊字符转换为 HTML 实体，防止浏览器解析
-        content = htmlEncode(content);
-
-        // 5. 最终长度校验（编码后可能变长）
-        if (content.length() > MAX_DANMU_LENGTH) {
-            throw new BusinessException(
-                BusinessErrorCode.SYSTEM_ERROR,
-                "弹幕内容过长，最多允许 " + MAX_DANMU_LENGTH + " 字符"
-            );
-        }
-
-        // 6. 防止空内容（全是空格或被过滤后为空）
-        if (content.isEmpty()) {
-            throw new BusinessException(
-                BusinessErrorCode.SYSTEM_ERROR,
-                "弹幕内容不能为空或仅包含特殊字符"
-            );
-        }
-
-        return content;
-    }
-
-    /**
-     * HTML 实体编码 - 将特殊字符转换为安全格式
-     *
-     * 转换规则：
-     * - & → &amp;
-     * - < → &lt;
-     * - > → &gt;
-     * - " → &quot;
-     * - ' → &#x27;
-     *
-     * @param input 原始字符串
-     * @return 编码后的字符串
-     */
-    private String htmlEncode(String input) {
-        if (input == null) {
-            return "";
-        }
-
-        StringBuilder encoded = new StringBuilder();
-        for (int i = 0; i < input.length(); i++) {
-            char c = input.charAt(i);
-            switch (c) {
-                case '&':
-                    encoded.append("&amp;");
-                    break;
-                case '<':
-                    encoded.append("&lt;");
-                    break;
-                case '>':
-                    encoded.append("&gt;");
-                    break;
-                case '"':
-                    encoded.append("&quot;");
-                    break;
-                case '\'':
-                    encoded.append("&#x27;");
-                    break;
-                case '/':
-                    encoded.append("&#x2F;");
-                    break;
-                default:
-                    encoded.append(c);
-            }
-        }
-        return encoded.toString();
-    }
 }
@@ -3,12 +3,13 @@ package com.temimi.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.temimi.cache.UserProfileCache;
 import com.temimi.mapper.DynamicLikeMapper;
 import com.temimi.mapper.DynamicMapper;
+import com.temimi.model.dto.UserProfile;
 import com.temimi.model.entity.*;
 import com.temimi.service.DynamicService;
 import com.temimi.service.UserFollowService;
-import com.temimi.service.UserService;
 import com.temimi.service.UserVideoService;
 import com.temimi.service.VideoService;
 import com.temimi.service.VideoStatsService;
@@ -18,6 +19,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,7 +30,7 @@ public class DynamicServiceImpl extends ServiceImpl<DynamicMapper, Dynamic> impl
     private DynamicLikeMapper dynamicLikeMapper;
 
     @Autowired
-    private UserService userService;
+    private UserProfileCache userProfileCache;
 
     @Autowired
     private VideoService videoService;
@@ -196,12 +199,14 @@ public class DynamicServiceImpl extends ServiceImpl<DynamicMapper, Dynamic> impl
      * 填充动态的用户信息和视频信息
      */
     private void fillDynamicInfo(List<Dynamic> dynamics, Integer currentUid) {
+        // 整页用户信息一次获取
+        Map<Integer, UserProfile> users = userProfileCache.getAll(
+                dynamics.stream().map(Dynamic::getUid).filter(Objects::nonNull).toList());
         for (Dynamic dynamic : dynamics) {
             // 填充用户信息
-            User user = userService.getById(dynamic.getUid());
-            if (user != null) {
-                user.setPassword(null);
-                dynamic.setUser(user);
+            UserProfile profile = users.get(dynamic.getUid());
+            if (profile != null) {
+                dynamic.setUser(toUser(profile));
             }
             
             // 填充视频信息（如果是转发视频或投稿视频类型）
@@ -235,4 +240,18 @@ public class DynamicServiceImpl extends ServiceImpl<DynamicMapper, Dynamic> impl
             }
         }
     }
+
+    /**
+     * 用户公开资料转换为动态中展示的用户信息
+     */
+    private static User toUser(UserProfile profile) {
+        User user = new User();
+        user.setUid(profile.uid());
+        user.setNickname(profile.nickname());
+        user.setAvatar(profile.avatar());
+        user.setAuth(profile.auth());
+        user.setVip(profile.vip());
+        user.setExp(profile.exp());
+        return user;
+    }
 }
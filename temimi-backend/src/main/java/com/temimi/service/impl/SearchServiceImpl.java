@@ -2,10 +2,12 @@ package com.temimi.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.temimi.assembler.VideoDtoAssembler;
+import com.temimi.cache.UserProfileCache;
 import com.temimi.constant.BusinessConstants;
 import com.temimi.mapper.UserMapper;
 import com.temimi.mapper.VideoMapper;
-import com.temimi.mapper.VideoStatsMapper;
+import com.temimi.model.dto.UserProfile;
 import com.temimi.model.entity.User;
 import com.temimi.model.entity.Video;
 import com.temimi.model.entity.VideoStats;
@@ -25,11 +27,14 @@ public class SearchServiceImpl implements SearchService {
     private VideoMapper videoMapper;
 
     @Autowired
-    private VideoStatsMapper videoStatsMapper;
+    private VideoDtoAssembler videoDtoAssembler;
 
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private UserProfileCache userProfileCache;
+
     @Override
     public Page<?> searchVideos(String keyword, Integer pageNum, Integer pageSize) {
         Page<Video> page = new Page<>(pageNum, pageSize);
@@ -56,6 +61,12 @@ public class SearchServiceImpl implements SearchService {
                 .orderByDesc("upload_date");  // 按上传时间倒序
         
         Page<Video> videoPage = videoMapper.selectPage(page, queryWrapper);
+
+        // 整页UP主信息、统计信息各一次获取
+        Map<Integer, UserProfile> uploaders = userProfileCache.getAll(
+                videoPage.getRecords().stream().map(Video::getUid).toList());
+        Map<Integer, VideoStats> statsByVid = videoDtoAssembler.loadStats(
+                videoPage.getRecords().stream().map(Video::getVid).toList());
         
         // 转换为前端需要的格式
         List<Map<String, Object>> result = videoPage.getRecords().stream().map(video -> {
@@ -72,7 +83,7 @@ public class SearchServiceImpl implements SearchService {
             item.put("video", videoInfo);
             
             // 统计信息
-            VideoStats stats = videoStatsMapper.selectById(video.getVid());
+            VideoStats stats = statsByVid.get(video.getVid());
             Map<String, Object> statsInfo = new HashMap<>();
             if (stats != null) {
                 statsInfo.put("play", stats.getPlay());
@@ -88,12 +99,12 @@ public class SearchServiceImpl implements SearchService {
             item.put("stats", statsInfo);
             
             // UP主信息
-            User user = userMapper.selectById(video.getUid());
+            UserProfile user = uploaders.get(video.getUid());
             Map<String, Object> userInfo = new HashMap<>();
             if (user != null) {
-                userInfo.put("uid", user.getUid());
-                userInfo.put("nickname", user.getNickname());
-                userInfo.put("avatar", user.getAvatar());
+                userInfo.put("uid", user.uid());
+                userInfo.put("nickname", user.nickname());
+                userInfo.put("avatar", user.avatar());
             }
             item.put("user", userInfo);
             
@@ -2,6 +2,7 @@ package com.temimi.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.temimi.cache.UserProfileCache;
 import com.temimi.constant.BusinessConstants;
 import com.temimi.exception.BusinessException;
 import com.temimi.exception.BusinessErrorCode;
@@ -33,6 +34,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     @Autowired
     private CoinService coinService;
 
+    @Autowired
+    private UserProfileCache userProfileCache;
+
     @Value("${file.upload.path:D:/shiyou_upload/}")
     private String uploadBasePath;
 
@@ -105,6 +109,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (result <= 0) {
             throw new BusinessException(BusinessErrorCode.DATABASE_ERROR, "更新用户信息失败");
         }
+        userProfileCache.invalidate(user.getUid());
         return true;
     }
 
@@ -250,6 +255,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         user.setAvatar(avatarUrl);
 
         int result = userMapper.updateById(user);
+        userProfileCache.invalidate(uid);
         return result > 0;
     }
     
@@ -3,11 +3,13 @@ package com.temimi.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.temimi.cache.PlayDedupWindow;
 import com.temimi.constant.BusinessConstants;
 import com.temimi.exception.BusinessException;
 import com.temimi.exception.BusinessErrorCode;
 import com.temimi.mapper.UserVideoMapper;
 import com.temimi.model.entity.UserVideo;
+import com.temimi.pipeline.PlayHistoryWriter;
 import com.temimi.service.CoinService;
 import com.temimi.service.UserVideoService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +17,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class UserVideoServiceImpl extends ServiceImpl<UserVideoMapper, UserVideo> implements UserVideoService {
@@ -25,6 +28,12 @@ public class UserVideoServiceImpl extends ServiceImpl<UserVideoMapper, UserVideo
     @Autowired
     private CoinService coinService;
 
+    @Autowired
+    private PlayDedupWindow playDedupWindow;
+
+    @Autowired
+    private PlayHistoryWriter playHistoryWriter;
+
     @Override
     @Transactional
     public boolean recordPlay(Integer uid, Integer vid) {
@@ -115,48 +124,29 @@ public class UserVideoServiceImpl extends ServiceImpl<UserVideoMapper, UserVideo
     }
 
     @Override
-    public boolean shouldIncrementPlayCount(Integer uid, Integer vid) {
-        QueryWrapper<UserVideo> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid).eq("vid", vid);
-        UserVideo userVideo = userVideoMapper.selectOne(queryWrapper);
-
-        if (userVideo == null || userVideo.getPlayTime() == null) {
-            // 第一次播放，应该计数
-            return true;
+    public boolean tryCountPlay(Integer uid, Integer vid) {
+        // 去重窗口在内存中判断，观看历史（播放次数、最近播放时间）批量异步写入
+        if (!playDedupWindow.tryAcquire(uid, vid)) {
+            return false;
         }
-
-        // 检查距离上次播放是否超过30分钟
-        LocalDateTime lastPlayTime = userVideo.getPlayTime();
-        LocalDateTime now = LocalDateTime.now();
-        long minutesDiff = java.time.Duration.between(lastPlayTime, now).toMinutes();
-
-        // 如果距离上次播放超过30分钟，则应该计数
-        return minutesDiff >= 30;
+        playHistoryWriter.record(uid, vid);
+        return true;
     }
 
     @Override
     @Transactional
-    public void updatePlayTime(Integer uid, Integer vid) {
-        QueryWrapper<UserVideo> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("uid", uid).eq("vid", vid);
-        UserVideo userVideo = userVideoMapper.selectOne(queryWrapper);
-
-        if (userVideo == null) {
-            // 创建新记录
-            userVideo = createNewUserVideoRecord(uid, vid);
-            userVideo.setPlay(1);
-            userVideo.setPlayTime(LocalDateTime.now());
-            userVideoMapper.insert(userVideo);
-        } else {
-            // 更新播放时间
-            userVideo.setPlayTime(LocalDateTime.now());
-            // 同时增加播放次数计数器（用于统计用户观看次数，不影响视频总播放量）
-            if (userVideo.getPlay() == null) {
-                userVideo.setPlay(1);
-            } else {
-                userVideo.setPlay(userVideo.getPlay() + 1);
+    public void deletePlayHistory(Integer uid, List<Integer> vids) {
+        for (Integer vid : vids) {
+            // 先丢弃尚未写入的播放记录，避免删除后又被写回
+            playHistoryWriter.discard(uid, vid);
+            QueryWrapper<UserVideo> queryWrapper = new QueryWrapper<>();
+            queryWrapper.eq("uid", uid).eq("vid", vid);
+            UserVideo userVideo = userVideoMapper.selectOne(queryWrapper);
+            if (userVideo != null) {
+                userVideo.setPlay(0);
+                userVideo.setPlayTime(null);
+                userVideoMapper.updateById(userVideo);
             }
-            userVideoMapper.updateById(userVideo);
         }
     }
 
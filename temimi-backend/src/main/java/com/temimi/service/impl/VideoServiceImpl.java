@@ -3,17 +3,18 @@ package com.temimi.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.temimi.assembler.VideoDtoAssembler;
 import com.temimi.constant.BusinessConstants;
 import com.temimi.exception.BusinessException;
 import com.temimi.exception.BusinessErrorCode;
 import com.temimi.mapper.VideoMapper;
 import com.temimi.mapper.VideoStatsMapper;
 import com.temimi.model.dto.VideoDetailDto;
-import com.temimi.model.entity.User;
 import com.temimi.model.entity.Video;
 import com.temimi.model.entity.VideoStats;
+import com.temimi.pipeline.HlsPackagingPipeline;
+import com.temimi.pipeline.VideoStatsAggregator;
 import com.temimi.service.DynamicService;
-import com.temimi.service.UserService;
 import com.temimi.service.VideoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,16 +44,19 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
     private VideoStatsMapper videoStatsMapper;
 
     @Autowired
-    private UserService userService;
+    private VideoDtoAssembler videoDtoAssembler;
 
     @Autowired
-    private com.temimi.service.CommentService commentService;
+    private VideoStatsAggregator videoStatsAggregator;
 
     @Autowired
-    private com.temimi.service.DanmuService danmuService;
+    private HlsPackagingPipeline hlsPackagingPipeline;
+
+    @Autowired
+    private com.temimi.service.CommentService commentService;
 
     @Autowired
-    private com.temimi.service.CategoryService categoryService;
+    private com.temimi.service.DanmuService danmuService;
 
     @Autowired
     private com.temimi.service.UserVideoService userVideoService;
@@ -146,6 +150,7 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
         
         if (result > 0) {
             initVideoStats(video.getVid());
+            hlsPackagingPipeline.submit(video);
         }
         return result > 0;
     }
@@ -171,6 +176,7 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
         }
 
         initVideoStats(video.getVid());
+        hlsPackagingPipeline.submit(video);
 
         return video.getVideoUrl();
     }
@@ -369,7 +375,7 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
             throw new BusinessException(BusinessErrorCode.VIDEO_STATUS_INVALID, "视频已被删除");
         }
 
-        return convertToDetailDto(video);
+        return videoDtoAssembler.toDetailDtos(List.of(video)).get(0);
     }
 
     @Override
@@ -397,50 +403,18 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
     }
 
     /**
-     * 将Video分页结果转换为VideoDetailDto分页结果
+     * 将Video分页结果转换为VideoDetailDto分页结果（整页批量组装）
      */
     private Page<VideoDetailDto> convertToDetailPage(Page<Video> videoPage) {
         Page<VideoDetailDto> detailPage = new Page<>(videoPage.getCurrent(), videoPage.getSize(), videoPage.getTotal());
-        List<VideoDetailDto> detailList = videoPage.getRecords().stream()
-                .map(this::convertToDetailDto)
-                .collect(Collectors.toList());
-        detailPage.setRecords(detailList);
+        detailPage.setRecords(videoDtoAssembler.toDetailDtos(videoPage.getRecords()));
         return detailPage;
     }
 
-    /**
-     * 将Video转换为VideoDetailDto
-     */
-    private VideoDetailDto convertToDetailDto(Video video) {
-        // 查询用户信息（使用安全版本，不抛异常）
-        User user = userService.getUserByIdSafe(video.getUid());
-        String uploaderName = user != null ? user.getNickname() : "未知UP主";
-        String uploaderAvatar = user != null ? user.getAvatar() : null;
-
-        // 查询统计信息
-        VideoStats stats = videoStatsMapper.selectById(video.getVid());
-
-        // 查询分区信息
-        String mcName = null;
-        String scName = null;
-        if (video.getScId() != null) {
-            com.temimi.model.entity.Category category = categoryService.getCategoryByScId(video.getScId());
-            if (category != null) {
-                mcName = category.getMcName();
-                scName = category.getScName();
-            }
-        }
-
-        return VideoDetailDto.from(video, uploaderName, uploaderAvatar, stats, mcName, scName);
-    }
-
     @Override
     public void incrementPlayCount(Integer vid) {
-        VideoStats stats = videoStatsMapper.selectById(vid);
-        if (stats != null) {
-            stats.setPlay(stats.getPlay() + 1);
-            videoStatsMapper.updateById(stats);
-        }
+        // 先累加到内存，定期合并写入，避免热门视频每次播放都锁 video_stats 行
+        videoStatsAggregator.add(vid, VideoStatsAggregator.StatField.PLAY, 1);
     }
 
     @Override
@@ -471,10 +445,8 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
 
         Page<Video> videoPage = videoMapper.selectPage(page, queryWrapper);
         
-        // 转换为UserVideoDto
-        List<com.temimi.model.dto.UserVideoDto> userVideoList = videoPage.getRecords().stream()
-                .map(this::convertToUserVideoDto)
-                .collect(Collectors.toList());
+        // 转换为UserVideoDto（整页批量组装）
+        List<com.temimi.model.dto.UserVideoDto> userVideoList = videoDtoAssembler.toUserVideoDtos(videoPage.getRecords());
         
         // 如果需要按播放量或点赞量排序，在这里对结果进行二次排序
         if (rule == 2) {
@@ -498,21 +470,6 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
         return resultPage;
     }
 
-    /**
-     * 将Video转换为UserVideoDto
-     */
-    private com.temimi.model.dto.UserVideoDto convertToUserVideoDto(Video video) {
-        // 查询用户信息（使用安全版本，不抛异常）
-        User user = userService.getUserByIdSafe(video.getUid());
-        String uploaderName = user != null ? user.getNickname() : "未知UP主";
-        String uploaderAvatar = user != null ? user.getAvatar() : null;
-
-        // 查询统计信息
-        VideoStats stats = videoStatsMapper.selectById(video.getVid());
-
-        return com.temimi.model.dto.UserVideoDto.from(video, uploaderName, uploaderAvatar, stats);
-    }
-
     @Override
     @Transactional
     public boolean deleteVideoCompletely(Integer vid, Integer uid) {
@@ -586,6 +543,9 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
                 }
             }
 
+            // 删除 HLS 分片目录
+            hlsPackagingPipeline.deleteOutput(video);
+
             // 删除封面文件（如果不是默认封面）
             if (video.getCoverUrl() != null && !video.getCoverUrl().isEmpty() 
                 && !video.getCoverUrl().equals(BusinessConstants.DEFAULT_COVER_PATH)) {
@@ -614,23 +574,10 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
         
         List<com.temimi.model.entity.UserVideo> userVideos = userVideoService.list(queryWrapper);
         
-        // 获取视频详情
-        return userVideos.stream().map(userVideo -> {
-            Video video = videoMapper.selectById(userVideo.getVid());
-            if (video == null) {
-                return null;
-            }
-            
-            // 获取视频作者信息
-            User uploader = userService.getById(video.getUid());
-            String uploaderName = uploader != null ? uploader.getNickname() : "未知用户";
-            String uploaderAvatar = uploader != null ? uploader.getAvatar() : null;
-            
-            // 获取视频统计信息
-            VideoStats stats = videoStatsMapper.selectById(video.getVid());
-            
-            return com.temimi.model.dto.UserVideoDto.from(video, uploaderName, uploaderAvatar, stats);
-        }).filter(dto -> dto != null).collect(Collectors.toList());
+        // 获取视频详情（整页批量组装）
+        List<Video> videos = videoDtoAssembler.loadVideosInOrder(
+                userVideos.stream().map(com.temimi.model.entity.UserVideo::getVid).toList());
+        return videoDtoAssembler.toUserVideoDtos(videos);
     }
 
     @Override
@@ -644,23 +591,10 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
         
         List<com.temimi.model.entity.UserVideo> userVideos = userVideoService.list(queryWrapper);
         
-        // 获取视频详情
-        return userVideos.stream().map(userVideo -> {
-            Video video = videoMapper.selectById(userVideo.getVid());
-            if (video == null) {
-                return null;
-            }
-            
-            // 获取视频作者信息
-            User uploader = userService.getById(video.getUid());
-            String uploaderName = uploader != null ? uploader.getNickname() : "未知用户";
-            String uploaderAvatar = uploader != null ? uploader.getAvatar() : null;
-            
-            // 获取视频统计信息
-            VideoStats stats = videoStatsMapper.selectById(video.getVid());
-            
-            return com.temimi.model.dto.UserVideoDto.from(video, uploaderName, uploaderAvatar, stats);
-        }).filter(dto -> dto != null).collect(Collectors.toList());
+        // 获取视频详情（整页批量组装）
+        List<Video> videos = videoDtoAssembler.loadVideosInOrder(
+                userVideos.stream().map(com.temimi.model.entity.UserVideo::getVid).toList());
+        return videoDtoAssembler.toUserVideoDtos(videos);
     }
 
     @Override
@@ -675,24 +609,12 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
         
         List<com.temimi.model.entity.UserVideo> userVideos = userVideoService.list(queryWrapper);
         
-        // 获取视频详情
-        return userVideos.stream().map(userVideo -> {
-            Video video = videoMapper.selectById(userVideo.getVid());
-            if (video == null) {
-                return null;
-            }
-            
-            // 获取视频作者信息
-            User uploader = userService.getById(video.getUid());
-            String uploaderName = uploader != null ? uploader.getNickname() : "未知用户";
-            String uploaderAvatar = uploader != null ? uploader.getAvatar() : null;
-            
-            // 获取视频统计信息
-            VideoStats stats = videoStatsMapper.selectById(video.getVid());
-            
-            // 传入播放时间
-            return com.temimi.model.dto.UserVideoDto.from(video, uploaderName, uploaderAvatar, stats, userVideo.getPlayTime());
-        }).filter(dto -> dto != null).collect(Collectors.toList());
+        // 获取视频详情（整页批量组装），附带播放时间
+        java.util.Map<Integer, LocalDateTime> playTimes = new java.util.HashMap<>();
+        userVideos.forEach(userVideo -> playTimes.put(userVideo.getVid(), userVideo.getPlayTime()));
+        List<Video> videos = videoDtoAssembler.loadVideosInOrder(
+                userVideos.stream().map(com.temimi.model.entity.UserVideo::getVid).toList());
+        return videoDtoAssembler.toUserVideoDtos(videos, playTimes);
     }
 
     @Override
@@ -725,22 +647,9 @@ public class VideoServiceImpl extends ServiceImpl<VideoMapper, Video> implements
         
         List<com.temimi.model.entity.FavoriteVideo> favoriteVideos = favoriteVideoMapper.selectList(favVideoQueryWrapper);
         
-        // 获取视频详情
-        return favoriteVideos.stream().map(favoriteVideo -> {
-            Video video = videoMapper.selectById(favoriteVideo.getVid());
-            if (video == null) {
-                return null;
-            }
-            
-            // 获取视频作者信息
-            User uploader = userService.getById(video.getUid());
-            String uploaderName = uploader != null ? uploader.getNickname() : "未知用户";
-            String uploaderAvatar = uploader != null ? uploader.getAvatar() : null;
-            
-            // 获取视频统计信息
-            VideoStats stats = videoStatsMapper.selectById(video.getVid());
-            
-            return com.temimi.model.dto.UserVideoDto.from(video, uploaderName, uploaderAvatar, stats);
-        }).filter(dto -> dto != null).collect(Collectors.toList());
+        // 获取视频详情（整页批量组装）
+        List<Video> videos = videoDtoAssembler.loadVideosInOrder(
+                favoriteVideos.stream().map(com.temimi.model.entity.FavoriteVideo::getVid).toList());
+        return videoDtoAssembler.toUserVideoDtos(videos);
     }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.temimi.mapper.VideoStatsMapper;
 import com.temimi.model.entity.VideoStats;
+import com.temimi.pipeline.VideoStatsAggregator;
+import com.temimi.pipeline.VideoStatsAggregator.StatField;
 import com.temimi.service.VideoStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,6 +17,9 @@ public class VideoStatsServiceImpl extends ServiceImpl<VideoStatsMapper, VideoSt
     @Autowired
     private VideoStatsMapper videoStatsMapper;
 
+    @Autowired
+    private VideoStatsAggregator videoStatsAggregator;
+
     @Override
     @Transactional
     public boolean initStats(Integer vid) {
@@ -33,59 +38,35 @@ public class VideoStatsServiceImpl extends ServiceImpl<VideoStatsMapper, VideoSt
         return result > 0;
     }
 
+    // 播放、点赞、投币、收藏、分享、弹幕计数交给 VideoStatsAggregator 合并写入，评论数仍随评论事务同步更新
     @Override
-    @Transactional
     public boolean incrementPlayCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("play = play + 1"); // 使用 setSql 避免并发问题
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.PLAY, 1);
+        return true;
     }
 
     @Override
-    @Transactional
     public boolean incrementLikeCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("good = good + 1");
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.GOOD, 1);
+        return true;
     }
 
     @Override
-    @Transactional
     public boolean decrementLikeCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("good = GREATEST(good - 1, 0)"); // 确保不小于0
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.GOOD, -1);
+        return true;
     }
 
     @Override
-    @Transactional
     public boolean decrementCollectCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("collect = GREATEST(collect - 1, 0)"); // 确保不小于0
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.COLLECT, -1);
+        return true;
     }
 
     @Override
-    @Transactional
     public boolean incrementDanmuCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("danmu = danmu + 1");
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.DANMU, 1);
+        return true;
     }
 
     @Override
@@ -117,40 +98,26 @@ public class VideoStatsServiceImpl extends ServiceImpl<VideoStatsMapper, VideoSt
     }
 
     @Override
-    @Transactional
     public boolean incrementCoinCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("coin = coin + 1");
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.COIN, 1);
+        return true;
     }
 
     @Override
-    @Transactional
     public boolean incrementCollectCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("collect = collect + 1");
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.COLLECT, 1);
+        return true;
     }
 
     @Override
-    @Transactional
     public boolean incrementShareCount(Integer vid) {
-        UpdateWrapper<VideoStats> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("vid", vid)
-                .setSql("share = share + 1");
-
-        int result = videoStatsMapper.update(null, updateWrapper);
-        return result > 0;
+        videoStatsAggregator.add(vid, StatField.SHARE, 1);
+        return true;
     }
 
     @Override
     public VideoStats getStatsByVid(Integer vid) {
-        return videoStatsMapper.selectById(vid);
+        // 叠加尚未写入数据库的增量
+        return videoStatsAggregator.applyPending(videoStatsMapper.selectById(vid));
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.temimi.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * HTTP Range 请求头中的一个字节区间（闭区间 [start, end]）
+ *
+ * 解析规则（RFC 9110 14.2）：
+ * - 只支持 bytes 单位，语法错误的 Range 头整体忽略，按完整内容响应
+ * - 支持 "a-b"、"a-"、"-n"（最后 n 个字节）三种形式，end 超出文件长度时截断
+ * - 不可满足的区间丢弃；全部不可满足时返回空列表（416）
+ * - 重叠或相邻的区间合并，避免客户端用大量重叠区间放大响应
+ */
+public record ByteRange(long start, long end) {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * Content-Range 响应头的值
+     */
+    public String contentRange(long total) {
+        return "bytes " + start + "-" + end + "/" + total;
+    }
+
+    /**
+     * 解析 Range 请求头
+     *
+     * @param header    Range 请求头
+     * @param total     资源总长度
+     * @param maxRanges 合并后允许的最大区间数
+     * @return null 表示忽略 Range 头（未携带或语法错误）；空列表表示不可满足；否则为按起点排序的区间
+     */
+    public static List<ByteRange> parse(String header, long total, int maxRanges) {
+        if (header == null || !header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec : header.substring(BYTES_UNIT.length()).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            try {
+                if (first.isEmpty()) {
+                    // 后缀区间：最后 n 个字节
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix == 0 || total == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, total - suffix);
+                    end = total - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start >= total) {
+                        continue;
+                    }
+                    end = Math.min(end, total - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            ranges.add(new ByteRange(start, end));
+        }
+
+        List<ByteRange> merged = coalesce(ranges);
+        return merged.size() > maxRanges ? List.of() : merged;
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() <= 1) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::start));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
@@ -0,0 +1,58 @@
+package com.temimi.util;
+
+import com.temimi.exception.BusinessErrorCode;
+import com.temimi.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 评论键集分页游标
+ *
+ * 记录上一页最后一条评论的排序键与ID，下一页从 (排序键, id) 之后继续，
+ * 深分页也是索引范围扫描，新评论到来时已翻过的页不会错位。
+ * 对客户端不透明，编码为 URL 安全的 Base64。
+ *
+ * @param sort 排序方式：{@link #SORT_HOT} 按点赞数，{@link #SORT_TIME} 按时间
+ * @param key  排序键：点赞数，或创建时间的秒级时间戳
+ * @param id   评论ID，排序键相同时的次序
+ */
+public record CommentCursor(int sort, long key, int id) {
+
+    public static final int SORT_HOT = 1;
+    public static final int SORT_TIME = 2;
+
+    /**
+     * 编码为不透明的游标字符串
+     */
+    public String encode() {
+        String raw = sort + ":" + key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 解析游标，空字符串表示第一页（返回 null）
+     *
+     * @param expectedSort 请求的排序方式，游标必须由同一排序方式生成
+     */
+    public static CommentCursor decode(String token, int expectedSort) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new BusinessException(BusinessErrorCode.COMMENT_CURSOR_INVALID);
+            }
+            CommentCursor cursor = new CommentCursor(
+                    Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            if (cursor.sort() != expectedSort) {
+                throw new BusinessException(BusinessErrorCode.COMMENT_CURSOR_INVALID);
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(BusinessErrorCode.COMMENT_CURSOR_INVALID);
+        }
+    }
+}
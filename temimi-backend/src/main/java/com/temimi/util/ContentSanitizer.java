@@ -0,0 +1,317 @@
+package com.temimi.util;
+
+import com.temimi.exception.BusinessErrorCode;
+import com.temimi.exception.BusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * 用户文本内容 XSS 清洗工具
+ *
+ * 弹幕清洗规则（{@link #sanitize}）：
+ * 1. 移除前后空白字符
+ * 2. 移除所有 HTML 标签（<script>、<img>、<iframe> 等，即 {@code <[^>]+>}）
+ * 3. 标签移除后仍含危险关键字（javascript:、onclick 等，不区分大小写）时拒绝
+ * 4. HTML 实体编码 & < > " ' /
+ * 5. 编码后长度不得超过上限，且不能为空
+ *
+ * 以上步骤在一次扫描中完成：去标签后的字符同时送入关键字自动机（Aho-Corasick）并直接编码写入预分配的缓冲区，
+ * 结果与逐步使用正则处理完全一致。
+ *
+ * 评论（{@link #escape}）只做 1、4、5：评论正文是普通文本，不按弹幕的关键字拒绝，
+ * 也不删除形如标签的片段，编码后即可安全地由前端渲染。
+ */
+public final class ContentSanitizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentSanitizer.class);
+
+    /**
+     * 危险关键字（script、iframe、onclick 等），匹配常见的 XSS 攻击向量
+     */
+    private static final String[] DANGEROUS_KEYWORDS = {
+            "script", "iframe", "object", "embed", "applet", "meta", "link", "style",
+            "javascript:", "vbscript:", "onclick", "onerror", "onload", "onmouseover", "eval", "expression"
+    };
+
+    // 自动机字母表：a-z 与 ':'，其余字符一律回到初始状态
+    private static final int ALPHABET_SIZE = 27;
+
+    // 最长的实体编码 &quot; / &#x27; / &#x2F; 为 6 个字符
+    private static final int MAX_ENTITY_LENGTH = 6;
+
+    // 需要实体编码的字符
+    private static final char[] ENCODED_CHARS = {'&', '<', '>', '"', '\'', '/'};
+
+    private static final int[][] TRANSITIONS;
+    private static final boolean[] ACCEPTING;
+
+    static {
+        int maxStates = 1;
+        for (String keyword : DANGEROUS_KEYWORDS) {
+            maxStates += keyword.length();
+        }
+        int[][] transitions = new int[maxStates][ALPHABET_SIZE];
+        for (int[] row : transitions) {
+            Arrays.fill(row, -1);
+        }
+        boolean[] accepting = new boolean[maxStates];
+
+        // 构建关键字前缀树
+        int stateCount = 1;
+        for (String keyword : DANGEROUS_KEYWORDS) {
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int symbol = symbolOf(keyword.charAt(i));
+                if (transitions[state][symbol] < 0) {
+                    transitions[state][symbol] = stateCount++;
+                }
+                state = transitions[state][symbol];
+            }
+            accepting[state] = true;
+        }
+
+        // 按层补全失配转移，得到确定性自动机
+        int[] fail = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            int child = transitions[0][symbol];
+            if (child < 0) {
+                transitions[0][symbol] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] |= accepting[fail[state]];
+            for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+                int child = transitions[state][symbol];
+                if (child < 0) {
+                    transitions[state][symbol] = transitions[fail[state]][symbol];
+                } else {
+                    fail[child] = transitions[fail[state]][symbol];
+                    queue.add(child);
+                }
+            }
+        }
+
+        TRANSITIONS = Arrays.copyOf(transitions, stateCount);
+        ACCEPTING = Arrays.copyOf(accepting, stateCount);
+    }
+
+    private ContentSanitizer() {
+    }
+
+    /**
+     * 清洗用户输入的文本内容
+     *
+     * @param rawContent 原始内容
+     * @param maxLength 编码后允许的最大长度（清洗前超过两倍直接拒绝）
+     * @param subject 内容名称，用于提示信息，如 "弹幕"、"评论"
+     * @return 清洗后的安全内容
+     * @throws BusinessException 内容不合法时抛出
+     */
+    public static String sanitize(String rawContent, int maxLength, String subject) {
+        return clean(rawContent, maxLength, subject, true);
+    }
+
+    /**
+     * 只做 HTML 实体编码和长度校验，不移除标签、不检测关键字（评论等普通文本）
+     *
+     * @param rawContent 原始内容
+     * @param maxLength 编码后允许的最大长度（编码前超过两倍直接拒绝）
+     * @param subject 内容名称，用于提示信息
+     * @return 编码后的内容
+     * @throws BusinessException 内容过长或为空时抛出
+     */
+    public static String escape(String rawContent, int maxLength, String subject) {
+        return clean(rawContent, maxLength, subject, false);
+    }
+
+    /**
+     * HTML 实体编码（不校验长度和内容）
+     */
+    public static String encode(String text) {
+        StringBuilder encoded = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String entity = entityOf(c);
+            if (entity == null) {
+                encoded.append(c);
+            } else {
+                encoded.append(entity);
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * {@link #encode} 的逆过程，只还原本类生成的六种实体
+     */
+    public static String decode(String encoded) {
+        int amp = encoded.indexOf('&');
+        if (amp < 0) {
+            return encoded;
+        }
+        StringBuilder decoded = new StringBuilder(encoded.length());
+        decoded.append(encoded, 0, amp);
+        for (int i = amp; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == '&') {
+                char original = 0;
+                int length = 0;
+                for (char candidate : ENCODED_CHARS) {
+                    String entity = entityOf(candidate);
+                    if (encoded.startsWith(entity, i)) {
+                        original = candidate;
+                        length = entity.length();
+                        break;
+                    }
+                }
+                if (length > 0) {
+                    decoded.append(original);
+                    i += length - 1;
+                    continue;
+                }
+            }
+            decoded.append(c);
+        }
+        return decoded.toString();
+    }
+
+    private static String clean(String rawContent, int maxLength, String subject, boolean stripMarkup) {
+        String raw = rawContent == null ? "" : rawContent;
+
+        // 1. 去除前后空白（与 String.trim 规则一致），不产生中间字符串
+        int begin = 0;
+        int end = raw.length();
+        while (begin < end && raw.charAt(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && raw.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        // 2. 长度校验（清洗前先检查，避免处理超长内容）
+        int length = end - begin;
+        if (length > maxLength * 2) {
+            throw tooLong(maxLength, subject);
+        }
+
+        // 超出上限后不再写入，最多溢出一个实体
+        char[] out = new char[Math.min(length * MAX_ENTITY_LENGTH, maxLength + MAX_ENTITY_LENGTH)];
+        int outLength = 0;
+        boolean overflow = false;
+        boolean dangerous = false;
+        int state = 0;
+        // 下一个 '>' 的位置，遇到 '<' 时才按需查找；end 表示其后已没有 '>'
+        int nextClose = -1;
+
+        for (int i = begin; i < end; i++) {
+            char c = raw.charAt(i);
+
+            // 3. 移除 HTML 标签：'<' 与其后第一个 '>' 之间至少有一个字符时整体移除
+            if (stripMarkup && c == '<') {
+                if (nextClose < i) {
+                    int found = raw.indexOf('>', i + 1);
+                    nextClose = found < 0 || found >= end ? end : found;
+                }
+                if (nextClose < end && nextClose > i + 1) {
+                    i = nextClose;
+                    continue;
+                }
+            }
+
+            // 4. 危险关键字检测（在去标签后的字符流上进行）
+            if (stripMarkup && !dangerous) {
+                int symbol = symbolOf(c);
+                state = symbol < 0 ? 0 : TRANSITIONS[state][symbol];
+                dangerous = ACCEPTING[state];
+            }
+
+            // 5. HTML 实体编码
+            if (overflow) {
+                continue;
+            }
+            String entity = entityOf(c);
+            if (entity == null) {
+                out[outLength++] = c;
+            } else {
+                outLength = append(out, outLength, entity);
+            }
+            overflow = outLength > maxLength;
+        }
+
+        if (dangerous) {
+            logger.warn("检测到疑似 XSS 攻击的{}内容: {}", subject, rawContent);
+            throw new BusinessException(
+                BusinessErrorCode.SYSTEM_ERROR,
+                subject + "内容包含非法字符，请修改后重试"
+            );
+        }
+
+        // 6. 最终长度校验（编码后可能变长）
+        if (overflow) {
+            throw tooLong(maxLength, subject);
+        }
+
+        // 7. 防止空内容（全是空格或被过滤后为空）
+        if (outLength == 0) {
+            throw new BusinessException(
+                BusinessErrorCode.SYSTEM_ERROR,
+                subject + "内容不能为空或仅包含特殊字符"
+            );
+        }
+
+        return new String(out, 0, outLength);
+    }
+
+    /**
+     * 关键字自动机的输入符号，仅 ASCII 字母忽略大小写（与正则 (?i) 的默认行为一致）
+     */
+    private static int symbolOf(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        return c == ':' ? 26 : -1;
+    }
+
+    private static String entityOf(char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#x27;";
+            case '/':
+                return "&#x2F;";
+            default:
+                return null;
+        }
+    }
+
+    private static int append(char[] out, int offset, String entity) {
+        entity.getChars(0, entity.length(), out, offset);
+        return offset + entity.length();
+    }
+
+    private static BusinessException tooLong(int maxLength, String subject) {
+        return new BusinessException(
+            BusinessErrorCode.SYSTEM_ERROR,
+            subject + "内容过长，最多允许 " + maxLength + " 字符"
+        );
+    }
+}
@@ -0,0 +1,572 @@
+package com.temimi.util;
+
+import org.mp4parser.Box;
+import org.mp4parser.IsoFile;
+import org.mp4parser.boxes.iso14496.part12.CompositionTimeToSample;
+import org.mp4parser.boxes.iso14496.part12.FileTypeBox;
+import org.mp4parser.boxes.iso14496.part12.MediaDataBox;
+import org.mp4parser.boxes.iso14496.part12.MediaHeaderBox;
+import org.mp4parser.boxes.iso14496.part12.MovieBox;
+import org.mp4parser.boxes.iso14496.part12.MovieExtendsBox;
+import org.mp4parser.boxes.iso14496.part12.MovieFragmentBox;
+import org.mp4parser.boxes.iso14496.part12.MovieFragmentHeaderBox;
+import org.mp4parser.boxes.iso14496.part12.SampleFlags;
+import org.mp4parser.boxes.iso14496.part12.SampleSizeBox;
+import org.mp4parser.boxes.iso14496.part12.SampleTableBox;
+import org.mp4parser.boxes.iso14496.part12.SampleToChunkBox;
+import org.mp4parser.boxes.iso14496.part12.StaticChunkOffsetBox;
+import org.mp4parser.boxes.iso14496.part12.SyncSampleBox;
+import org.mp4parser.boxes.iso14496.part12.TimeToSampleBox;
+import org.mp4parser.boxes.iso14496.part12.TrackBox;
+import org.mp4parser.boxes.iso14496.part12.TrackExtendsBox;
+import org.mp4parser.boxes.iso14496.part12.TrackFragmentBaseMediaDecodeTimeBox;
+import org.mp4parser.boxes.iso14496.part12.TrackFragmentBox;
+import org.mp4parser.boxes.iso14496.part12.TrackFragmentHeaderBox;
+import org.mp4parser.boxes.iso14496.part12.TrackRunBox;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * MP4 转 HLS 打包（fMP4 分片，HLS 版本 7），纯 Java 实现，只用 isoparser 解析和写出 box
+ *
+ * - 只读取源文件的 moov，不解析 mdat；样本数据用 FileChannel.transferTo 直接从源文件拷贝到分片
+ * - 在视频轨的关键帧处切分，每个分片不短于目标时长；音频等其他轨按相同时间点切分
+ * - 输出 init.mp4（ftyp + 去掉样本表的 moov + mvex）、seg{n}.m4s（moof + mdat）和 index.m3u8
+ * - 不做转码，只重新封装原始码流；已经是分片格式的 MP4 不处理
+ * - 上传文件不可信：交给 isoparser 解析前先在原始字节上校验各样本表声明的条目数，
+ *   条目数必须有对应的表数据（或不超过文件大小能容纳的样本数），且总样本数有上限，避免按伪造的计数分配内存
+ */
+public final class HlsSegmenter {
+
+    public static final String PLAYLIST = "index.m3u8";
+
+    public static final String INIT_SEGMENT = "init.mp4";
+
+    private static final String SEGMENT_NAME = "seg%d.m4s";
+
+    // moov 全部读入内存解析，限制大小防止异常文件耗尽堆
+    private static final long MAX_MOOV_BYTES = 64L * 1024 * 1024;
+
+    // 所有轨的样本总数上限（约 10 小时 60fps 视频加音频），每个样本展开后约占 30 字节
+    private static final long MAX_TOTAL_SAMPLES = 5_000_000L;
+
+    // 需要逐层进入检查样本表的容器 box
+    private static final Set<String> SAMPLE_TABLE_PATH = Set.of("moov", "trak", "mdia", "minf", "stbl");
+
+    private static final SampleFlags SYNC_FLAGS = sampleFlags(true);
+
+    private static final SampleFlags NON_SYNC_FLAGS = sampleFlags(false);
+
+    /**
+     * 打包结果
+     */
+    public record Result(int segments, double durationSeconds) {
+    }
+
+    private HlsSegmenter() {
+    }
+
+    /**
+     * 把 MP4 文件打包为 HLS，输出到已存在的空目录
+     *
+     * @param source         源 MP4 文件
+     * @param outputDir      输出目录
+     * @param targetSeconds  目标分片时长（秒），实际分片从下一个关键帧开始
+     */
+    public static Result segment(Path source, Path outputDir, double targetSeconds) throws IOException {
+        try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ)) {
+            MovieBox moov = readMovieBox(input);
+            if (!moov.getBoxes(MovieExtendsBox.class).isEmpty()) {
+                throw new IOException("已是分片格式的 MP4，无需打包");
+            }
+
+            List<Track> tracks = new ArrayList<>();
+            List<TrackBox> trackBoxes = new ArrayList<>();
+            for (TrackBox trackBox : moov.getBoxes(TrackBox.class)) {
+                String handler = trackBox.getMediaBox().getHandlerBox().getHandlerType();
+                if (!"vide".equals(handler) && !"soun".equals(handler)) {
+                    continue;
+                }
+                Track track = Track.of(trackBox, "vide".equals(handler));
+                if (track.sampleCount() > 0) {
+                    tracks.add(track);
+                    trackBoxes.add(trackBox);
+                }
+            }
+            if (tracks.isEmpty()) {
+                throw new IOException("MP4 中没有可打包的音视频轨");
+            }
+
+            Track reference = tracks.stream().filter(Track::video).findFirst().orElse(tracks.get(0));
+            int[] cuts = cutPoints(reference, targetSeconds);
+
+            writeInitSegment(moov, trackBoxes, tracks, outputDir.resolve(INIT_SEGMENT));
+
+            double[] durations = new double[cuts.length];
+            for (int k = 0; k < cuts.length; k++) {
+                long startTime = reference.times[cuts[k]];
+                long endTime = k + 1 < cuts.length ? reference.times[cuts[k + 1]] : reference.times[reference.sampleCount()];
+                double startSeconds = (double) startTime / reference.timescale;
+                double endSeconds = (double) endTime / reference.timescale;
+                durations[k] = endSeconds - startSeconds;
+
+                int[][] ranges = new int[tracks.size()][];
+                for (int t = 0; t < tracks.size(); t++) {
+                    Track track = tracks.get(t);
+                    int from = track == reference ? cuts[k] : track.indexAt(k == 0 ? Double.NEGATIVE_INFINITY : startSeconds);
+                    int to = track == reference
+                            ? (k + 1 < cuts.length ? cuts[k + 1] : track.sampleCount())
+                            : (k + 1 < cuts.length ? track.indexAt(endSeconds) : track.sampleCount());
+                    ranges[t] = new int[]{from, to};
+                }
+                writeMediaSegment(input, tracks, ranges, k + 1,
+                        outputDir.resolve(String.format(Locale.ROOT, SEGMENT_NAME, k)));
+            }
+
+            writePlaylist(durations, outputDir.resolve(PLAYLIST));
+            double total = (double) (reference.times[reference.sampleCount()] - reference.times[0]) / reference.timescale;
+            return new Result(cuts.length, total);
+        }
+    }
+
+    /**
+     * 扫描顶层 box，只把 moov 读入内存解析
+     */
+    private static MovieBox readMovieBox(FileChannel input) throws IOException {
+        long size = input.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (position + 8 <= size) {
+            header.clear();
+            readFully(input, header, position);
+            header.flip();
+            long boxSize = header.getInt() & 0xFFFFFFFFL;
+            byte[] fourCC = new byte[4];
+            header.get(fourCC);
+            String type = new String(fourCC, StandardCharsets.ISO_8859_1);
+            int headerLength = 8;
+            if (boxSize == 1) {
+                header.clear();
+                readFully(input, header, position + 8);
+                header.flip();
+                boxSize = header.getLong();
+                headerLength = 16;
+            } else if (boxSize == 0) {
+                boxSize = size - position;
+            }
+            if (boxSize < headerLength || position + boxSize > size) {
+                throw new IOException("MP4 box 长度非法: " + type);
+            }
+            if (MovieBox.TYPE.equals(type)) {
+                if (boxSize > MAX_MOOV_BYTES) {
+                    throw new IOException("moov 过大: " + boxSize);
+                }
+                ByteBuffer moov = ByteBuffer.allocate((int) boxSize);
+                readFully(input, moov, position);
+                checkSampleTables(moov, 0, moov.capacity(), size, new long[1]);
+                IsoFile isoFile = new IsoFile(Channels.newChannel(new ByteArrayInputStream(moov.array())));
+                return isoFile.getMovieBox();
+            }
+            position += boxSize;
+        }
+        throw new IOException("不是有效的 MP4 文件：缺少 moov");
+    }
+
+    /**
+     * 在原始字节上校验样本表的条目数（isoparser 解析时按声明的条目数直接分配数组）
+     *
+     * @param buffer       moov 的完整字节
+     * @param start        本层第一个 box 的位置
+     * @param end          本层结束位置
+     * @param fileSize     源文件大小
+     * @param totalSamples 已累计的样本数
+     */
+    private static void checkSampleTables(ByteBuffer buffer, int start, int end, long fileSize, long[] totalSamples)
+            throws IOException {
+        int position = start;
+        while (position + 8 <= end) {
+            long boxSize = buffer.getInt(position) & 0xFFFFFFFFL;
+            String type = new String(new byte[]{buffer.get(position + 4), buffer.get(position + 5),
+                    buffer.get(position + 6), buffer.get(position + 7)}, StandardCharsets.ISO_8859_1);
+            int headerLength = 8;
+            if (boxSize == 1) {
+                if (position + 16 > end) {
+                    throw new IOException("MP4 box 长度非法: " + type);
+                }
+                boxSize = buffer.getLong(position + 8);
+                headerLength = 16;
+            } else if (boxSize == 0) {
+                boxSize = end - position;
+            }
+            if (boxSize < headerLength || boxSize > end - position) {
+                throw new IOException("MP4 box 长度非法: " + type);
+            }
+            int payload = position + headerLength;
+            int boxEnd = position + (int) boxSize;
+            if (SAMPLE_TABLE_PATH.contains(type)) {
+                checkSampleTables(buffer, payload, boxEnd, fileSize, totalSamples);
+            } else {
+                checkEntryCount(buffer, type, payload, boxEnd - payload, fileSize, totalSamples);
+            }
+            position = boxEnd;
+        }
+    }
+
+    /**
+     * 样本表 box 的条目数必须与 box 大小一致；固定样本大小时没有表数据，样本数按文件大小限制
+     */
+    private static void checkEntryCount(ByteBuffer buffer, String type, int payload, int length, long fileSize,
+                                        long[] totalSamples) throws IOException {
+        long entrySize;
+        switch (type) {
+            case "stco", "stss" -> entrySize = 4;
+            case "co64", "stts", "ctts" -> entrySize = 8;
+            case "stsc" -> entrySize = 12;
+            case "stsz" -> {
+                if (length < 12) {
+                    throw new IOException("MP4 样本表长度非法: " + type);
+                }
+                long sampleSize = buffer.getInt(payload + 4) & 0xFFFFFFFFL;
+                long sampleCount = buffer.getInt(payload + 8) & 0xFFFFFFFFL;
+                totalSamples[0] += sampleCount;
+                if (totalSamples[0] > MAX_TOTAL_SAMPLES) {
+                    throw new IOException("样本数过多: " + totalSamples[0]);
+                }
+                boolean backed = sampleSize == 0
+                        ? 12 + sampleCount * 4 <= length
+                        : sampleCount * sampleSize <= fileSize;
+                if (!backed) {
+                    throw new IOException("样本数与文件大小不符: " + sampleCount);
+                }
+                return;
+            }
+            default -> {
+                return;
+            }
+        }
+        if (length < 8) {
+            throw new IOException("MP4 样本表长度非法: " + type);
+        }
+        long entryCount = buffer.getInt(payload + 4) & 0xFFFFFFFFL;
+        if (8 + entryCount * entrySize > length) {
+            throw new IOException("MP4 样本表条目数与长度不符: " + type + " " + entryCount);
+        }
+    }
+
+    /**
+     * 参考轨上每个分片的起始样本：从关键帧开始，且距上一个分片起点不短于目标时长
+     */
+    private static int[] cutPoints(Track reference, double targetSeconds) {
+        long target = Math.max(1, Math.round(targetSeconds * reference.timescale));
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        long segmentStart = reference.times[0];
+        for (int i = 1; i < reference.sampleCount(); i++) {
+            if (reference.isSync(i) && reference.times[i] - segmentStart >= target) {
+                cuts.add(i);
+                segmentStart = reference.times[i];
+            }
+        }
+        return cuts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 初始化分片：样本表清空，声明 mvex 表示样本都在后续的 moof 中
+     */
+    private static void writeInitSegment(MovieBox moov, List<TrackBox> trackBoxes, List<Track> tracks, Path target)
+            throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        for (Box box : moov.getBoxes()) {
+            if (!(box instanceof TrackBox) || trackBoxes.contains(box)) {
+                boxes.add(box);
+            }
+        }
+        MovieExtendsBox mvex = new MovieExtendsBox();
+        for (int t = 0; t < trackBoxes.size(); t++) {
+            SampleTableBox stbl = trackBoxes.get(t).getSampleTableBox();
+            stbl.setBoxes(List.of(stbl.getSampleDescriptionBox(), new TimeToSampleBox(), new SampleToChunkBox(),
+                    new SampleSizeBox(), new StaticChunkOffsetBox()));
+
+            TrackExtendsBox trex = new TrackExtendsBox();
+            trex.setTrackId(tracks.get(t).trackId);
+            trex.setDefaultSampleDescriptionIndex(1);
+            trex.setDefaultSampleFlags(new SampleFlags());
+            mvex.addBox(trex);
+        }
+        boxes.add(mvex);
+        moov.setBoxes(boxes);
+
+        FileTypeBox ftyp = new FileTypeBox("iso5", 512, List.of("iso5", "iso6", "mp41"));
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ftyp.getBox(out);
+            moov.getBox(out);
+        }
+    }
+
+    /**
+     * 媒体分片：每个轨一个 traf，样本按轨顺序依次放入同一个 mdat
+     */
+    private static void writeMediaSegment(FileChannel input, List<Track> tracks, int[][] ranges, long sequence,
+                                          Path target) throws IOException {
+        MovieFragmentBox moof = new MovieFragmentBox();
+        MovieFragmentHeaderBox mfhd = new MovieFragmentHeaderBox();
+        mfhd.setSequenceNumber(sequence);
+        moof.addBox(mfhd);
+
+        List<TrackRunBox> runs = new ArrayList<>();
+        List<Integer> runTracks = new ArrayList<>();
+        for (int t = 0; t < tracks.size(); t++) {
+            Track track = tracks.get(t);
+            int from = ranges[t][0];
+            int to = ranges[t][1];
+            if (from >= to) {
+                continue;
+            }
+            TrackFragmentHeaderBox tfhd = new TrackFragmentHeaderBox();
+            tfhd.setTrackId(track.trackId);
+            tfhd.setDefaultBaseIsMoof(true);
+
+            TrackFragmentBaseMediaDecodeTimeBox tfdt = new TrackFragmentBaseMediaDecodeTimeBox();
+            tfdt.setVersion(1);
+            tfdt.setBaseMediaDecodeTime(track.times[from]);
+
+            TrackRunBox trun = new TrackRunBox();
+            trun.setDataOffsetPresent(true);
+            trun.setSampleDurationPresent(true);
+            trun.setSampleSizePresent(true);
+            trun.setSampleFlagsPresent(true);
+            trun.setSampleCompositionTimeOffsetPresent(track.compositionOffsets != null);
+            List<TrackRunBox.Entry> entries = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                int compositionOffset = track.compositionOffsets != null ? track.compositionOffsets[i] : 0;
+                if (compositionOffset < 0) {
+                    trun.setVersion(1);
+                }
+                entries.add(new TrackRunBox.Entry(track.times[i + 1] - track.times[i], track.sizes[i],
+                        track.isSync(i) ? SYNC_FLAGS : NON_SYNC_FLAGS, compositionOffset));
+            }
+            trun.setEntries(entries);
+
+            TrackFragmentBox traf = new TrackFragmentBox();
+            traf.addBox(tfhd);
+            traf.addBox(tfdt);
+            traf.addBox(trun);
+            moof.addBox(traf);
+            runs.add(trun);
+            runTracks.add(t);
+        }
+
+        // 数据偏移相对 moof 起点（default-base-is-moof），moof 大小不受偏移值影响
+        long moofSize = moof.getSize();
+        long dataOffset = moofSize + 8;
+        for (int r = 0; r < runs.size(); r++) {
+            runs.get(r).setDataOffset(Math.toIntExact(dataOffset));
+            int t = runTracks.get(r);
+            dataOffset += tracks.get(t).bytes(ranges[t][0], ranges[t][1]);
+        }
+        long mdatSize = dataOffset - moofSize;
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            moof.getBox(out);
+            ByteBuffer mdatHeader = ByteBuffer.allocate(8);
+            mdatHeader.putInt(Math.toIntExact(mdatSize));
+            mdatHeader.put(IsoFile.fourCCtoBytes(MediaDataBox.TYPE));
+            mdatHeader.flip();
+            while (mdatHeader.hasRemaining()) {
+                out.write(mdatHeader);
+            }
+            for (int t : runTracks) {
+                copySamples(input, tracks.get(t), ranges[t][0], ranges[t][1], out);
+            }
+        }
+    }
+
+    /**
+     * 拷贝样本数据，源文件中相邻的样本合并为一次 transferTo
+     */
+    private static void copySamples(FileChannel input, Track track, int from, int to, FileChannel out)
+            throws IOException {
+        int i = from;
+        while (i < to) {
+            long start = track.offsets[i];
+            long end = start + track.sizes[i];
+            i++;
+            while (i < to && track.offsets[i] == end) {
+                end += track.sizes[i];
+                i++;
+            }
+            long position = start;
+            while (position < end) {
+                long sent = input.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    throw new EOFException("样本数据超出文件末尾");
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private static void writePlaylist(double[] durations, Path target) throws IOException {
+        double longest = Arrays.stream(durations).max().orElse(0);
+        StringBuilder playlist = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:7\n")
+                .append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(longest)).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n")
+                .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+                .append("#EXT-X-INDEPENDENT-SEGMENTS\n")
+                .append("#EXT-X-MAP:URI=\"").append(INIT_SEGMENT).append("\"\n");
+        for (int k = 0; k < durations.length; k++) {
+            playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", durations[k]))
+                    .append(String.format(Locale.ROOT, SEGMENT_NAME, k)).append('\n');
+        }
+        playlist.append("#EXT-X-ENDLIST\n");
+        Files.writeString(target, playlist, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+    }
+
+    private static void readFully(FileChannel input, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = input.read(buffer, offset);
+            if (read < 0) {
+                throw new EOFException("MP4 文件不完整");
+            }
+            offset += read;
+        }
+    }
+
+    private static SampleFlags sampleFlags(boolean sync) {
+        SampleFlags flags = new SampleFlags();
+        // sample_depends_on: 2 不依赖其他样本（关键帧），1 依赖其他样本
+        flags.setSampleDependsOn(sync ? 2 : 1);
+        flags.setSampleIsDifferenceSample(!sync);
+        return flags;
+    }
+
+    /**
+     * 从样本表展开的单个轨道：每个样本的文件偏移、大小、解码时间和是否为关键帧
+     */
+    private record Track(long trackId, long timescale, boolean video, long[] offsets, long[] sizes,
+                         long[] times, int[] compositionOffsets, boolean[] sync) {
+
+        private static Track of(TrackBox trackBox, boolean video) throws IOException {
+            SampleTableBox stbl = trackBox.getSampleTableBox();
+            MediaHeaderBox mdhd = trackBox.getMediaBox().getMediaHeaderBox();
+
+            SampleSizeBox stsz = stbl.getSampleSizeBox();
+            int count = Math.toIntExact(stsz.getSampleCount());
+            long[] sizes = new long[count];
+            if (stsz.getSampleSize() > 0) {
+                Arrays.fill(sizes, stsz.getSampleSize());
+            } else {
+                System.arraycopy(stsz.getSampleSizes(), 0, sizes, 0, count);
+            }
+
+            // 按 stsc 把样本分配到各个 chunk，chunk 内的样本连续存放
+            long[] chunkOffsets = stbl.getChunkOffsetBox().getChunkOffsets();
+            List<SampleToChunkBox.Entry> stsc = stbl.getSampleToChunkBox().getEntries();
+            long[] offsets = new long[count];
+            int sample = 0;
+            int entry = 0;
+            for (int chunk = 1; chunk <= chunkOffsets.length && sample < count && !stsc.isEmpty(); chunk++) {
+                while (entry + 1 < stsc.size() && stsc.get(entry + 1).getFirstChunk() <= chunk) {
+                    entry++;
+                }
+                long offset = chunkOffsets[chunk - 1];
+                for (long j = 0; j < stsc.get(entry).getSamplesPerChunk() && sample < count; j++) {
+                    offsets[sample] = offset;
+                    offset += sizes[sample];
+                    sample++;
+                }
+            }
+            if (sample < count) {
+                throw new IOException("样本表不完整, trackId=" + trackBox.getTrackHeaderBox().getTrackId());
+            }
+
+            // stts、ctts 按游程展开，只展开前 count 个样本，游程长度不可信
+            long[] times = new long[count + 1];
+            int timed = 0;
+            for (TimeToSampleBox.Entry run : stbl.getTimeToSampleBox().getEntries()) {
+                for (long j = 0; j < run.getCount() && timed < count; j++, timed++) {
+                    times[timed + 1] = times[timed] + run.getDelta();
+                }
+            }
+            if (timed < count) {
+                throw new IOException("时间表不完整, trackId=" + trackBox.getTrackHeaderBox().getTrackId());
+            }
+
+            int[] compositionOffsets = null;
+            CompositionTimeToSample ctts = stbl.getCompositionTimeToSample();
+            if (ctts != null) {
+                compositionOffsets = new int[count];
+                int offsetCount = 0;
+                for (CompositionTimeToSample.Entry run : ctts.getEntries()) {
+                    for (long j = 0; j < run.getCount() && offsetCount < count; j++, offsetCount++) {
+                        compositionOffsets[offsetCount] = run.getOffset();
+                    }
+                }
+            }
+
+            // 没有 stss 表示所有样本都是关键帧
+            boolean[] sync = null;
+            SyncSampleBox stss = stbl.getSyncSampleBox();
+            if (stss != null) {
+                sync = new boolean[count];
+                for (long number : stss.getSampleNumber()) {
+                    if (number >= 1 && number <= count) {
+                        sync[(int) number - 1] = true;
+                    }
+                }
+            }
+            return new Track(trackBox.getTrackHeaderBox().getTrackId(), mdhd.getTimescale(), video,
+                    offsets, sizes, times, compositionOffsets, sync);
+        }
+
+        private int sampleCount() {
+            return sizes.length;
+        }
+
+        private boolean isSync(int index) {
+            return sync == null || sync[index];
+        }
+
+        /**
+         * 第一个解码时间不早于指定时刻（秒）的样本
+         */
+        private int indexAt(double seconds) {
+            int low = 0;
+            int high = sampleCount();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if ((double) times[mid] / timescale < seconds) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private long bytes(int from, int to) {
+            long total = 0;
+            for (int i = from; i < to; i++) {
+                total += sizes[i];
+            }
+            return total;
+        }
+    }
+}
@@ -256,19 +256,23 @@ CREATE TABLE `comment`  (
   `create_time` datetime NOT NULL COMMENT '创建时间',
   `is_top` tinyint NOT NULL DEFAULT 0 COMMENT '是否置顶 0普通 1置顶',
   `is_deleted` tinyint NOT NULL DEFAULT 0 COMMENT '软删除 0未删除 1已删除',
+  `reply_count` int NOT NULL DEFAULT 0 COMMENT '未删除的回复数（只有根评论维护）',
   PRIMARY KEY (`id`) USING BTREE,
-  UNIQUE INDEX `id`(`id` ASC) USING BTREE
+  UNIQUE INDEX `id`(`id` ASC) USING BTREE,
+  INDEX `idx_root_deleted_time`(`root_id` ASC, `is_deleted` ASC, `create_time` ASC) USING BTREE,
+  INDEX `idx_vid_root_time`(`vid` ASC, `root_id` ASC, `is_deleted` ASC, `create_time` ASC, `id` ASC) USING BTREE,
+  INDEX `idx_vid_root_love`(`vid` ASC, `root_id` ASC, `is_deleted` ASC, `love` ASC, `id` ASC) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 32 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '评论表' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of comment
 -- ----------------------------
-INSERT INTO `comment` VALUES (26, 11, 14, 0, 0, 14, '不是革命\r\n', 3, 0, '2025-11-06 17:04:49', 0, 1);
-INSERT INTO `comment` VALUES (27, 11, 14, 0, 0, 14, '？\r\n', 3, 1, '2025-11-09 15:00:11', 0, 0);
-INSERT INTO `comment` VALUES (28, 11, 14, 0, 0, 14, '你好', 0, 1, '2025-11-09 15:16:55', 0, 0);
-INSERT INTO `comment` VALUES (29, 11, 14, 28, 28, 14, '你好', 0, 1, '2025-11-09 15:17:02', 0, 0);
-INSERT INTO `comment` VALUES (30, 11, 14, 0, 0, 14, '评论\r\n', 0, 0, '2025-11-09 16:07:51', 0, 0);
-INSERT INTO `comment` VALUES (31, 11, 14, 27, 27, 14, '？', 1, 0, '2025-11-09 16:23:45', 0, 0);
+INSERT INTO `comment` VALUES (26, 11, 14, 0, 0, 14, '不是革命\r\n', 3, 0, '2025-11-06 17:04:49', 0, 1, 0);
+INSERT INTO `comment` VALUES (27, 11, 14, 0, 0, 14, '？\r\n', 3, 1, '2025-11-09 15:00:11', 0, 0, 1);
+INSERT INTO `comment` VALUES (28, 11, 14, 0, 0, 14, '你好', 0, 1, '2025-11-09 15:16:55', 0, 0, 1);
+INSERT INTO `comment` VALUES (29, 11, 14, 28, 28, 14, '你好', 0, 1, '2025-11-09 15:17:02', 0, 0, 0);
+INSERT INTO `comment` VALUES (30, 11, 14, 0, 0, 14, '评论\r\n', 0, 0, '2025-11-09 16:07:51', 0, 0, 0);
+INSERT INTO `comment` VALUES (31, 11, 14, 27, 27, 14, '？', 1, 0, '2025-11-09 16:23:45', 0, 0, 0);
 
 -- ----------------------------
 -- Table structure for danmu
@@ -287,7 +291,9 @@ CREATE TABLE `danmu`  (
   `create_date` datetime NOT NULL COMMENT '发送弹幕的日期时间',
   PRIMARY KEY (`id`) USING BTREE,
   UNIQUE INDEX `id`(`id` ASC) USING BTREE,
-  INDEX `idx_vid`(`vid` ASC) USING BTREE
+  INDEX `idx_vid`(`vid` ASC) USING BTREE,
+  INDEX `idx_vid_state_time`(`vid` ASC, `state` ASC, `time_point` ASC) USING BTREE,
+  INDEX `idx_vid_create_date`(`vid` ASC, `create_date` ASC) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 8 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '弹幕表' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -507,6 +513,7 @@ CREATE TABLE `video`  (
   `descr` varchar(2000) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '简介',
   `cover_url` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '封面url',
   `video_url` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '视频url',
+  `hls_url` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT 'HLS播放列表url，打包完成前为空',
   `status` tinyint NOT NULL DEFAULT 0 COMMENT '状态 0审核中 1已过审 2未通过 3已删除',
   `upload_date` datetime NOT NULL COMMENT '上传时间',
   `delete_date` datetime NULL DEFAULT NULL COMMENT '删除时间',
@@ -517,7 +524,7 @@ CREATE TABLE `video`  (
 -- ----------------------------
 -- Records of video
 -- ----------------------------
-INSERT INTO `video` VALUES (11, 14, '鸣潮', 1, 0, 11.217021, 'anime', 'finish', '测试', '你好', '/covers/5f23cafeb1f907549cb99907e1232075.jpg', '/videos/5f23cafeb1f907549cb99907e1232075.mp4', 1, '2025-11-06 17:02:56', NULL);
+INSERT INTO `video` VALUES (11, 14, '鸣潮', 1, 0, 11.217021, 'anime', 'finish', '测试', '你好', '/covers/5f23cafeb1f907549cb99907e1232075.jpg', '/videos/5f23cafeb1f907549cb99907e1232075.mp4', NULL, 1, '2025-11-06 17:02:56', NULL);
 
 -- ----------------------------
 -- Table structure for video_collect_milestone
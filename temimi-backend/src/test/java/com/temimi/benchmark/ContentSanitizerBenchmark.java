@@ -0,0 +1,113 @@
+package com.temimi.benchmark;
+
+import com.temimi.exception.BusinessException;
+import com.temimi.util.ContentSanitizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 弹幕内容清洗基准测试
+ * 对比原正则流水线（trim → 去标签 → 危险关键字 → 实体编码）与单次扫描的 ContentSanitizer
+ *
+ * 运行方式：mvn test-compile exec:java -Dexec.classpathScope=test
+ *          -Dexec.mainClass=com.temimi.benchmark.ContentSanitizerBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentSanitizerBenchmark {
+
+    private static final int MAX_DANMU_LENGTH = 100;
+
+    @Param({"plain", "markup"})
+    private String kind;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        content = "plain".equals(kind)
+                ? "  前方高能预警！！！这段剧情太燃了，泪目 2333  "
+                : " <b>好听</b> 的\"歌\" & 'BGM' 求出处 <i>a/b</i> ";
+        String expected = LegacySanitizer.sanitize(content);
+        String actual = ContentSanitizer.sanitize(content, MAX_DANMU_LENGTH, "弹幕");
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("清洗结果不一致: " + expected + " / " + actual);
+        }
+    }
+
+    @Benchmark
+    public String regexPipeline() {
+        return LegacySanitizer.sanitize(content);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return ContentSanitizer.sanitize(content, MAX_DANMU_LENGTH, "弹幕");
+    }
+
+    /**
+     * 原 DanmuServiceImpl 的清洗流程
+     */
+    private static final class LegacySanitizer {
+
+        private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]+>");
+
+        private static final Pattern DANGEROUS_PATTERN = Pattern.compile(
+            "(?i)(script|iframe|object|embed|applet|meta|link|style|" +
+            "javascript:|vbscript:|onclick|onerror|onload|onmouseover|eval|expression)"
+        );
+
+        static String sanitize(String rawContent) {
+            String content = rawContent.trim();
+            if (content.length() > MAX_DANMU_LENGTH * 2) {
+                throw new BusinessException("弹幕内容过长，最多允许 " + MAX_DANMU_LENGTH + " 字符");
+            }
+            content = HTML_TAG_PATTERN.matcher(content).replaceAll("");
+            if (DANGEROUS_PATTERN.matcher(content).find()) {
+                throw new BusinessException("弹幕内容包含非法字符，请修改后重试");
+            }
+            content = htmlEncode(content);
+            if (content.length() > MAX_DANMU_LENGTH) {
+                throw new BusinessException("弹幕内容过长，最多允许 " + MAX_DANMU_LENGTH + " 字符");
+            }
+            if (content.isEmpty()) {
+                throw new BusinessException("弹幕内容不能为空或仅包含特殊字符");
+            }
+            return content;
+        }
+
+        private static String htmlEncode(String input) {
+            StringBuilder encoded = new StringBuilder();
+            for (int i = 0; i < input.length(); i++) {
+                char c = input.charAt(i);
+                switch (c) {
+                    case '&': encoded.append("&amp;"); break;
+                    case '<': encoded.append("&lt;"); break;
+                    case '>': encoded.append("&gt;"); break;
+                    case '"': encoded.append("&quot;"); break;
+                    case '\'': encoded.append("&#x27;"); break;
+                    case '/': encoded.append("&#x2F;"); break;
+                    default: encoded.append(c);
+                }
+            }
+            return encoded.toString();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ContentSanitizerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,118 @@
+package com.temimi.benchmark;
+
+import com.temimi.handler.DanmuRoomRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 弹幕房间注册表基准测试
+ * 对比原 CopyOnWriteArrayList 实现与 DanmuRoomRegistry 的进出房间、广播遍历开销
+ *
+ * 运行方式：mvn test-compile exec:java -Dexec.classpathScope=test
+ *          -Dexec.mainClass=com.temimi.benchmark.DanmuRoomRegistryBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DanmuRoomRegistryBenchmark {
+
+    private static final Integer VID = 1;
+
+    @Param({"100", "10000"})
+    private int roomSize;
+
+    private DanmuRoomRegistry registry;
+    private LegacyRegistry legacy;
+    private WebSocketSession churnSession;
+
+    @Setup
+    public void setUp() {
+        registry = new DanmuRoomRegistry();
+        legacy = new LegacyRegistry();
+        for (int i = 0; i < roomSize; i++) {
+            WebSocketSession session = Mockito.mock(WebSocketSession.class);
+            registry.join(VID, session);
+            legacy.bindSession(VID, session);
+        }
+        churnSession = Mockito.mock(WebSocketSession.class);
+    }
+
+    @Benchmark
+    public boolean joinLeaveRegistry() {
+        registry.join(VID, churnSession);
+        return registry.leave(VID, churnSession);
+    }
+
+    @Benchmark
+    public boolean joinLeaveLegacy() {
+        legacy.bindSession(VID, churnSession);
+        return legacy.unbindSession(VID, churnSession);
+    }
+
+    @Benchmark
+    public void broadcastSnapshotRegistry(Blackhole blackhole) {
+        for (WebSocketSession session : registry.getSessions(VID)) {
+            blackhole.consume(session);
+        }
+    }
+
+    @Benchmark
+    public void broadcastSnapshotLegacy(Blackhole blackhole) {
+        for (WebSocketSession session : legacy.getSessionsByVid(VID)) {
+            blackhole.consume(session);
+        }
+    }
+
+    @Benchmark
+    public int populationRegistry() {
+        return registry.getRoomSize(VID);
+    }
+
+    @Benchmark
+    public int populationLegacy() {
+        return legacy.getSessionsByVid(VID).size();
+    }
+
+    /**
+     * 原 DanmuSessionManager 的存储结构
+     */
+    private static final class LegacyRegistry {
+
+        private final Map<Integer, List<WebSocketSession>> sessionMap = new ConcurrentHashMap<>();
+
+        void bindSession(Integer vid, WebSocketSession session) {
+            sessionMap.computeIfAbsent(vid, k -> new CopyOnWriteArrayList<>()).add(session);
+        }
+
+        boolean unbindSession(Integer vid, WebSocketSession session) {
+            List<WebSocketSession> sessions = sessionMap.get(vid);
+            return sessions != null && sessions.remove(session);
+        }
+
+        List<WebSocketSession> getSessionsByVid(Integer vid) {
+            return sessionMap.getOrDefault(vid, List.of());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DanmuRoomRegistryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
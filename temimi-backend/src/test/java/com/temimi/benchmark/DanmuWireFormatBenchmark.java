@@ -0,0 +1,82 @@
+package com.temimi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.temimi.handler.DanmuBinaryCodec;
+import com.temimi.model.entity.Danmu;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 弹幕下行帧格式基准测试
+ * 对比原 JSON 文本帧与 {@link DanmuBinaryCodec} 二进制帧的编码开销与帧大小
+ *
+ * 运行方式：mvn test-compile exec:java -Dexec.classpathScope=test
+ *          -Dexec.mainClass=com.temimi.benchmark.DanmuWireFormatBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DanmuWireFormatBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private Danmu danmu;
+
+    @Setup
+    public void setUp() {
+        danmu = sample();
+        Danmu decoded = DanmuBinaryCodec.decode(DanmuBinaryCodec.encode(danmu));
+        if (!danmu.getContent().equals(decoded.getContent()) || !danmu.getId().equals(decoded.getId())) {
+            throw new IllegalStateException("二进制帧编解码结果不一致");
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(danmu).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return DanmuBinaryCodec.encode(danmu);
+    }
+
+    private static Danmu sample() {
+        Danmu danmu = new Danmu();
+        danmu.setId(1234567);
+        danmu.setVid(1024);
+        danmu.setUid(20001);
+        danmu.setContent("前方高能，非战斗人员请撤离！");
+        danmu.setFontsize(25);
+        danmu.setMode(1);
+        danmu.setColor("#FFFFFF");
+        danmu.setTimePoint(83.456);
+        danmu.setState(1);
+        danmu.setCreateDate(LocalDateTime.of(2024, 5, 1, 20, 30, 15));
+        return danmu;
+    }
+
+    public static void main(String[] args) throws RunnerException, JsonProcessingException {
+        Danmu danmu = sample();
+        int jsonBytes = new ObjectMapper().findAndRegisterModules()
+                .writeValueAsString(danmu).getBytes(StandardCharsets.UTF_8).length;
+        int binaryBytes = DanmuBinaryCodec.encode(danmu).length;
+        System.out.printf("每条弹幕帧大小: JSON %d 字节, 二进制 %d 字节%n", jsonBytes, binaryBytes);
+
+        Options options = new OptionsBuilder()
+                .include(DanmuWireFormatBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,52 @@
+package com.temimi.mapper;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.temimi.model.entity.Comment;
+import org.apache.ibatis.annotations.Select;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 根评论的游标分页使用显式列清单，必须包含实体的全部持久化列（如 reply_count），否则对应字段恒为空
+ */
+public class CommentMapperTest {
+
+    @Test
+    public void testRootCursorQueriesSelectAllColumns() {
+        Set<String> expected = persistentColumns();
+        for (Method method : CommentMapper.class.getDeclaredMethods()) {
+            if (method.getName().startsWith("selectRootsBy")) {
+                assertEquals(expected, selectedColumns(method), method.getName());
+            }
+        }
+    }
+
+    private static Set<String> persistentColumns() {
+        Set<String> columns = new HashSet<>();
+        for (Field field : Comment.class.getDeclaredFields()) {
+            TableId id = field.getAnnotation(TableId.class);
+            TableField column = field.getAnnotation(TableField.class);
+            if (id != null) {
+                columns.add(id.value());
+            } else if (column != null && column.exist()) {
+                columns.add(column.value());
+            }
+        }
+        return columns;
+    }
+
+    private static Set<String> selectedColumns(Method method) {
+        String sql = String.join("", method.getAnnotation(Select.class).value());
+        String list = sql.substring(sql.indexOf("SELECT") + "SELECT".length(), sql.indexOf("FROM"));
+        return Arrays.stream(list.split(",")).map(String::trim).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,170 @@
+package com.temimi.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.temimi.mapper.CommentMapper;
+import com.temimi.mapper.UserCommentLikeMapper;
+import com.temimi.model.entity.Comment;
+import com.temimi.model.entity.UserCommentLike;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 评论点赞/点踩并发测试（需要本地 shiyou 数据库，不可用时跳过）
+ *
+ * 大量并发点赞后，评论的 love/bad 计数必须与 user_comment_like 中的记录数完全一致。
+ */
+@SpringBootTest
+public class CommentLikeConcurrencyTest {
+
+    private static final int USERS = 2000;
+    private static final int THREADS = 32;
+
+    // 测试用户ID从一个不会与真实用户冲突的区间开始
+    private static final int UID_BASE = 900_000_000;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentMapper commentMapper;
+
+    @Autowired
+    private UserCommentLikeMapper userCommentLikeMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Integer commentId;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+        } catch (Exception e) {
+            Assumptions.abort("数据库不可用，跳过并发测试: " + e.getMessage());
+        }
+
+        Comment comment = new Comment();
+        comment.setVid(Integer.MAX_VALUE);
+        comment.setUid(UID_BASE - 1);
+        comment.setRootId(0);
+        comment.setParentId(0);
+        comment.setToUserId(0);
+        comment.setContent("并发点赞测试");
+        comment.setLove(0);
+        comment.setBad(0);
+        comment.setCreateTime(LocalDateTime.now());
+        comment.setIsTop(false);
+        comment.setIsDeleted(false);
+        commentMapper.insert(comment);
+        commentId = comment.getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (commentId == null) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM user_comment_like WHERE comment_id = ?", commentId);
+        jdbcTemplate.update("DELETE FROM message WHERE target_type = 'comment' AND target_id = ?", commentId);
+        commentMapper.deleteById(commentId);
+    }
+
+    @Test
+    public void testParallelLikesAreNotLost() throws Exception {
+        // 每个用户点赞两次，重复点赞不应重复计数
+        runParallel(USERS * 2, i -> commentService.likeComment(commentId, UID_BASE + i % USERS));
+        assertCountersMatchRecords(USERS, 0);
+
+        // 一半用户改为点踩
+        runParallel(USERS / 2, i -> commentService.dislikeComment(commentId, UID_BASE + i));
+        assertCountersMatchRecords(USERS / 2, USERS / 2);
+
+        // 全部取消点赞和点踩（各执行两次）
+        runParallel(USERS * 2, i -> {
+            commentService.unlikeComment(commentId, UID_BASE + i % USERS);
+            commentService.undislikeComment(commentId, UID_BASE + i % USERS);
+        });
+        assertCountersMatchRecords(0, 0);
+    }
+
+    @Test
+    public void testSameUserTogglingKeepsCountersConsistent() throws Exception {
+        // 少量用户反复切换点赞/点踩，同一行上可能出现死锁回滚，但计数必须与记录一致
+        AtomicInteger failures = new AtomicInteger();
+        runParallel(USERS, i -> {
+            int uid = UID_BASE + i % 10;
+            try {
+                switch (i % 4) {
+                    case 0 -> commentService.likeComment(commentId, uid);
+                    case 1 -> commentService.dislikeComment(commentId, uid);
+                    case 2 -> commentService.unlikeComment(commentId, uid);
+                    default -> commentService.undislikeComment(commentId, uid);
+                }
+            } catch (Exception e) {
+                failures.incrementAndGet();
+            }
+        });
+        assertTrue(failures.get() < USERS, "全部请求失败");
+        assertCountersMatchRecords(countRecords(UserCommentLike.TYPE_LIKE), countRecords(UserCommentLike.TYPE_DISLIKE));
+    }
+
+    private void assertCountersMatchRecords(int expectedLove, int expectedBad) {
+        Comment comment = commentMapper.selectById(commentId);
+        assertEquals(expectedLove, countRecords(UserCommentLike.TYPE_LIKE));
+        assertEquals(expectedBad, countRecords(UserCommentLike.TYPE_DISLIKE));
+        assertEquals(expectedLove, comment.getLove());
+        assertEquals(expectedBad, comment.getBad());
+    }
+
+    private int countRecords(Integer type) {
+        QueryWrapper<UserCommentLike> query = new QueryWrapper<>();
+        query.eq("comment_id", commentId).eq("type", type);
+        return userCommentLikeMapper.selectCount(query).intValue();
+    }
+
+    private void runParallel(int tasks, IndexedTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+}
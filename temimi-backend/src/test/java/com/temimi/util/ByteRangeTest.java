@@ -0,0 +1,47 @@
+package com.temimi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testSingleRanges() {
+        assertEquals(List.of(new ByteRange(0, 499)), ByteRange.parse("bytes=0-499", 1000, 16));
+        assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000, 16));
+        assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000, 16));
+        assertEquals(List.of(new ByteRange(0, 999)), ByteRange.parse("bytes=-5000", 1000, 16));
+        assertEquals(List.of(new ByteRange(990, 999)), ByteRange.parse("bytes=990-2000", 1000, 16));
+        assertEquals("bytes 0-499/1000", new ByteRange(0, 499).contentRange(1000));
+    }
+
+    @Test
+    public void testMultipleRangesAreCoalesced() {
+        assertEquals(List.of(new ByteRange(0, 9), new ByteRange(100, 199)),
+                ByteRange.parse("bytes=100-199, 0-9", 1000, 16));
+        assertEquals(List.of(new ByteRange(0, 299)),
+                ByteRange.parse("bytes=0-99,100-199,150-299", 1000, 16));
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        assertTrue(ByteRange.parse("bytes=1000-", 1000, 16).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 1000, 16).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-0,10-10,20-20", 1000, 2).isEmpty());
+        assertEquals(List.of(new ByteRange(0, 9)), ByteRange.parse("bytes=0-9,5000-6000", 1000, 16));
+    }
+
+    @Test
+    public void testInvalidHeaderIsIgnored() {
+        assertNull(ByteRange.parse(null, 1000, 16));
+        assertNull(ByteRange.parse("items=0-1", 1000, 16));
+        assertNull(ByteRange.parse("bytes=abc", 1000, 16));
+        assertNull(ByteRange.parse("bytes=5-1", 1000, 16));
+        assertNull(ByteRange.parse("bytes=x-1", 1000, 16));
+    }
+}
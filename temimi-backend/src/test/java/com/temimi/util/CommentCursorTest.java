@@ -0,0 +1,35 @@
+package com.temimi.util;
+
+import com.temimi.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CommentCursorTest {
+
+    @Test
+    public void testRoundTrip() {
+        CommentCursor cursor = new CommentCursor(CommentCursor.SORT_TIME, 1735689600L, 42);
+        String token = cursor.encode();
+        assertEquals(cursor, CommentCursor.decode(token, CommentCursor.SORT_TIME));
+
+        CommentCursor hot = new CommentCursor(CommentCursor.SORT_HOT, 0L, Integer.MAX_VALUE);
+        assertEquals(hot, CommentCursor.decode(hot.encode(), CommentCursor.SORT_HOT));
+    }
+
+    @Test
+    public void testFirstPage() {
+        assertNull(CommentCursor.decode(null, CommentCursor.SORT_TIME));
+        assertNull(CommentCursor.decode("", CommentCursor.SORT_HOT));
+    }
+
+    @Test
+    public void testRejectsInvalidToken() {
+        String timeToken = new CommentCursor(CommentCursor.SORT_TIME, 1L, 1).encode();
+        assertThrows(BusinessException.class, () -> CommentCursor.decode(timeToken, CommentCursor.SORT_HOT));
+        assertThrows(BusinessException.class, () -> CommentCursor.decode("not a cursor!", CommentCursor.SORT_TIME));
+        assertThrows(BusinessException.class, () -> CommentCursor.decode("MTox", CommentCursor.SORT_TIME));
+    }
+}
@@ -0,0 +1,129 @@
+package com.temimi.util;
+
+import com.temimi.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 单次扫描清洗与原正则流水线的结果必须逐字节一致（包括抛出的异常信息）
+ */
+public class ContentSanitizerTest {
+
+    private static final int MAX_LENGTH = 100;
+
+    private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]+>");
+
+    private static final Pattern DANGEROUS_PATTERN = Pattern.compile(
+        "(?i)(script|iframe|object|embed|applet|meta|link|style|" +
+        "javascript:|vbscript:|onclick|onerror|onload|onmouseover|eval|expression)"
+    );
+
+    // 随机输入的字符来源：标签符号、实体字符、关键字片段、空白、中文
+    private static final String[] FRAGMENTS = {
+        "<", ">", "<>", "&", "\"", "'", "/", " ", "\t", "\n", ":", "a", "b",
+        "SCRIPT", "scr", "ipt", "on", "click", "javascript", "Eval", "linK", "meta",
+        "弹幕", "哈", "2333", "<b>", "</i>", "<<", ">>"
+    };
+
+    @Test
+    public void testKnownCases() {
+        assertEquals("你好", sanitize("  你好 \t"));
+        assertEquals("好听", sanitize("<b>好听</b>"));
+        assertEquals("&lt;&gt;x", sanitize("<>x"));
+        assertEquals("a&lt;b", sanitize("a<b"));
+        assertEquals("&quot;a&quot; &amp; &#x27;b&#x27; &#x2F;", sanitize("\"a\" & 'b' /"));
+        assertThrows(BusinessException.class, () -> sanitize("scr<b>ipt"));
+        assertThrows(BusinessException.class, () -> sanitize("JavaScript:alert(1)"));
+        assertThrows(BusinessException.class, () -> sanitize("<b></b>"));
+    }
+
+    @Test
+    public void testEscapeKeepsPlainText() {
+        // 评论只编码，不按弹幕关键字拒绝，也不删除形如标签的片段
+        assertEquals("the style of this link", ContentSanitizer.escape(" the style of this link ", MAX_LENGTH, "评论"));
+        assertEquals("1 &lt; 2 &gt; 0 &amp; &lt;b&gt;", ContentSanitizer.escape("1 < 2 > 0 & <b>", MAX_LENGTH, "评论"));
+        assertThrows(BusinessException.class, () -> ContentSanitizer.escape("  ", MAX_LENGTH, "评论"));
+        assertThrows(BusinessException.class, () -> ContentSanitizer.escape("&".repeat(30), MAX_LENGTH, "评论"));
+    }
+
+    @Test
+    public void testDecodeReversesEncode() {
+        Random random = new Random(20240502L);
+        for (int round = 0; round < 10_000; round++) {
+            StringBuilder input = new StringBuilder();
+            int parts = random.nextInt(12);
+            for (int i = 0; i < parts; i++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String raw = input.toString();
+            assertEquals(raw, ContentSanitizer.decode(ContentSanitizer.encode(raw)), raw);
+        }
+        assertEquals("&amp", ContentSanitizer.decode("&amp"));
+    }
+
+    @Test
+    public void testMatchesRegexPipeline() {
+        Random random = new Random(20240501L);
+        for (int round = 0; round < 50_000; round++) {
+            StringBuilder input = new StringBuilder();
+            int parts = random.nextInt(round % 10 == 0 ? 80 : 12);
+            for (int i = 0; i < parts; i++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String raw = input.toString();
+            assertEquals(outcome(() -> legacySanitize(raw)), outcome(() -> sanitize(raw)), raw);
+        }
+    }
+
+    private static String sanitize(String raw) {
+        return ContentSanitizer.sanitize(raw, MAX_LENGTH, "弹幕");
+    }
+
+    private static String outcome(java.util.function.Supplier<String> action) {
+        try {
+            return "OK:" + action.get();
+        } catch (BusinessException e) {
+            return "ERR:" + e.getMessage();
+        }
+    }
+
+    /**
+     * 原 DanmuServiceImpl 的正则清洗流程
+     */
+    private static String legacySanitize(String rawContent) {
+        String content = rawContent.trim();
+        if (content.length() > MAX_LENGTH * 2) {
+            throw new BusinessException("弹幕内容过长，最多允许 " + MAX_LENGTH + " 字符");
+        }
+        content = HTML_TAG_PATTERN.matcher(content).replaceAll("");
+        if (DANGEROUS_PATTERN.matcher(content).find()) {
+            throw new BusinessException("弹幕内容包含非法字符，请修改后重试");
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            switch (c) {
+                case '&': encoded.append("&amp;"); break;
+                case '<': encoded.append("&lt;"); break;
+                case '>': encoded.append("&gt;"); break;
+                case '"': encoded.append("&quot;"); break;
+                case '\'': encoded.append("&#x27;"); break;
+                case '/': encoded.append("&#x2F;"); break;
+                default: encoded.append(c);
+            }
+        }
+        content = encoded.toString();
+        if (content.length() > MAX_LENGTH) {
+            throw new BusinessException("弹幕内容过长，最多允许 " + MAX_LENGTH + " 字符");
+        }
+        if (content.isEmpty()) {
+            throw new BusinessException("弹幕内容不能为空或仅包含特殊字符");
+        }
+        return content;
+    }
+}
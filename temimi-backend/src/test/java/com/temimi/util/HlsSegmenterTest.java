@@ -0,0 +1,264 @@
+package com.temimi.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mp4parser.Box;
+import org.mp4parser.Container;
+import org.mp4parser.IsoFile;
+import org.mp4parser.boxes.iso14496.part12.FileTypeBox;
+import org.mp4parser.boxes.iso14496.part12.HandlerBox;
+import org.mp4parser.boxes.iso14496.part12.MediaBox;
+import org.mp4parser.boxes.iso14496.part12.MediaHeaderBox;
+import org.mp4parser.boxes.iso14496.part12.MediaInformationBox;
+import org.mp4parser.boxes.iso14496.part12.MovieBox;
+import org.mp4parser.boxes.iso14496.part12.MovieFragmentBox;
+import org.mp4parser.boxes.iso14496.part12.MovieHeaderBox;
+import org.mp4parser.boxes.iso14496.part12.SampleDescriptionBox;
+import org.mp4parser.boxes.iso14496.part12.SampleSizeBox;
+import org.mp4parser.boxes.iso14496.part12.SampleTableBox;
+import org.mp4parser.boxes.iso14496.part12.SampleToChunkBox;
+import org.mp4parser.boxes.iso14496.part12.StaticChunkOffsetBox;
+import org.mp4parser.boxes.iso14496.part12.SyncSampleBox;
+import org.mp4parser.boxes.iso14496.part12.TimeToSampleBox;
+import org.mp4parser.boxes.iso14496.part12.TrackBox;
+import org.mp4parser.boxes.iso14496.part12.TrackExtendsBox;
+import org.mp4parser.boxes.iso14496.part12.TrackFragmentBaseMediaDecodeTimeBox;
+import org.mp4parser.boxes.iso14496.part12.TrackHeaderBox;
+import org.mp4parser.boxes.iso14496.part12.TrackRunBox;
+import org.mp4parser.boxes.sampleentry.AudioSampleEntry;
+import org.mp4parser.boxes.sampleentry.VisualSampleEntry;
+import org.mp4parser.tools.Path;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HlsSegmenterTest {
+
+    // 视频：10 帧，每帧 1 秒，第 1、4、7、10 帧为关键帧；音频：20 帧，每帧 0.5 秒，每个 chunk 两帧
+    private static final int VIDEO_SAMPLES = 10;
+    private static final int AUDIO_SAMPLES = 20;
+    private static final int AUDIO_SAMPLE_SIZE = 10;
+
+    @TempDir
+    java.nio.file.Path tempDir;
+
+    @Test
+    public void testSegmentsAtKeyFrames() throws IOException {
+        java.nio.file.Path source = tempDir.resolve("source.mp4");
+        writeSourceMp4(source);
+        java.nio.file.Path output = Files.createDirectory(tempDir.resolve("hls"));
+
+        HlsSegmenter.Result result = HlsSegmenter.segment(source, output, 2.5);
+
+        assertEquals(4, result.segments());
+        assertEquals(10.0, result.durationSeconds(), 1e-9);
+
+        String playlist = Files.readString(output.resolve(HlsSegmenter.PLAYLIST));
+        assertTrue(playlist.contains("#EXT-X-TARGETDURATION:3\n"));
+        assertTrue(playlist.contains("#EXT-X-MAP:URI=\"init.mp4\"\n"));
+        assertEquals(4, playlist.split("#EXTINF:").length - 1);
+        assertTrue(playlist.contains("#EXTINF:3.000,\nseg0.m4s\n"));
+        assertTrue(playlist.contains("#EXTINF:1.000,\nseg3.m4s\n"));
+        assertTrue(playlist.endsWith("#EXT-X-ENDLIST\n"));
+
+        try (IsoFile init = new IsoFile(output.resolve(HlsSegmenter.INIT_SEGMENT).toFile())) {
+            MovieBox moov = init.getMovieBox();
+            List<TrackExtendsBox> trex = Path.getPaths((Container) moov, "mvex/trex");
+            assertEquals(2, trex.size());
+            for (TrackBox trak : moov.getBoxes(TrackBox.class)) {
+                assertEquals(0, trak.getSampleTableBox().getSampleSizeBox().getSampleCount());
+            }
+        }
+
+        int[][] expectedVideo = {{0, 3}, {3, 6}, {6, 9}, {9, 10}};
+        int[][] expectedAudio = {{0, 6}, {6, 12}, {12, 18}, {18, 20}};
+        for (int k = 0; k < 4; k++) {
+            java.nio.file.Path segment = output.resolve("seg" + k + ".m4s");
+            try (IsoFile fragment = new IsoFile(segment.toFile())) {
+                MovieFragmentBox moof = fragment.getBoxes(MovieFragmentBox.class).get(0);
+                List<TrackRunBox> runs = moof.getTrackRunBoxes();
+                assertEquals(2, runs.size());
+                assertEquals(expectedVideo[k][1] - expectedVideo[k][0], runs.get(0).getEntries().size());
+                assertEquals(expectedAudio[k][1] - expectedAudio[k][0], runs.get(1).getEntries().size());
+                List<TrackFragmentBaseMediaDecodeTimeBox> tfdt = Path.getPaths((Container) moof, "traf/tfdt");
+                assertEquals(expectedVideo[k][0] * 1000L, tfdt.get(0).getBaseMediaDecodeTime());
+                assertEquals(expectedAudio[k][0] * 500L, tfdt.get(1).getBaseMediaDecodeTime());
+
+                // 按 trun 的数据偏移读出的样本应与源文件中的样本一致
+                byte[] bytes = Files.readAllBytes(segment);
+                int offset = runs.get(0).getDataOffset();
+                for (int i = expectedVideo[k][0]; i < expectedVideo[k][1]; i++) {
+                    assertArrayEquals(videoSample(i), Arrays.copyOfRange(bytes, offset, offset + videoSample(i).length));
+                    offset += videoSample(i).length;
+                }
+                assertEquals(offset, runs.get(1).getDataOffset());
+                for (int i = expectedAudio[k][0]; i < expectedAudio[k][1]; i++) {
+                    assertArrayEquals(audioSample(i), Arrays.copyOfRange(bytes, offset, offset + AUDIO_SAMPLE_SIZE));
+                    offset += AUDIO_SAMPLE_SIZE;
+                }
+                assertEquals(bytes.length, offset);
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsForgedSampleCount() throws IOException {
+        // 很小的 moov 声明 2^31-1 个样本，必须在分配数组前拒绝
+        java.nio.file.Path source = tempDir.resolve("forged.mp4");
+        writeSourceMp4(source);
+        patchInt(source, "stsz", 8, Integer.MAX_VALUE);
+        java.nio.file.Path output = Files.createDirectory(tempDir.resolve("forged"));
+
+        assertThrows(IOException.class, () -> HlsSegmenter.segment(source, output, 2.5));
+    }
+
+    @Test
+    public void testIgnoresOversizedTimeToSampleRun() throws IOException {
+        // stts 游程声明 2^31-1 个样本时只展开实际样本数
+        java.nio.file.Path source = tempDir.resolve("long-run.mp4");
+        writeSourceMp4(source);
+        patchInt(source, "stts", 8, Integer.MAX_VALUE);
+        java.nio.file.Path output = Files.createDirectory(tempDir.resolve("long-run"));
+
+        assertEquals(4, HlsSegmenter.segment(source, output, 2.5).segments());
+    }
+
+    /**
+     * 改写第一个指定类型 box 中，类型之后 offset 字节处的 32 位整数
+     */
+    private static void patchInt(java.nio.file.Path file, String type, int offset, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] fourCC = type.getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i + 4 <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + 4, fourCC, 0, 4)) {
+                ByteBuffer.wrap(bytes).putInt(i + 4 + offset, value);
+                Files.write(file, bytes);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("box not found: " + type);
+    }
+
+    private static byte[] videoSample(int index) {
+        byte[] sample = new byte[100 + index];
+        Arrays.fill(sample, (byte) (index + 1));
+        return sample;
+    }
+
+    private static byte[] audioSample(int index) {
+        byte[] sample = new byte[AUDIO_SAMPLE_SIZE];
+        Arrays.fill(sample, (byte) (0x80 + index));
+        return sample;
+    }
+
+    /**
+     * 生成 ftyp + mdat + moov 布局的 MP4，视频帧与两帧一组的音频 chunk 交错存放
+     */
+    private static void writeSourceMp4(java.nio.file.Path target) throws IOException {
+        FileTypeBox ftyp = new FileTypeBox("isom", 512, List.of("isom", "mp41"));
+        long mdatStart = ftyp.getSize() + 8;
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        long[] videoOffsets = new long[VIDEO_SAMPLES];
+        long[] videoSizes = new long[VIDEO_SAMPLES];
+        long[] audioChunkOffsets = new long[AUDIO_SAMPLES / 2];
+        for (int i = 0; i < VIDEO_SAMPLES; i++) {
+            videoOffsets[i] = mdatStart + payload.size();
+            videoSizes[i] = videoSample(i).length;
+            payload.write(videoSample(i));
+            audioChunkOffsets[i] = mdatStart + payload.size();
+            payload.write(audioSample(2 * i));
+            payload.write(audioSample(2 * i + 1));
+        }
+
+        MovieBox moov = new MovieBox();
+        MovieHeaderBox mvhd = new MovieHeaderBox();
+        mvhd.setTimescale(1000);
+        mvhd.setDuration(10000);
+        mvhd.setNextTrackId(3);
+        mvhd.setCreationTime(new Date(0));
+        mvhd.setModificationTime(new Date(0));
+        moov.addBox(mvhd);
+
+        SampleSizeBox videoSizeBox = new SampleSizeBox();
+        videoSizeBox.setSampleSizes(videoSizes);
+        SyncSampleBox stss = new SyncSampleBox();
+        stss.setSampleNumber(new long[]{1, 4, 7, 10});
+        moov.addBox(track(1, "vide", new VisualSampleEntry("avc1"), 1000, VIDEO_SAMPLES, 1,
+                videoSizeBox, videoOffsets, stss));
+
+        SampleSizeBox audioSizeBox = new SampleSizeBox();
+        long[] audioSizes = new long[AUDIO_SAMPLES];
+        Arrays.fill(audioSizes, AUDIO_SAMPLE_SIZE);
+        audioSizeBox.setSampleSizes(audioSizes);
+        moov.addBox(track(2, "soun", new AudioSampleEntry("mp4a"), 500, AUDIO_SAMPLES, 2,
+                audioSizeBox, audioChunkOffsets, null));
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ftyp.getBox(out);
+            byte[] data = payload.toByteArray();
+            ByteBuffer mdat = ByteBuffer.allocate(data.length + 8);
+            mdat.putInt(data.length + 8).put("mdat".getBytes(StandardCharsets.ISO_8859_1)).put(data).flip();
+            out.write(mdat);
+            moov.getBox(out);
+        }
+    }
+
+    private static TrackBox track(long trackId, String handler, Box sampleEntry, long sampleDuration, int samples,
+                                  int samplesPerChunk, SampleSizeBox stsz, long[] chunkOffsets, SyncSampleBox stss) {
+        SampleDescriptionBox stsd = new SampleDescriptionBox();
+        stsd.addBox(sampleEntry);
+        TimeToSampleBox stts = new TimeToSampleBox();
+        stts.setEntries(List.of(new TimeToSampleBox.Entry(samples, sampleDuration)));
+        SampleToChunkBox stsc = new SampleToChunkBox();
+        stsc.setEntries(List.of(new SampleToChunkBox.Entry(1, samplesPerChunk, 1)));
+        StaticChunkOffsetBox stco = new StaticChunkOffsetBox();
+        stco.setChunkOffsets(chunkOffsets);
+
+        SampleTableBox stbl = new SampleTableBox();
+        stbl.addBox(stsd);
+        stbl.addBox(stts);
+        stbl.addBox(stsc);
+        stbl.addBox(stsz);
+        stbl.addBox(stco);
+        if (stss != null) {
+            stbl.addBox(stss);
+        }
+        MediaInformationBox minf = new MediaInformationBox();
+        minf.addBox(stbl);
+
+        MediaHeaderBox mdhd = new MediaHeaderBox();
+        mdhd.setTimescale(1000);
+        mdhd.setDuration(sampleDuration * samples);
+        mdhd.setCreationTime(new Date(0));
+        mdhd.setModificationTime(new Date(0));
+        HandlerBox hdlr = new HandlerBox();
+        hdlr.setHandlerType(handler);
+        MediaBox mdia = new MediaBox();
+        mdia.addBox(mdhd);
+        mdia.addBox(hdlr);
+        mdia.addBox(minf);
+
+        TrackHeaderBox tkhd = new TrackHeaderBox();
+        tkhd.setTrackId(trackId);
+        tkhd.setCreationTime(new Date(0));
+        tkhd.setModificationTime(new Date(0));
+        TrackBox trak = new TrackBox();
+        trak.addBox(tkhd);
+        trak.addBox(mdia);
+        return trak;
+    }
+}